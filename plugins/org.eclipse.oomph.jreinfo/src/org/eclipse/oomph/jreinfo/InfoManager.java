@@ -13,8 +13,10 @@ package org.eclipse.oomph.jreinfo;
 import org.eclipse.oomph.extractor.lib.JREData;
 import org.eclipse.oomph.extractor.lib.JREValidator;
 import org.eclipse.oomph.internal.jreinfo.JREInfoPlugin;
+import org.eclipse.oomph.util.DaemonThreadFactory;
 import org.eclipse.oomph.util.IOUtil;
 import org.eclipse.oomph.util.OomphPlugin;
+import org.eclipse.oomph.util.PropertiesUtil;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
@@ -27,15 +29,51 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Remembers the infos of the Java homes in the <code>infos.txt</code> file of the user location.
+ * <p>
+ * The Java homes that aren't known yet are probed concurrently,
+ * by default in up to four threads, which the system property <code>oomph.jreinfo.probe.max.threads</code> can change.
+ * The probes that haven't finished after one minute, which the system property <code>oomph.jreinfo.probe.timeout</code> can change in milliseconds,
+ * are canceled and their Java homes remain unknown.
+ * The info of a Java home is read from its <code>release</code> file if that file describes a Java for the running platform,
+ * otherwise the Java executable is launched to test it.
+ * Reading the <code>release</code> file can be disabled with the system property <code>oomph.jreinfo.release.file.disabled</code>.
+ * </p>
+ *
  * @author Eike Stepper
  */
 final class InfoManager
 {
+  private static final String PROP_MAX_THREADS = "oomph.jreinfo.probe.max.threads"; //$NON-NLS-1$
+
+  private static final String PROP_PROBE_TIMEOUT = "oomph.jreinfo.probe.timeout"; //$NON-NLS-1$
+
+  private static final String PROP_RELEASE_FILE_DISABLED = "oomph.jreinfo.release.file.disabled"; //$NON-NLS-1$
+
+  private static final int MAX_THREADS = PropertiesUtil.getProperty(PROP_MAX_THREADS, 4);
+
+  private static final int PROBE_TIMEOUT = PropertiesUtil.getProperty(PROP_PROBE_TIMEOUT, 60000);
+
+  private static final boolean RELEASE_FILE_DISABLED = PropertiesUtil.isProperty(PROP_RELEASE_FILE_DISABLED);
+
+  private static final String CURRENT_ARCH = new JREData().getArch();
+
+  private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("Oomph JRE Prober"); //$NON-NLS-1$
+
   public static final InfoManager INSTANCE = new InfoManager();
 
   private static final String LIB_CLASS_PATH;
@@ -52,56 +90,71 @@ final class InfoManager
     loadInfos();
   }
 
-  public synchronized JRE getInfo(File canonicalJavaHome)
+  public JRE getInfo(File canonicalJavaHome)
+  {
+    return getInfos(Collections.singleton(canonicalJavaHome)).get(canonicalJavaHome);
+  }
+
+  /**
+   * Returns the infos of the given Java homes, probing the ones that aren't known yet concurrently, and saving them all at once.
+   * A Java home that isn't valid has no info in the result.
+   */
+  public Map<File, JRE> getInfos(Collection<File> canonicalJavaHomes)
   {
-    JRE jre = infos.get(canonicalJavaHome);
-    if (jre == null)
+    Map<File, JRE> result = new HashMap<>();
+    Set<File> unknownJavaHomes = new LinkedHashSet<>();
+
+    synchronized (this)
     {
-      try
+      for (File canonicalJavaHome : canonicalJavaHomes)
       {
-        if (canonicalJavaHome.isDirectory())
+        JRE jre = infos.get(canonicalJavaHome);
+        if (jre != null)
         {
-          JREData result = testJRE(canonicalJavaHome);
-          if (result != null)
-          {
-            int major = result.getMajor();
-            int minor = result.getMinor();
-            int micro = result.getMicro();
-            int bitness = result.getBitness();
-            String arch = result.getArch();
-
-            boolean jdk = JREInfo.isJDK(canonicalJavaHome) == 1;
-
-            File executable = JRE.getExecutable(canonicalJavaHome);
-            long lastModified = executable.lastModified();
-
-            jre = new JRE(canonicalJavaHome, major, minor, micro, bitness, arch, jdk, lastModified);
-            infos.put(canonicalJavaHome, jre);
+          result.put(canonicalJavaHome, jre);
+        }
+        else
+        {
+          unknownJavaHomes.add(canonicalJavaHome);
+        }
+      }
+    }
 
-            try
-            {
-              List<String> lines = new ArrayList<>();
-              for (JRE info : infos.values())
-              {
-                lines.add(info.toLine());
-              }
+    if (!unknownJavaHomes.isEmpty())
+    {
+      // Probing the Java homes may launch processes, so don't block the callers of the known ones meanwhile.
+      Map<File, JRE> newInfos = probeInfos(unknownJavaHomes);
+      if (!newInfos.isEmpty())
+      {
+        result.putAll(newInfos);
 
-              IOUtil.writeLines(getCacheFile(), "UTF-8", lines); //$NON-NLS-1$
-            }
-            catch (Exception ex)
-            {
-              JREInfoPlugin.INSTANCE.log(ex);
-            }
-          }
+        synchronized (this)
+        {
+          infos.putAll(newInfos);
+          saveInfos();
         }
       }
-      catch (Exception ex)
+    }
+
+    return result;
+  }
+
+  private void saveInfos()
+  {
+    try
+    {
+      List<String> lines = new ArrayList<>();
+      for (JRE info : infos.values())
       {
-        JREInfoPlugin.INSTANCE.log(ex);
+        lines.add(info.toLine());
       }
-    }
 
-    return jre;
+      IOUtil.writeLines(getCacheFile(), "UTF-8", lines); //$NON-NLS-1$
+    }
+    catch (Exception ex)
+    {
+      JREInfoPlugin.INSTANCE.log(ex);
+    }
   }
 
   private void loadInfos()
@@ -147,13 +200,230 @@ final class InfoManager
     return new File(JREInfoPlugin.INSTANCE.getUserLocation().append("infos.txt").toOSString()); //$NON-NLS-1$
   }
 
-  private static JREData testJRE(File javaHome)
+  private static Map<File, JRE> probeInfos(Collection<File> canonicalJavaHomes)
+  {
+    final Map<File, JRE> result = new ConcurrentHashMap<>();
+
+    int threads = Math.min(MAX_THREADS, canonicalJavaHomes.size());
+    if (threads <= 1)
+    {
+      for (File canonicalJavaHome : canonicalJavaHomes)
+      {
+        probeInfo(canonicalJavaHome, result, null);
+      }
+
+      return result;
+    }
+
+    // The processes of the running probes, which are destroyed if they don't finish in time.
+    final Set<Process> processes = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, THREAD_FACTORY);
+
+    try
+    {
+      for (final File canonicalJavaHome : canonicalJavaHomes)
+      {
+        executor.execute(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            probeInfo(canonicalJavaHome, result, processes);
+          }
+        });
+      }
+
+      executor.shutdown();
+
+      try
+      {
+        if (!executor.awaitTermination(PROBE_TIMEOUT, TimeUnit.MILLISECONDS))
+        {
+          JREInfoPlugin.INSTANCE.log(NLS.bind("Probing the Java homes has been canceled after {0} ms", PROBE_TIMEOUT), IStatus.WARNING); //$NON-NLS-1$
+        }
+      }
+      catch (InterruptedException ex)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+
+      // Reading the output of a process isn't interruptible, so destroy the processes of the probes that are still running.
+      for (Process process : processes)
+      {
+        process.destroy();
+      }
+    }
+
+    // A probe that finishes after the cancelation must not change the result anymore.
+    return new HashMap<>(result);
+  }
+
+  private static void probeInfo(File canonicalJavaHome, Map<File, JRE> result, Set<Process> processes)
+  {
+    try
+    {
+      if (canonicalJavaHome.isDirectory())
+      {
+        JREData data = readRelease(canonicalJavaHome);
+        if (data == null)
+        {
+          data = testJRE(canonicalJavaHome, processes);
+        }
+
+        if (data != null)
+        {
+          int major = data.getMajor();
+          int minor = data.getMinor();
+          int micro = data.getMicro();
+          int bitness = data.getBitness();
+          String arch = data.getArch();
+
+          boolean jdk = JREInfo.isJDK(canonicalJavaHome) == 1;
+
+          File executable = JRE.getExecutable(canonicalJavaHome);
+          long lastModified = executable.lastModified();
+
+          result.put(canonicalJavaHome, new JRE(canonicalJavaHome, major, minor, micro, bitness, arch, jdk, lastModified));
+        }
+      }
+    }
+    catch (Exception ex)
+    {
+      JREInfoPlugin.INSTANCE.log(ex);
+    }
+  }
+
+  /**
+   * Returns the data of the given Java home from its <code>release</code> file without launching its Java executable,
+   * or <code>null</code> if the Java home must be tested because the file is missing, incomplete, or describes a Java for another platform.
+   */
+  private static JREData readRelease(File javaHome)
+  {
+    if (RELEASE_FILE_DISABLED)
+    {
+      return null;
+    }
+
+    File releaseFile = new File(javaHome, "release"); //$NON-NLS-1$
+    if (!releaseFile.isFile() || !JRE.getExecutable(javaHome).isFile())
+    {
+      return null;
+    }
+
+    try
+    {
+      Map<String, String> properties = PropertiesUtil.loadProperties(releaseFile);
+      String version = unquote(properties.get("JAVA_VERSION")); //$NON-NLS-1$
+      String osName = unquote(properties.get("OS_NAME")); //$NON-NLS-1$
+      String osArch = unquote(properties.get("OS_ARCH")); //$NON-NLS-1$
+      if (version == null || osName == null || osArch == null || getOSType(osName) != JREManager.OS_TYPE)
+      {
+        return null;
+      }
+
+      // The tested arch is the one of the running Java, so a Java for another arch, e.g., an emulated one, must be tested.
+      String arch = "amd64".equals(osArch) ? "x86_64" : osArch; //$NON-NLS-1$ //$NON-NLS-2$
+      if (!arch.equals(CURRENT_ARCH))
+      {
+        return null;
+      }
+
+      String[] segments = version.split("\\."); //$NON-NLS-1$
+      String major = segments[0];
+      String minor = segments.length > 1 ? segments[1] : "0"; //$NON-NLS-1$
+      String micro = segments.length > 2 ? segments[2] : "0"; //$NON-NLS-1$
+      String bitness = getBitness(arch);
+      if (bitness == null)
+      {
+        return null;
+      }
+
+      return new JREData(new String[] { major, minor, micro, bitness, "", arch }); //$NON-NLS-1$
+    }
+    catch (Exception ex)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the bitness of the given arch, or <code>null</code> if the arch isn't known and the Java home must be tested.
+   */
+  private static String getBitness(String arch)
+  {
+    switch (arch)
+    {
+      case "x86_64": //$NON-NLS-1$
+      case "aarch64": //$NON-NLS-1$
+      case "ppc64": //$NON-NLS-1$
+      case "ppc64le": //$NON-NLS-1$
+      case "s390x": //$NON-NLS-1$
+      case "riscv64": //$NON-NLS-1$
+      case "sparcv9": //$NON-NLS-1$
+        return "64"; //$NON-NLS-1$
+
+      case "x86": //$NON-NLS-1$
+      case "i386": //$NON-NLS-1$
+      case "arm": //$NON-NLS-1$
+      case "ppc": //$NON-NLS-1$
+      case "s390": //$NON-NLS-1$
+        return "32"; //$NON-NLS-1$
+
+      default:
+        return null;
+    }
+  }
+
+  private static String unquote(String value)
+  {
+    if (value != null)
+    {
+      value = value.trim();
+      if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) //$NON-NLS-1$ //$NON-NLS-2$
+      {
+        value = value.substring(1, value.length() - 1);
+      }
+    }
+
+    return value;
+  }
+
+  private static OSType getOSType(String osName)
+  {
+    if (osName.startsWith("Windows")) //$NON-NLS-1$
+    {
+      return OSType.Win;
+    }
+
+    if ("Darwin".equals(osName) || osName.startsWith("Mac")) //$NON-NLS-1$ //$NON-NLS-2$
+    {
+      return OSType.Mac;
+    }
+
+    if ("Linux".equals(osName)) //$NON-NLS-1$
+    {
+      return OSType.Linux;
+    }
+
+    return OSType.Unsupported;
+  }
+
+  private static JREData testJRE(File javaHome, Set<Process> processes)
   {
     String executable = JRE.getExecutable(javaHome).getAbsolutePath();
-    return testJRE(executable);
+    return testJRE(executable, processes);
   }
 
   static JREData testJRE(String executable)
+  {
+    return testJRE(executable, null);
+  }
+
+  private static JREData testJRE(String executable, Set<Process> processes)
   {
     Process process = null;
 
@@ -163,6 +433,11 @@ final class InfoManager
       builder.command(executable, "-cp", LIB_CLASS_PATH, JREValidator.class.getName()); //$NON-NLS-1$
 
       process = builder.start();
+      if (processes != null)
+      {
+        processes.add(process);
+      }
+
       BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
 
       String line = bufferedReader.readLine();
@@ -179,6 +454,11 @@ final class InfoManager
     {
       if (process != null)
       {
+        if (processes != null)
+        {
+          processes.remove(process);
+        }
+
         IOUtil.closeSilent(process.getInputStream());
         IOUtil.closeSilent(process.getOutputStream());
         IOUtil.closeSilent(process.getErrorStream());
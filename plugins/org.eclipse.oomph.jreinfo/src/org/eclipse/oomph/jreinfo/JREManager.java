@@ -110,7 +110,7 @@ public final class JREManager
     return result;
   }
 
-  private void addExtraJavaHomes(List<String> extraJavaHomes, File folder, boolean root, Set<JRE> result, IProgressMonitor monitor)
+  private void addExtraJavaHomes(List<String> extraJavaHomes, File folder, boolean root, Map<File, File> result, IProgressMonitor monitor)
   {
     JREInfoPlugin.checkCancelation(monitor);
     String path = folder.getAbsolutePath();
@@ -135,14 +135,8 @@ public final class JREManager
         File executable = new File(folder, "bin/" + JAVA_EXECUTABLE); //$NON-NLS-1$
         if (executable.isFile())
         {
-          File canonicalFolder = folder.getCanonicalFile();
-
-          JRE info = InfoManager.INSTANCE.getInfo(canonicalFolder);
-          if (info != null && info.isValid())
-          {
-            extraJavaHomes.add(path);
-            result.add(new JRE(folder, info));
-          }
+          // The candidates are probed all at once when the search is done.
+          result.put(folder, folder.getCanonicalFile());
         }
       }
 
@@ -175,7 +169,20 @@ public final class JREManager
     if (folder.isDirectory())
     {
       List<String> extraJavaHomes = loadExtraJavaHomes();
-      addExtraJavaHomes(extraJavaHomes, folder, true, result, monitor);
+      Map<File, File> candidates = new LinkedHashMap<>();
+      addExtraJavaHomes(extraJavaHomes, folder, true, candidates, monitor);
+
+      Map<File, JRE> infos = InfoManager.INSTANCE.getInfos(candidates.values());
+      for (Map.Entry<File, File> entry : candidates.entrySet())
+      {
+        JRE info = infos.get(entry.getValue());
+        if (info != null && info.isValid())
+        {
+          File javaHome = entry.getKey();
+          extraJavaHomes.add(javaHome.getAbsolutePath());
+          result.add(new JRE(javaHome, info));
+        }
+      }
 
       if (!result.isEmpty())
       {
@@ -477,20 +484,12 @@ public final class JREManager
 
   private static List<JRE> getJREs(JREFilter filter, Collection<File> javaHomes)
   {
-    List<JRE> list = new ArrayList<>();
+    Map<File, File> canonicalJavaHomes = new LinkedHashMap<>();
     for (File javaHome : javaHomes)
     {
       try
       {
-        File canonicalJavaHome = javaHome.getCanonicalFile();
-        JRE info = InfoManager.INSTANCE.getInfo(canonicalJavaHome);
-        if (info != null && info.isValid())
-        {
-          if (filter == null || info.isMatch(filter))
-          {
-            list.add(new JRE(javaHome, info));
-          }
-        }
+        canonicalJavaHomes.put(javaHome, javaHome.getCanonicalFile());
       }
       catch (IOException ex)
       {
@@ -499,6 +498,20 @@ public final class JREManager
       }
     }
 
+    List<JRE> list = new ArrayList<>();
+    Map<File, JRE> infos = InfoManager.INSTANCE.getInfos(canonicalJavaHomes.values());
+    for (Map.Entry<File, File> entry : canonicalJavaHomes.entrySet())
+    {
+      JRE info = infos.get(entry.getValue());
+      if (info != null && info.isValid())
+      {
+        if (filter == null || info.isMatch(filter))
+        {
+          list.add(new JRE(entry.getKey(), info));
+        }
+      }
+    }
+
     Collections.sort(list);
     return list;
   }
@@ -572,7 +572,7 @@ public class AgentImpl extends AgentManagerElementImpl implements Agent
   private void fillProfileMap(PersistentMap<Profile> profileMap, IProgressMonitor monitor)
   {
     IProfileRegistry profileRegistry = getProfileRegistry();
-    for (IProfile delegate : profileRegistry instanceof LazyProfileRegistry ? ((LazyProfileRegistry)profileRegistry).getProfiles(monitor)
+    for (IProfile delegate : profileRegistry instanceof LazyProfileRegistry ? ((LazyProfileRegistry)profileRegistry).getSummarizedProfiles(monitor)
         : profileRegistry.getProfiles())
     {
       String key = delegate.getProfileId();
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.p2.internal.core;
+
+import org.eclipse.oomph.util.DaemonThreadFactory;
+import org.eclipse.oomph.util.OfflineMode;
+import org.eclipse.oomph.util.PropertiesUtil;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.equinox.internal.p2.artifact.repository.CompositeArtifactRepository;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.engine.IProvisioningPlan;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepositoryManager;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRequest;
+import org.eclipse.equinox.p2.repository.artifact.IFileArtifactRepository;
+import org.eclipse.osgi.util.NLS;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the artifacts that the collect phase of a provisioning plan needs into the bundle pool before the plan is executed.
+ * <p>
+ * p2 collects the artifacts of one repository after the other, so the downloads from different hosts don't overlap.
+ * The prefetcher downloads the missing artifacts from all hosts concurrently, with at most <code>oomph.p2.prefetch.max.threads</code> threads
+ * (default 8, 0 disables the prefetching) and at most <code>oomph.p2.prefetch.max.host.threads</code> threads per host (default 4).
+ * The requests are the same mirror requests that p2 creates, so each artifact is verified by its processing steps while it's downloaded
+ * and is added to the bundle pool only if it's valid.
+ * The collect phase then finds the prefetched artifacts in the bundle pool and the install phase can use them right away.
+ * Failed downloads are ignored because the collect phase retries and reports them.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+@SuppressWarnings("restriction")
+public final class ArtifactPrefetcher
+{
+  private static final String PROP_MAX_THREADS = "oomph.p2.prefetch.max.threads"; //$NON-NLS-1$
+
+  private static final String PROP_MAX_HOST_THREADS = "oomph.p2.prefetch.max.host.threads"; //$NON-NLS-1$
+
+  private static final int MAX_THREADS = PropertiesUtil.getProperty(PROP_MAX_THREADS, 8);
+
+  private static final int MAX_HOST_THREADS = Math.max(1, PropertiesUtil.getProperty(PROP_MAX_HOST_THREADS, 4));
+
+  private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("Oomph Artifact Prefetcher"); //$NON-NLS-1$
+
+  private final IArtifactRepositoryManager manager;
+
+  private final IFileArtifactRepository target;
+
+  private final Collection<URI> sources;
+
+  public ArtifactPrefetcher(IArtifactRepositoryManager manager, IFileArtifactRepository target, Collection<URI> sources)
+  {
+    this.manager = manager;
+    this.target = target;
+    this.sources = sources;
+  }
+
+  public static boolean isEnabled()
+  {
+    return MAX_THREADS > 0 && !OfflineMode.isEnabled();
+  }
+
+  /**
+   * Downloads the artifacts of the IUs that the given plan adds and that are missing in the bundle pool.
+   *
+   * @return the number of artifacts that have been fetched.
+   */
+  public int prefetch(IProvisioningPlan plan, final IProgressMonitor monitor)
+  {
+    Map<String, List<Request>> hostRequests = getRequests(plan);
+    if (hostRequests.isEmpty())
+    {
+      monitor.done();
+      return 0;
+    }
+
+    final List<Request> requests = new ArrayList<>();
+    for (List<Request> list : hostRequests.values())
+    {
+      requests.addAll(list);
+    }
+
+    // Interleave the hosts so that the threads don't all wait for the same host.
+    List<Request> schedule = new ArrayList<>();
+    List<Iterator<Request>> iterators = new ArrayList<>();
+    for (List<Request> list : hostRequests.values())
+    {
+      iterators.add(list.iterator());
+    }
+
+    while (!iterators.isEmpty())
+    {
+      for (Iterator<Iterator<Request>> it = iterators.iterator(); it.hasNext();)
+      {
+        Iterator<Request> iterator = it.next();
+        if (iterator.hasNext())
+        {
+          schedule.add(iterator.next());
+        }
+        else
+        {
+          it.remove();
+        }
+      }
+    }
+
+    monitor.beginTask(NLS.bind(Messages.ArtifactPrefetcher_Fetching_task, requests.size(), hostRequests.size()), requests.size());
+
+    final Map<String, Semaphore> hostSemaphores = new HashMap<>();
+    for (String host : hostRequests.keySet())
+    {
+      hostSemaphores.put(host, new Semaphore(MAX_HOST_THREADS));
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_THREADS, requests.size()), THREAD_FACTORY);
+    final AtomicInteger fetched = new AtomicInteger();
+
+    try
+    {
+      // Save the bundle pool only once, after all downloads.
+      target.executeBatch(m -> {
+        for (final Request request : schedule)
+        {
+          executor.execute(new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              Semaphore semaphore = hostSemaphores.get(request.getHost());
+
+              try
+              {
+                semaphore.acquire();
+              }
+              catch (InterruptedException ex)
+              {
+                return;
+              }
+
+              try
+              {
+                if (!monitor.isCanceled() && request.fetch())
+                {
+                  fetched.incrementAndGet();
+                }
+              }
+              finally
+              {
+                semaphore.release();
+              }
+
+              synchronized (monitor)
+              {
+                monitor.worked(1);
+              }
+            }
+          });
+        }
+
+        executor.shutdown();
+
+        try
+        {
+          while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS))
+          {
+            if (monitor.isCanceled())
+            {
+              executor.shutdownNow();
+              throw new OperationCanceledException();
+            }
+          }
+        }
+        catch (InterruptedException ex)
+        {
+          executor.shutdownNow();
+          Thread.currentThread().interrupt();
+        }
+      }, new NullProgressMonitor());
+    }
+    finally
+    {
+      executor.shutdownNow();
+      monitor.done();
+    }
+
+    if (monitor.isCanceled())
+    {
+      throw new OperationCanceledException();
+    }
+
+    return fetched.get();
+  }
+
+  private Map<String, List<Request>> getRequests(IProvisioningPlan plan)
+  {
+    List<IArtifactRepository> repositories = new ArrayList<>();
+    for (URI uri : sources)
+    {
+      try
+      {
+        repositories.add(manager.loadRepository(uri, null));
+      }
+      catch (ProvisionException ex)
+      {
+        // The collect phase reports the repositories that can't be loaded.
+      }
+    }
+
+    Set<IArtifactKey> keys = new LinkedHashSet<>();
+    for (IInstallableUnit iu : plan.getAdditions().query(QueryUtil.createIUAnyQuery(), null))
+    {
+      for (IArtifactKey key : iu.getArtifacts())
+      {
+        if (!target.contains(key))
+        {
+          keys.add(key);
+        }
+      }
+    }
+
+    Map<String, List<Request>> hostRequests = new LinkedHashMap<>();
+    for (IArtifactKey key : keys)
+    {
+      for (IArtifactRepository repository : repositories)
+      {
+        IArtifactRepository source = findSource(repository, key);
+        if (source != null)
+        {
+          URI location = source.getLocation();
+          String host = location.getHost();
+          if (host == null)
+          {
+            host = ""; //$NON-NLS-1$
+          }
+
+          List<Request> requests = hostRequests.get(host);
+          if (requests == null)
+          {
+            requests = new ArrayList<>();
+            hostRequests.put(host, requests);
+          }
+
+          requests.add(new Request(host, source, manager.createMirrorRequest(key, target, null, null)));
+          break;
+        }
+      }
+    }
+
+    return hostRequests;
+  }
+
+  /**
+   * Returns the simple repository that contains the given artifact, descending into the loaded children of composites.
+   */
+  private static IArtifactRepository findSource(IArtifactRepository repository, IArtifactKey key)
+  {
+    if (repository instanceof CompositeArtifactRepository)
+    {
+      for (IArtifactRepository child : ((CompositeArtifactRepository)repository).getLoadedChildren())
+      {
+        IArtifactRepository source = findSource(child, key);
+        if (source != null)
+        {
+          return source;
+        }
+      }
+
+      return null;
+    }
+
+    return repository.contains(key) ? repository : null;
+  }
+
+  /**
+   * @author Eike Stepper
+   */
+  private static final class Request
+  {
+    private final String host;
+
+    private final IArtifactRepository source;
+
+    private final IArtifactRequest request;
+
+    public Request(String host, IArtifactRepository source, IArtifactRequest request)
+    {
+      this.host = host;
+      this.source = source;
+      this.request = request;
+    }
+
+    public String getHost()
+    {
+      return host;
+    }
+
+    public boolean fetch()
+    {
+      try
+      {
+        return source.getArtifacts(new IArtifactRequest[] { request }, new NullProgressMonitor()).isOK();
+      }
+      catch (RuntimeException ex)
+      {
+        return false;
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      return request.toString();
+    }
+  }
+}
@@ -0,0 +1,601 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.p2.internal.core;
+
+import org.eclipse.oomph.util.IORuntimeException;
+import org.eclipse.oomph.util.IOUtil;
+import org.eclipse.oomph.util.PropertiesUtil;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Evicts files from the download cache of the {@link CachingTransport} so that it doesn't grow without bounds.
+ * <p>
+ * The times at which cache files are written or used are buffered in memory and appended to an access index beside the cache folder
+ * a few seconds after the first unsaved access; each sweep compacts the index.
+ * Several processes share the cache, so the index is only changed while its lock file is locked,
+ * and a cache file is only deleted while the {@link CachingTransport.URILock lock} of its URI is held.
+ * A cache file without an access record counts as used when a sweep first sees it,
+ * because the time stamp of a cache file is the one that the server supplied.
+ * A sweep deletes orphaned temporary files, then files that haven't been used for longer than the maximum age,
+ * and finally the least recently used files until the cache fits into the maximum size.
+ * The budget is configured with the system properties <code>oomph.p2.cache.max.size</code> (in megabytes)
+ * and <code>oomph.p2.cache.max.age</code> (in days); without a budget only the orphaned files are deleted.
+ * </p>
+ * <p>
+ * A sweep runs periodically in a background job of each process that uses a caching transport,
+ * and it can be run on demand as the <code>org.eclipse.oomph.p2.core.CacheSweeper</code> application:
+ * <pre>
+ *   -application org.eclipse.oomph.p2.core.CacheSweeper [-maxSize &lt;megabytes&gt;] [-maxAge &lt;days&gt;] [-cache &lt;folder&gt;]
+ * </pre>
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+@SuppressWarnings("nls")
+public final class CacheSweeper implements IApplication
+{
+  private static final String PROP_MAX_SIZE = "oomph.p2.cache.max.size";
+
+  private static final String PROP_MAX_AGE = "oomph.p2.cache.max.age";
+
+  private static final String ACCESS_INDEX_SUFFIX = ".access";
+
+  private static final String LOCK_SUFFIX = ".lock";
+
+  private static final String[] TEMPORARY_SUFFIXES = { CachingTransport.DOWNLOADING_SUFFIX, CachingTransport.RESUME_SUFFIX, ".linking" };
+
+  private static final long MEGABYTE = 1024L * 1024L;
+
+  private static final long ORPHAN_AGE = TimeUnit.DAYS.toMillis(1);
+
+  private static final long SWEEP_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+  private static final long SWEEP_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+  private static final long ACCESS_FLUSH_DELAY = TimeUnit.SECONDS.toMillis(10);
+
+  private static final Map<String, Long> ACCESSES = new ConcurrentHashMap<>();
+
+  /**
+   * The accesses that haven't been appended to the access index yet, per access index file.
+   */
+  private static final Map<File, Map<String, Long>> UNSAVED_ACCESSES = new ConcurrentHashMap<>();
+
+  private static final Job ACCESS_FLUSH_JOB = new Job(Messages.CacheSweeper_Recording_job)
+  {
+    @Override
+    protected IStatus run(IProgressMonitor monitor)
+    {
+      for (File accessIndexFile : UNSAVED_ACCESSES.keySet())
+      {
+        appendAccesses(accessIndexFile);
+      }
+
+      return Status.OK_STATUS;
+    }
+  };
+
+  static
+  {
+    ACCESS_FLUSH_JOB.setSystem(true);
+  }
+
+  private static final AtomicBoolean SCHEDULED = new AtomicBoolean();
+
+  private final File cacheFolder;
+
+  private final ContentStore contentStore;
+
+  private long maxSize;
+
+  private long maxAge;
+
+  private boolean verbose;
+
+  public CacheSweeper()
+  {
+    this(new File(P2CorePlugin.getUserStateFolder(new File(PropertiesUtil.getUserHome())), "cache"), null);
+  }
+
+  public CacheSweeper(File cacheFolder, ContentStore contentStore)
+  {
+    this.cacheFolder = cacheFolder;
+    this.contentStore = contentStore != null ? contentStore : new ContentStore(new File(cacheFolder, ContentStore.FOLDER_NAME));
+    maxSize = PropertiesUtil.getProperty(PROP_MAX_SIZE, 0) * MEGABYTE;
+    maxAge = TimeUnit.DAYS.toMillis(PropertiesUtil.getProperty(PROP_MAX_AGE, 0));
+  }
+
+  public long getMaxSize()
+  {
+    return maxSize;
+  }
+
+  public void setMaxSize(long maxSize)
+  {
+    this.maxSize = maxSize;
+  }
+
+  public long getMaxAge()
+  {
+    return maxAge;
+  }
+
+  public void setMaxAge(long maxAge)
+  {
+    this.maxAge = maxAge;
+  }
+
+  public File getAccessIndexFile()
+  {
+    return new File(cacheFolder.getPath() + ACCESS_INDEX_SUFFIX);
+  }
+
+  /**
+   * Merges the access times that have been recorded by this process into the access index and compacts it.
+   * Cache files that have no access time yet get the current time.
+   */
+  public Map<String, Long> saveAccessIndex()
+  {
+    File accessIndexFile = getAccessIndexFile();
+    Map<String, Long> accesses = new HashMap<>();
+
+    try (FileChannel channel = lockAccessIndex(accessIndexFile); FileLock lock = channel.lock())
+    {
+      saveAccessIndex(accessIndexFile, accesses);
+    }
+    catch (IOException ex)
+    {
+      // The access index only improves the eviction order.
+    }
+
+    return accesses;
+  }
+
+  private void saveAccessIndex(File accessIndexFile, Map<String, Long> accesses)
+  {
+    Map<String, Long> unsavedAccesses = UNSAVED_ACCESSES.get(accessIndexFile);
+    Map<String, Long> savedAccesses = unsavedAccesses == null ? Collections.<String, Long> emptyMap() : new HashMap<>(unsavedAccesses);
+
+    for (Map.Entry<String, String> entry : PropertiesUtil.getProperties(accessIndexFile).entrySet())
+    {
+      try
+      {
+        accesses.put(entry.getKey(), Long.parseLong(entry.getValue()));
+      }
+      catch (NumberFormatException ex)
+      {
+        //$FALL-THROUGH$
+      }
+    }
+
+    for (Map.Entry<String, Long> entry : ACCESSES.entrySet())
+    {
+      Long time = accesses.get(entry.getKey());
+      if (time == null || time < entry.getValue())
+      {
+        accesses.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    long now = System.currentTimeMillis();
+    Map<String, String> properties = new HashMap<>();
+    File[] children = cacheFolder.listFiles();
+    if (children != null)
+    {
+      for (File child : children)
+      {
+        if (child.isFile() && !isTemporary(child))
+        {
+          String name = child.getName();
+          Long time = accesses.get(name);
+          if (time == null)
+          {
+            time = now;
+            accesses.put(name, time);
+          }
+
+          properties.put(name, Long.toString(time));
+        }
+      }
+    }
+
+    try
+    {
+      PropertiesUtil.saveProperties(accessIndexFile, properties, true);
+    }
+    catch (IORuntimeException ex)
+    {
+      // The access index only improves the eviction order.
+      return;
+    }
+
+    // The accesses that have been recorded meanwhile are still unsaved.
+    if (unsavedAccesses != null)
+    {
+      for (Map.Entry<String, Long> entry : savedAccesses.entrySet())
+      {
+        unsavedAccesses.remove(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Deletes orphaned temporary files and evicts cache files according to the configured budget.
+   *
+   * @return the number of bytes that have been freed.
+   */
+  public long sweep()
+  {
+    final Map<String, Long> accesses = saveAccessIndex();
+    long now = System.currentTimeMillis();
+    long freed = 0;
+
+    List<File> files = new ArrayList<>();
+    File[] children = cacheFolder.listFiles();
+    if (children != null)
+    {
+      for (File child : children)
+      {
+        if (!child.isFile())
+        {
+          continue;
+        }
+
+        if (isTemporary(child))
+        {
+          // Partial downloads are kept as long as they can be resumed.
+          if (now - child.lastModified() > ORPHAN_AGE && !CachingTransport.isResumeState(child, now))
+          {
+            freed += delete(child);
+          }
+        }
+        else
+        {
+          files.add(child);
+        }
+      }
+    }
+
+    if (maxAge > 0 || maxSize > 0)
+    {
+      final Map<File, Long> accessTimes = new HashMap<>();
+      for (File file : files)
+      {
+        Long time = accesses.get(file.getName());
+        accessTimes.put(file, time != null ? time : now);
+      }
+
+      // Least recently used first.
+      Collections.sort(files, new Comparator<File>()
+      {
+        @Override
+        public int compare(File file1, File file2)
+        {
+          return Long.compare(accessTimes.get(file1), accessTimes.get(file2));
+        }
+      });
+
+      // Hard links to the same content, e.g., to the same blob of the content store, occupy their space only once.
+      Map<File, Object> fileKeys = new HashMap<>();
+      Map<Object, Integer> linkCounts = new HashMap<>();
+      long size = 0;
+      for (File file : files)
+      {
+        Object fileKey = getFileKey(file);
+        fileKeys.put(file, fileKey);
+
+        Integer linkCount = linkCounts.get(fileKey);
+        if (linkCount == null)
+        {
+          linkCount = 0;
+          size += file.length();
+        }
+
+        linkCounts.put(fileKey, linkCount + 1);
+      }
+
+      for (File file : files)
+      {
+        boolean expired = maxAge > 0 && now - accessTimes.get(file) > maxAge;
+        boolean overBudget = maxSize > 0 && size > maxSize;
+        if (!expired && !overBudget)
+        {
+          continue;
+        }
+
+        long length = file.length();
+        boolean lastLink = ContentStore.getLinkCount(file) <= 1;
+        if (evict(file) != 0 || !file.exists())
+        {
+          Object fileKey = fileKeys.get(file);
+          int linkCount = linkCounts.get(fileKey) - 1;
+          linkCounts.put(fileKey, linkCount);
+
+          if (linkCount == 0)
+          {
+            // The space of a file that is still linked from the content store is freed by its garbage collection below.
+            size -= length;
+          }
+
+          if (lastLink)
+          {
+            freed += length;
+          }
+        }
+      }
+    }
+
+    freed += contentStore.gc();
+
+    if (verbose)
+    {
+      System.out.println("Freed " + freed / MEGABYTE + " MB in " + cacheFolder);
+    }
+
+    return freed;
+  }
+
+  @Override
+  public Object start(IApplicationContext context) throws Exception
+  {
+    String[] args = (String[])context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+    LinkedList<String> arguments = new LinkedList<>(Arrays.asList(args));
+
+    CacheSweeper sweeper = this;
+    while (!arguments.isEmpty())
+    {
+      String arg = arguments.removeFirst();
+      if ("-maxSize".equalsIgnoreCase(arg))
+      {
+        maxSize = Long.parseLong(arguments.removeFirst()) * MEGABYTE;
+      }
+      else if ("-maxAge".equalsIgnoreCase(arg))
+      {
+        maxAge = TimeUnit.DAYS.toMillis(Long.parseLong(arguments.removeFirst()));
+      }
+      else if ("-cache".equalsIgnoreCase(arg))
+      {
+        sweeper = new CacheSweeper(new File(arguments.removeFirst()).getCanonicalFile(), null);
+      }
+    }
+
+    sweeper.maxSize = maxSize;
+    sweeper.maxAge = maxAge;
+    sweeper.verbose = true;
+    sweeper.sweep();
+    return null;
+  }
+
+  @Override
+  public void stop()
+  {
+  }
+
+  static void recordAccess(File cacheFile)
+  {
+    String name = cacheFile.getName();
+    long time = System.currentTimeMillis();
+    ACCESSES.put(name, time);
+
+    File accessIndexFile = new File(cacheFile.getParentFile().getPath() + ACCESS_INDEX_SUFFIX);
+    UNSAVED_ACCESSES.computeIfAbsent(accessIndexFile, key -> new ConcurrentHashMap<>()).put(name, time);
+
+    // The accesses of a burst, e.g., of all the index files of a repository, are appended at once.
+    if (ACCESS_FLUSH_JOB.getState() == Job.NONE)
+    {
+      ACCESS_FLUSH_JOB.schedule(ACCESS_FLUSH_DELAY);
+    }
+  }
+
+  /**
+   * Appends the unsaved accesses to the given access index, where entries that are appended later override the earlier ones when the index is loaded,
+   * so that other processes and later sessions see these accesses.
+   */
+  private static void appendAccesses(File accessIndexFile)
+  {
+    Map<String, Long> unsavedAccesses = UNSAVED_ACCESSES.get(accessIndexFile);
+    if (unsavedAccesses == null || unsavedAccesses.isEmpty())
+    {
+      return;
+    }
+
+    Map<String, Long> accesses = new HashMap<>(unsavedAccesses);
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, Long> entry : accesses.entrySet())
+    {
+      builder.append(escapeKey(entry.getKey())).append('=').append(entry.getValue()).append('\n');
+    }
+
+    try (FileChannel channel = lockAccessIndex(accessIndexFile); FileLock lock = channel.lock())
+    {
+      Writer writer = null;
+
+      try
+      {
+        writer = new OutputStreamWriter(new FileOutputStream(accessIndexFile, true), StandardCharsets.ISO_8859_1);
+        writer.write(builder.toString());
+        writer.close();
+        writer = null;
+      }
+      finally
+      {
+        IOUtil.closeSilent(writer);
+      }
+
+      for (Map.Entry<String, Long> entry : accesses.entrySet())
+      {
+        unsavedAccesses.remove(entry.getKey(), entry.getValue());
+      }
+    }
+    catch (IOException ex)
+    {
+      // The access index only improves the eviction order.
+    }
+  }
+
+  private static FileChannel lockAccessIndex(File accessIndexFile) throws IOException
+  {
+    File lockFile = new File(accessIndexFile.getPath() + LOCK_SUFFIX);
+    lockFile.getParentFile().mkdirs();
+    return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Schedules the periodic background sweep, once per process.
+   */
+  static void schedule(final CacheSweeper sweeper)
+  {
+    if (SCHEDULED.compareAndSet(false, true))
+    {
+      Job job = new Job(Messages.CacheSweeper_Sweeping_job)
+      {
+        @Override
+        protected IStatus run(IProgressMonitor monitor)
+        {
+          try
+          {
+            sweeper.sweep();
+          }
+          catch (Exception ex)
+          {
+            P2CorePlugin.INSTANCE.log(ex, IStatus.WARNING);
+          }
+
+          schedule(SWEEP_INTERVAL);
+          return Status.OK_STATUS;
+        }
+      };
+
+      job.setSystem(true);
+      job.schedule(SWEEP_DELAY);
+    }
+  }
+
+  private static boolean isTemporary(File file)
+  {
+    String name = file.getName();
+    for (String suffix : TEMPORARY_SUFFIXES)
+    {
+      if (name.endsWith(suffix))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static Object getFileKey(File file)
+  {
+    try
+    {
+      Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+      if (fileKey != null)
+      {
+        return fileKey;
+      }
+    }
+    catch (IOException ex)
+    {
+      //$FALL-THROUGH$
+    }
+
+    return file;
+  }
+
+  /**
+   * Escapes the given key like {@link java.util.Properties#store(java.io.Writer, String)} does.
+   */
+  private static String escapeKey(String key)
+  {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0, length = key.length(); i < length; i++)
+    {
+      char c = key.charAt(i);
+      if (c < 0x20 || c > 0x7e)
+      {
+        builder.append(String.format("\\u%04x", (int)c));
+      }
+      else
+      {
+        if (c == '\\' || c == '=' || c == ':' || c == '#' || c == '!' || c == ' ')
+        {
+          builder.append('\\');
+        }
+
+        builder.append(c);
+      }
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * Deletes the given cache file while the lock of its URI is held, so that no other thread of this process reads or replaces it meanwhile.
+   */
+  private static long evict(File file)
+  {
+    CachingTransport.URILock lock = CachingTransport.URILock.acquire(file);
+
+    try
+    {
+      synchronized (lock)
+      {
+        return delete(file);
+      }
+    }
+    finally
+    {
+      lock.release();
+    }
+  }
+
+  private static long delete(File file)
+  {
+    long length = file.length();
+    if (file.delete())
+    {
+      ACCESSES.remove(file.getName());
+      return length;
+    }
+
+    return 0;
+  }
+}
@@ -11,6 +11,7 @@
 package org.eclipse.oomph.p2.internal.core;
 
 import org.eclipse.oomph.util.CollectionUtil;
+import org.eclipse.oomph.util.DaemonThreadFactory;
 import org.eclipse.oomph.util.IORuntimeException;
 import org.eclipse.oomph.util.IOUtil;
 import org.eclipse.oomph.util.OfflineMode;
@@ -25,6 +26,7 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.URIUtil;
 import org.eclipse.equinox.internal.p2.artifact.repository.Activator;
 import org.eclipse.equinox.internal.p2.artifact.repository.ArtifactRepositoryManager;
 import org.eclipse.equinox.internal.p2.artifact.repository.MirrorSelector;
@@ -49,8 +51,18 @@ import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.repository.IRepository;
 import org.eclipse.osgi.util.NLS;
 
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.SAXParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -67,8 +79,17 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * @author Eike Stepper
@@ -117,8 +138,20 @@ public class CachingRepositoryManager<T>
 
   private static final String PROP_REPOSITORY_FAIL_PERMANENTLY = "oomph.p2.repository.fail.permanently"; //$NON-NLS-1$
 
+  private static final String PROP_REPOSITORY_PARALLEL_LOADS = "oomph.p2.repository.parallel.loads"; //$NON-NLS-1$
+
   private static final int MAX_RETRY = PropertiesUtil.getProperty(PROP_REPOSITORY_RETRY, 0);
 
+  private static final int PARALLEL_LOADS = PropertiesUtil.getProperty(PROP_REPOSITORY_PARALLEL_LOADS, 0);
+
+  private static final String COMPOSITE_PREFIX = "composite"; //$NON-NLS-1$
+
+  private static final long CANCELATION_POLL_INTERVAL = 100;
+
+  private static final ThreadLocal<Boolean> CHILD_LOADER = new ThreadLocal<>();
+
+  private static final ThreadFactory CHILD_LOADER_THREAD_FACTORY = new DaemonThreadFactory("Oomph Repository Loader"); //$NON-NLS-1$
+
   private static boolean betterMirrorSelection;
 
   private final AbstractRepositoryManager<T> delegate;
@@ -226,6 +259,11 @@ public class CachingRepositoryManager<T>
                 throw new OperationCanceledException();
               }
 
+              if (PARALLEL_LOADS > 0 && retry == 0 && suffixes[i].startsWith(COMPOSITE_PREFIX) && CHILD_LOADER.get() == null)
+              {
+                loadChildren(location, suffixes[i], sub);
+              }
+
               try
               {
                 result = loadRepository(location, suffixes[i], type, flags, sub.newChild(100));
@@ -298,6 +336,193 @@ public class CachingRepositoryManager<T>
     return result;
   }
 
+  /**
+   * Loads the children of the composite repository at the given location concurrently, with at most {@link #PARALLEL_LOADS} threads,
+   * so that p2, which loads the children of a composite one after the other, finds them already loaded.
+   * Failures are ignored because p2 will report them anyway when it loads the respective child.
+   * Children that are composites themselves load their own children sequentially to keep the number of threads bounded.
+   * Like the composite repositories of p2 do, children that weren't known before are disabled and marked as system repositories,
+   * so that they are neither presented to the user nor polled.
+   * The children see the cancelation of the given monitor, and the wait for them ends as soon as it's canceled.
+   */
+  private void loadChildren(final URI location, String suffix, final IProgressMonitor monitor)
+  {
+    final IProgressMonitor childMonitor = new NullProgressMonitor()
+    {
+      @Override
+      public boolean isCanceled()
+      {
+        return super.isCanceled() || monitor.isCanceled();
+      }
+    };
+
+    List<URI> children = getChildren(location, suffix, childMonitor);
+    if (children.size() < 2)
+    {
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLEL_LOADS, children.size()), CHILD_LOADER_THREAD_FACTORY);
+
+    try
+    {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final URI child : children)
+      {
+        futures.add(executor.submit(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            CHILD_LOADER.set(Boolean.TRUE);
+
+            try
+            {
+              boolean known = delegate.contains(child);
+              loadRepository(child, childMonitor, null, 0);
+
+              if (!known)
+              {
+                delegate.setEnabled(child, false);
+                delegate.setRepositoryProperty(child, IRepository.PROP_SYSTEM, Boolean.TRUE.toString());
+              }
+            }
+            catch (Exception ex)
+            {
+              //$FALL-THROUGH$
+            }
+            finally
+            {
+              CHILD_LOADER.remove();
+            }
+          }
+        }));
+      }
+
+      for (Future<?> future : futures)
+      {
+        for (;;)
+        {
+          if (monitor.isCanceled())
+          {
+            childMonitor.setCanceled(true);
+            throw new OperationCanceledException();
+          }
+
+          try
+          {
+            future.get(CANCELATION_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            break;
+          }
+          catch (TimeoutException ex)
+          {
+            //$FALL-THROUGH$
+          }
+          catch (ExecutionException ex)
+          {
+            break;
+          }
+        }
+      }
+    }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<URI> getChildren(URI location, String suffix, IProgressMonitor monitor)
+  {
+    final List<URI> children = new ArrayList<>();
+    if (transport == null)
+    {
+      return children;
+    }
+
+    try
+    {
+      String path = location.toString();
+      if (!path.endsWith("/")) //$NON-NLS-1$
+      {
+        path += "/"; //$NON-NLS-1$
+      }
+
+      final URI base = new URI(path);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      IStatus status = transport.download(base.resolve(suffix), out, monitor);
+      if (!status.isOK())
+      {
+        return children;
+      }
+
+      InputStream in = new ByteArrayInputStream(out.toByteArray());
+      if (suffix.endsWith(".jar")) //$NON-NLS-1$
+      {
+        String entryName = suffix.substring(0, suffix.length() - ".jar".length()) + ".xml"; //$NON-NLS-1$ //$NON-NLS-2$
+        ZipInputStream zipInputStream = new ZipInputStream(in);
+        for (ZipEntry entry; (entry = zipInputStream.getNextEntry()) != null;)
+        {
+          if (entryName.equals(entry.getName()))
+          {
+            in = zipInputStream;
+            break;
+          }
+        }
+
+        if (in != zipInputStream)
+        {
+          return children;
+        }
+      }
+      else if (!suffix.endsWith(".xml")) //$NON-NLS-1$
+      {
+        return children;
+      }
+
+      // The document comes from a remote server, so neither a document type nor external entities are processed.
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(false);
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true); //$NON-NLS-1$
+      factory.setFeature("http://xml.org/sax/features/external-general-entities", false); //$NON-NLS-1$
+      factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false); //$NON-NLS-1$
+      factory.newSAXParser().parse(in, new DefaultHandler()
+      {
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException
+        {
+          if ("child".equals(qName)) //$NON-NLS-1$
+          {
+            String childLocation = attributes.getValue("location"); //$NON-NLS-1$
+            if (childLocation != null)
+            {
+              try
+              {
+                children.add(URIUtil.makeAbsolute(new URI(childLocation.trim()), base));
+              }
+              catch (URISyntaxException ex)
+              {
+                //$FALL-THROUGH$
+              }
+            }
+          }
+        }
+      });
+    }
+    catch (Exception ex)
+    {
+      // It's just an optimization, so p2 will load the children sequentially.
+      children.clear();
+    }
+
+    return children;
+  }
+
   private File getCachedIndexFile(URI location)
   {
     try
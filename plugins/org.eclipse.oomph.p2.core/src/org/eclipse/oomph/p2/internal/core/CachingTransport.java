@@ -41,9 +41,14 @@ import java.lang.reflect.Method;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Eike Stepper
@@ -62,7 +67,24 @@ public class CachingTransport extends Transport
     }
   };
 
-  private static final Map<URI, Object> URI_LOCKS = new HashMap<>();
+  private static final String PROP_RESUMABLE_DOWNLOADS = "oomph.p2.download.resumable"; //$NON-NLS-1$
+
+  private static final boolean RESUMABLE_DOWNLOADS = !"false".equals(PropertiesUtil.getProperty(PROP_RESUMABLE_DOWNLOADS)); //$NON-NLS-1$
+
+  static final String DOWNLOADING_SUFFIX = ".downloading"; //$NON-NLS-1$
+
+  static final String RESUME_SUFFIX = ".resume"; //$NON-NLS-1$
+
+  /**
+   * The length from which a download is also written into a partial file, so that it can be resumed if it fails.
+   */
+  private static final long RESUMABLE_LENGTH = 1024L * 1024L;
+
+  /**
+   * The time after which a failed download is no longer resumed, but started over.
+   * The {@link CacheSweeper} keeps the partial file and its validator file for that long.
+   */
+  private static final long RESUME_AGE = TimeUnit.DAYS.toMillis(7);
 
   private static boolean DEBUG = false;
 
@@ -72,6 +94,8 @@ public class CachingTransport extends Transport
 
   private final File cacheFolder;
 
+  private final ContentStore contentStore;
+
   private Transport delegate;
 
   public CachingTransport(Transport delegate, IProvisioningAgent agent)
@@ -83,6 +107,9 @@ public class CachingTransport extends Transport
     File folder = P2CorePlugin.getUserStateFolder(new File(PropertiesUtil.getUserHome()));
     cacheFolder = new File(folder, "cache"); //$NON-NLS-1$
     cacheFolder.mkdirs();
+
+    contentStore = new ContentStore(new File(cacheFolder, ContentStore.FOLDER_NAME));
+    CacheSweeper.schedule(new CacheSweeper(cacheFolder, contentStore));
   }
 
   public final Transport getDelegate()
@@ -105,6 +132,11 @@ public class CachingTransport extends Transport
     return new File(cacheFolder, IOUtil.encodeFileName(uri.toString()));
   }
 
+  public ContentStore getContentStore()
+  {
+    return contentStore;
+  }
+
   @Override
   public IStatus download(URI uri, OutputStream target, IProgressMonitor monitor)
   {
@@ -142,7 +174,7 @@ public class CachingTransport extends Transport
           eventBus.publishEvent(new DownloadArtifactEvent(uri));
         }
 
-        status = delegate.download(uri, target, monitor);
+        status = RESUMABLE_DOWNLOADS && !"file".equals(uri.getScheme()) ? downloadResumable(uri, target, monitor) : delegate.download(uri, target, monitor); //$NON-NLS-1$
         return status;
       }
       finally
@@ -154,59 +186,57 @@ public class CachingTransport extends Transport
       }
     }
 
-    synchronized (getLock(uri))
+    File cacheFile = getCacheFile(uri);
+    URILock lock = URILock.acquire(cacheFile);
+
+    try
     {
-      File cacheFile = getCacheFile(uri);
-      if (cacheFile.length() > 0)
+      synchronized (lock)
       {
-        String path = uri.getSchemeSpecificPart();
-        if (OfflineMode.isEnabled() || !path.endsWith("/site.xml") && !path.endsWith("/digest.zip")) //$NON-NLS-1$ //$NON-NLS-2$
+        if (cacheFile.length() > 0)
         {
-          FileInputStream cacheInputStream = null;
-
-          try
+          String path = uri.getSchemeSpecificPart();
+          if (OfflineMode.isEnabled() || !path.endsWith("/site.xml") && !path.endsWith("/digest.zip")) //$NON-NLS-1$ //$NON-NLS-2$
           {
-            cacheInputStream = new FileInputStream(cacheFile);
-            IOUtil.copy(cacheInputStream, target);
-            removeLock(uri);
-            return Status.OK_STATUS;
-          }
-          catch (Exception ex)
-          {
-            //$FALL-THROUGH$
-          }
-          finally
-          {
-            IOUtil.closeSilent(cacheInputStream);
+            FileInputStream cacheInputStream = null;
+
+            try
+            {
+              cacheInputStream = new FileInputStream(cacheFile);
+              IOUtil.copy(cacheInputStream, target);
+              CacheSweeper.recordAccess(cacheFile);
+              return Status.OK_STATUS;
+            }
+            catch (Exception ex)
+            {
+              //$FALL-THROUGH$
+            }
+            finally
+            {
+              IOUtil.closeSilent(cacheInputStream);
+            }
           }
         }
-      }
 
-      // If the offline mode is not enabled we must make p2 and (for later) ourselves happy.
-      StatefulFileOutputStream statefulTarget = null;
-      FileInputStream cacheInputStream = null;
+        // If the offline mode is not enabled we must make p2 and (for later) ourselves happy.
+        PartialDownload partialDownload = null;
+        FileInputStream cacheInputStream = null;
 
-      try
-      {
-        cacheFile.getParentFile().mkdirs();
-        File tempCacheFile = new File(cacheFile.getPath() + ".downloading"); //$NON-NLS-1$
         try
         {
-          statefulTarget = new StatefulFileOutputStream(tempCacheFile);
-        }
-        catch (IOException ex)
-        {
-          // Can't open an output stream on the cache location.
-        }
-
-        IStatus status = delegate.download(uri, statefulTarget != null ? statefulTarget : target, monitor);
+          cacheFile.getParentFile().mkdirs();
+          File tempCacheFile = new File(cacheFile.getPath() + DOWNLOADING_SUFFIX);
+          partialDownload = new PartialDownload(uri, tempCacheFile);
 
-        // If we have a cached stateful target, we need to transfer the bytes into the original target.
-        if (statefulTarget != null)
-        {
-          IOUtil.closeSilent(statefulTarget);
-          if (status.isOK())
+          IStatus status = partialDownload.run(null, monitor);
+          if (status == null)
+          {
+            // Can't open an output stream on the cache location.
+            status = delegate.download(uri, target, monitor);
+          }
+          else if (status.isOK())
           {
+            // If we have a cached stateful target, we need to transfer the bytes into the original target.
             cacheFile.delete();
             tempCacheFile.renameTo(cacheFile);
 
@@ -214,13 +244,20 @@ public class CachingTransport extends Transport
             cacheInputStream = new FileInputStream(cacheFile);
             IOUtil.copy(cacheInputStream, target);
 
-            DownloadStatus downloadStatus = (DownloadStatus)status;
-            long lastModified = downloadStatus.getLastModified();
+            long lastModified = status instanceof DownloadStatus ? ((DownloadStatus)status).getLastModified() : -1;
             if (lastModified >= 0)
             {
               cacheFile.setLastModified(lastModified);
             }
 
+            CacheSweeper.recordAccess(cacheFile);
+
+            // Identical index files, e.g., of composite children or mirrors, are stored only once.
+            if (isSharable(cacheFile))
+            {
+              contentStore.share(cacheFile, cacheFile.lastModified());
+            }
+
             // Remove the other form that might be cached.
             String path = cacheFile.getPath();
             if (path.endsWith(".xml")) //$NON-NLS-1$
@@ -232,29 +269,82 @@ public class CachingTransport extends Transport
               new File(path.substring(0, path.length() - 4) + ".xml").delete(); //$NON-NLS-1$
             }
           }
-          else
+
+          return status;
+        }
+        catch (IOException ex)
+        {
+          throw new IORuntimeException(ex);
+        }
+        finally
+        {
+          if (target instanceof IStateful && partialDownload != null && partialDownload.isOpened())
           {
-            IOUtil.deleteBestEffort(tempCacheFile);
+            ((IStateful)target).setStatus(partialDownload.getStreamStatus());
           }
+
+          IOUtil.closeSilent(cacheInputStream);
         }
+      }
+    }
+    finally
+    {
+      lock.release();
+    }
+  }
 
-        return status;
+  /**
+   * Downloads an artifact into the target and, if it's large, at the same time into a partial file in the cache folder,
+   * so that a download that fails halfway can be resumed by the next attempt.
+   * The partial file is deleted as soon as the download succeeds.
+   * Only a resumed download is completed in the partial file and then copied into the target,
+   * because the server might ignore the range request.
+   */
+  private IStatus downloadResumable(URI uri, OutputStream target, IProgressMonitor monitor)
+  {
+    File partialFile = new File(getCacheFile(uri).getPath() + DOWNLOADING_SUFFIX);
+    PartialDownload partialDownload = new PartialDownload(uri, partialFile);
+    FileInputStream partialInputStream = null;
+    boolean delete = false;
+
+    try
+    {
+      IStatus status = partialDownload.run(target, monitor);
+      if (status == null)
+      {
+        // Another thread or process is downloading the same artifact, so don't share the partial file.
+        return delegate.download(uri, target, monitor);
       }
-      catch (IOException ex)
+
+      if (target instanceof IStateful)
       {
-        throw new IORuntimeException(ex);
+        ((IStateful)target).setStatus(partialDownload.getStreamStatus());
       }
-      finally
+
+      if (status.isOK())
       {
-        if (target instanceof IStateful && statefulTarget != null)
+        if (!partialDownload.isTargetWritten())
         {
-          ((IStateful)target).setStatus(statefulTarget.getStatus());
+          partialInputStream = new FileInputStream(partialFile);
+          IOUtil.copy(partialInputStream, target);
         }
 
-        IOUtil.closeSilent(cacheInputStream);
-        IOUtil.closeSilent(statefulTarget);
+        delete = true;
+      }
+
+      return status;
+    }
+    catch (IOException ex)
+    {
+      throw new IORuntimeException(ex);
+    }
+    finally
+    {
+      IOUtil.closeSilent(partialInputStream);
 
-        removeLock(uri);
+      if (delete)
+      {
+        partialFile.delete();
       }
     }
   }
@@ -263,13 +353,12 @@ public class CachingTransport extends Transport
   @Deprecated
   public IStatus download(URI uri, OutputStream target, long startPos, IProgressMonitor monitor)
   {
-    if (startPos <= -1)
+    if (startPos <= 0)
     {
       return download(uri, target, monitor);
     }
 
-    throw new UnsupportedOperationException(
-        "Positional downloads are actually never called from p2 code and thus disabled by default, please use the method without a position instead."); //$NON-NLS-1$
+    return delegate.download(uri, target, startPos, monitor);
   }
 
   @Override
@@ -428,11 +517,7 @@ public class CachingTransport extends Transport
     }
     catch (FileNotFoundException ex)
     {
-      synchronized (getLock(uri))
-      {
-        cacheFile.delete();
-      }
-
+      deleteCacheFile(cacheFile);
       throw ex;
     }
 
@@ -443,10 +528,7 @@ public class CachingTransport extends Transport
 
     if (cacheFile.lastModified() != lastModified || lastModified == 0)
     {
-      synchronized (getLock(uri))
-      {
-        cacheFile.delete();
-      }
+      deleteCacheFile(cacheFile);
       return lastModified - 1;
     }
 
@@ -464,16 +546,21 @@ public class CachingTransport extends Transport
     return false;
   }
 
-  private synchronized Object getLock(URI uri)
+  private static void deleteCacheFile(File cacheFile)
   {
-    Object result = URI_LOCKS.get(uri);
-    if (result == null)
+    URILock lock = URILock.acquire(cacheFile);
+
+    try
+    {
+      synchronized (lock)
+      {
+        cacheFile.delete();
+      }
+    }
+    finally
     {
-      result = new Object();
-      URI_LOCKS.put(uri, result);
+      lock.release();
     }
-
-    return result;
   }
 
   @Override
@@ -489,9 +576,11 @@ public class CachingTransport extends Transport
     }
   }
 
-  private synchronized void removeLock(URI uri)
+  private static boolean isSharable(File cacheFile)
   {
-    URI_LOCKS.remove(uri);
+    // The p2.index files are modified in place by the CachingRepositoryManager, so they must never be hard links.
+    String name = cacheFile.getName();
+    return name.endsWith(".jar") || name.endsWith(".xml") || name.endsWith(".xz"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
   }
 
   private static boolean isLoadingRepository(URI uri)
@@ -554,6 +643,47 @@ public class CachingTransport extends Transport
     }
   }
 
+  /**
+   * The lock that guards the cache file of a URI.
+   * It exists only as long as threads use it, and it's acquired and released atomically per URI,
+   * so that downloads of different URIs never wait for each other.
+   * It's identified by the cache file, which the URI determines, so that the {@link CacheSweeper} can acquire it, too.
+   *
+   * @author Eike Stepper
+   */
+  static final class URILock
+  {
+    private static final Map<File, URILock> LOCKS = new ConcurrentHashMap<>();
+
+    private final File cacheFile;
+
+    private int users;
+
+    private URILock(File cacheFile)
+    {
+      this.cacheFile = cacheFile;
+    }
+
+    public static URILock acquire(File cacheFile)
+    {
+      return LOCKS.compute(cacheFile, (key, lock) ->
+      {
+        if (lock == null)
+        {
+          lock = new URILock(key);
+        }
+
+        ++lock.users;
+        return lock;
+      });
+    }
+
+    public void release()
+    {
+      LOCKS.computeIfPresent(cacheFile, (key, lock) -> --lock.users == 0 ? null : lock);
+    }
+  }
+
   /**
    * @author Eike Stepper
    */
@@ -580,6 +710,334 @@ public class CachingTransport extends Transport
     }
   }
 
+  /**
+   * Returns whether the given partial file or validator file is still needed,
+   * i.e., whether the partial file is being downloaded or whether a failed download can still be resumed from it.
+   */
+  static boolean isResumeState(File file, long now)
+  {
+    String path = file.getPath();
+    File partialFile;
+    File validatorFile;
+    if (path.endsWith(RESUME_SUFFIX))
+    {
+      partialFile = new File(path.substring(0, path.length() - RESUME_SUFFIX.length()));
+      validatorFile = file;
+    }
+    else if (path.endsWith(DOWNLOADING_SUFFIX))
+    {
+      partialFile = file;
+      validatorFile = new File(path + RESUME_SUFFIX);
+    }
+    else
+    {
+      return false;
+    }
+
+    if (partialFile.length() > 0 && validatorFile.isFile() && now - validatorFile.lastModified() <= RESUME_AGE)
+    {
+      return true;
+    }
+
+    // A download holds the lock of its partial file while it's running.
+    try (FileChannel channel = FileChannel.open(partialFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+    {
+      FileLock lock = channel.tryLock();
+      if (lock == null)
+      {
+        return true;
+      }
+
+      lock.release();
+      return false;
+    }
+    catch (OverlappingFileLockException ex)
+    {
+      return true;
+    }
+    catch (IOException ex)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * A download into a partial file that is kept when a large download fails, together with a validator file that records the remote file's ETag or time stamp.
+   * The next attempt resumes the download with a range request whose <code>If-Range</code> header is the validator,
+   * so that the server sends the whole file instead if it has changed meanwhile.
+   *
+   * @author Eike Stepper
+   */
+  private final class PartialDownload
+  {
+    private final URI uri;
+
+    private final File file;
+
+    private final File validatorFile;
+
+    private boolean opened;
+
+    private boolean targetWritten;
+
+    private IStatus streamStatus;
+
+    public PartialDownload(URI uri, File file)
+    {
+      this.uri = uri;
+      this.file = file;
+      validatorFile = new File(file.getPath() + RESUME_SUFFIX);
+    }
+
+    public boolean isOpened()
+    {
+      return opened;
+    }
+
+    public IStatus getStreamStatus()
+    {
+      return streamStatus;
+    }
+
+    /**
+     * Returns whether the downloaded bytes have been written into the target that was passed to {@link #run(OutputStream, IProgressMonitor) run()}.
+     */
+    public boolean isTargetWritten()
+    {
+      return targetWritten;
+    }
+
+    /**
+     * Downloads the file from its start, or resumes the download of the partial file.
+     * If a target is given and the download starts from the start, the downloaded bytes are written into the target as well,
+     * and only into the partial file if the download is large enough to be worth resuming.
+     *
+     * @return the status of the download, or <code>null</code> if the partial file could not be opened exclusively.
+     */
+    public IStatus run(OutputStream target, IProgressMonitor monitor)
+    {
+      String resumeValidator = RESUMABLE_DOWNLOADS ? getResumeValidator() : null;
+      long position = resumeValidator == null ? 0 : file.length();
+
+      StatefulFileOutputStream out = null;
+      TeeOutputStream tee = null;
+      DownloadExchange exchange;
+      IStatus status;
+
+      try
+      {
+        try
+        {
+          // Append mode, so that opening the file doesn't truncate it before we own the lock.
+          out = new StatefulFileOutputStream(file, true);
+          if (out.getChannel().tryLock() == null)
+          {
+            IOUtil.closeSilent(out);
+            return null;
+          }
+
+          if (position == 0)
+          {
+            out.getChannel().truncate(0);
+          }
+        }
+        catch (IOException | OverlappingFileLockException ex)
+        {
+          IOUtil.closeSilent(out);
+          return null;
+        }
+
+        opened = true;
+        exchange = new DownloadExchange(resumeValidator, out.getChannel());
+
+        StatefulFileOutputStream fileStream = out;
+        if (position > 0)
+        {
+          status = exchange.run(() -> delegate.download(uri, fileStream, position, monitor));
+        }
+        else if (target != null)
+        {
+          targetWritten = true;
+          TeeOutputStream teeStream = new TeeOutputStream(fileStream, target, exchange);
+          tee = teeStream;
+          status = exchange.run(() -> delegate.download(uri, teeStream, monitor));
+        }
+        else
+        {
+          status = exchange.run(() -> delegate.download(uri, fileStream, monitor));
+        }
+      }
+      finally
+      {
+        IOUtil.closeSilent(out);
+        if (out != null)
+        {
+          streamStatus = out.getStatus();
+        }
+      }
+
+      if (status.isOK())
+      {
+        validatorFile.delete();
+
+        // The server has sent the whole file, which has replaced the partial file, so the target still needs it.
+        if (position > 0 && exchange.isRangeIgnored() && target != null)
+        {
+          targetWritten = false;
+        }
+      }
+      else if (!RESUMABLE_DOWNLOADS || tee != null && tee.isFileDiscarded() || !saveValidator(exchange, position))
+      {
+        IOUtil.deleteBestEffort(file);
+        validatorFile.delete();
+      }
+
+      return status;
+    }
+
+    private String getResumeValidator()
+    {
+      if (file.length() > 0 && validatorFile.isFile() && System.currentTimeMillis() - validatorFile.lastModified() <= RESUME_AGE)
+      {
+        try
+        {
+          String validator = IOUtil.readUTF8(validatorFile).trim();
+          if (validator.length() != 0)
+          {
+            return validator;
+          }
+        }
+        catch (Exception ex)
+        {
+          //$FALL-THROUGH$
+        }
+      }
+
+      validatorFile.delete();
+      return null;
+    }
+
+    /**
+     * Records the validator that the server has sent with the failed download, if the partial file is worth resuming.
+     */
+    private boolean saveValidator(DownloadExchange exchange, long position)
+    {
+      String validator = exchange.getValidator();
+      boolean resumed = position > 0 && !exchange.isRangeIgnored();
+      if (validator != null && file.length() > 0 && (resumed || exchange.getContentLength() >= RESUMABLE_LENGTH))
+      {
+        try
+        {
+          IOUtil.writeUTF8(validatorFile, validator);
+          return true;
+        }
+        catch (Exception ex)
+        {
+          //$FALL-THROUGH$
+        }
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * Writes the downloaded bytes into the target and, if the download is large enough to be worth resuming, into the partial file.
+   * The partial file is only needed to resume a failed download, so a failure to write it doesn't fail the download.
+   *
+   * @author Eike Stepper
+   */
+  private static final class TeeOutputStream extends OutputStream implements IStateful
+  {
+    private final StatefulFileOutputStream file;
+
+    private final OutputStream target;
+
+    private final DownloadExchange exchange;
+
+    private Boolean fileWritten;
+
+    public TeeOutputStream(StatefulFileOutputStream file, OutputStream target, DownloadExchange exchange)
+    {
+      this.file = file;
+      this.target = target;
+      this.exchange = exchange;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      target.write(b);
+
+      if (isFileWritten())
+      {
+        try
+        {
+          file.write(b);
+        }
+        catch (IOException ex)
+        {
+          fileWritten = false;
+        }
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      target.write(b, off, len);
+
+      if (isFileWritten())
+      {
+        try
+        {
+          file.write(b, off, len);
+        }
+        catch (IOException ex)
+        {
+          fileWritten = false;
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+      target.flush();
+    }
+
+    /**
+     * Returns whether the partial file doesn't contain all the bytes that have been written into the target.
+     */
+    public boolean isFileDiscarded()
+    {
+      return !Boolean.TRUE.equals(fileWritten);
+    }
+
+    private boolean isFileWritten()
+    {
+      // The response headers are known before the first bytes arrive.
+      if (fileWritten == null)
+      {
+        fileWritten = exchange.getValidator() != null && exchange.getContentLength() >= RESUMABLE_LENGTH;
+      }
+
+      return fileWritten;
+    }
+
+    @Override
+    public IStatus getStatus()
+    {
+      return file.getStatus();
+    }
+
+    @Override
+    public void setStatus(IStatus status)
+    {
+      file.setStatus(status);
+    }
+  }
+
   /**
    * @author Eike Stepper
    */
@@ -587,9 +1045,9 @@ public class CachingTransport extends Transport
   {
     private IStatus status;
 
-    public StatefulFileOutputStream(File file) throws FileNotFoundException
+    public StatefulFileOutputStream(File file, boolean append) throws FileNotFoundException
     {
-      super(file);
+      super(file, append);
     }
 
     @Override
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.p2.internal.core;
+
+import org.eclipse.oomph.util.HexUtil;
+import org.eclipse.oomph.util.IORuntimeException;
+import org.eclipse.oomph.util.IOUtil;
+import org.eclipse.oomph.util.PropertiesUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A content-addressed store for the files that are cached by the {@link CachingTransport}.
+ * <p>
+ * Identical files that are downloaded from different locations, e.g., from mirrors or from the children of several composites,
+ * are stored only once in a blob that is named by the SHA-256 digest of its contents.
+ * The cache files become hard links to these blobs, so the link count of a blob is its reference count
+ * and a blob that is no longer referenced by any cache file can be {@link #gc() collected}.
+ * Where the file system doesn't support hard links the cache files are simply left as they are.
+ * Where it supports hard links but doesn't report link counts, e.g., on Windows,
+ * a references index in the store records which cache files are linked to which blob.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+public final class ContentStore
+{
+  public static final String FOLDER_NAME = "blobs"; //$NON-NLS-1$
+
+  private static final String PROP_DISABLED = "oomph.p2.cache.content.store.disabled"; //$NON-NLS-1$
+
+  private static final boolean DISABLED = PropertiesUtil.isProperty(PROP_DISABLED);
+
+  private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+  private static final String LINKING_SUFFIX = ".linking"; //$NON-NLS-1$
+
+  private static final String REFERENCES_FILE_NAME = "references.index"; //$NON-NLS-1$
+
+  private static final String LOCK_SUFFIX = ".lock"; //$NON-NLS-1$
+
+  private final File folder;
+
+  private final File referencesFile;
+
+  public ContentStore(File folder)
+  {
+    this.folder = folder;
+    referencesFile = new File(folder, REFERENCES_FILE_NAME);
+  }
+
+  public File getFolder()
+  {
+    return folder;
+  }
+
+  /**
+   * Replaces the given cache file with a hard link to the blob with the same contents,
+   * or adds the given cache file as a new blob if no such blob exists yet.
+   * <p>
+   * The last modified time stamp is part of the blob's identity because all hard links to a blob share it
+   * and the {@link CachingTransport} uses it to validate its cache files against the remote files.
+   * </p>
+   *
+   * @return the digest of the file's contents, or <code>null</code> if the file could not be shared.
+   */
+  public String share(File file, long lastModified)
+  {
+    if (DISABLED)
+    {
+      return null;
+    }
+
+    try
+    {
+      String digest = getDigest(file);
+      File blob = getBlob(digest, lastModified);
+      Path blobPath = blob.toPath();
+      Path path = file.toPath();
+
+      if (blob.isFile())
+      {
+        if (blob.length() != file.length())
+        {
+          return null;
+        }
+
+        if (Files.isSameFile(blobPath, path))
+        {
+          return digest;
+        }
+
+        Path linkingPath = new File(file.getPath() + LINKING_SUFFIX).toPath();
+        Files.deleteIfExists(linkingPath);
+        Files.createLink(linkingPath, blobPath);
+
+        try
+        {
+          Files.move(linkingPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex)
+        {
+          Files.deleteIfExists(linkingPath);
+          throw ex;
+        }
+      }
+      else
+      {
+        blob.getParentFile().mkdirs();
+
+        try
+        {
+          Files.createLink(blobPath, path);
+        }
+        catch (FileAlreadyExistsException ex)
+        {
+          // Another process has added the same blob concurrently; the next download will link to it.
+          return digest;
+        }
+      }
+
+      if (getLinkCount(blob) < 0)
+      {
+        addReference(file, blob);
+      }
+
+      return digest;
+    }
+    catch (IOException | UnsupportedOperationException | SecurityException ex)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Deletes all blobs that are no longer referenced by any cache file.
+   * A blob whose link count isn't known is referenced by the cache files that the references index records for it,
+   * as long as they're still linked to it.
+   *
+   * @return the number of bytes that have been freed.
+   */
+  public long gc()
+  {
+    long freed = 0;
+    Map<String, List<File>> references = null;
+    Set<String> referencedBlobNames = new HashSet<>();
+
+    File[] buckets = folder.listFiles();
+    if (buckets != null)
+    {
+      for (File bucket : buckets)
+      {
+        File[] blobs = bucket.listFiles();
+        if (blobs != null)
+        {
+          for (File blob : blobs)
+          {
+            int linkCount = getLinkCount(blob);
+            if (linkCount < 0)
+            {
+              if (references == null)
+              {
+                references = getReferences();
+              }
+
+              if (isReferenced(blob, references.get(blob.getName())))
+              {
+                referencedBlobNames.add(blob.getName());
+                continue;
+              }
+            }
+            else if (linkCount != 1)
+            {
+              continue;
+            }
+
+            long length = blob.length();
+            if (blob.delete())
+            {
+              freed += length;
+            }
+          }
+
+          bucket.delete();
+        }
+      }
+    }
+
+    if (references != null)
+    {
+      retainReferences(referencedBlobNames);
+    }
+
+    return freed;
+  }
+
+  /**
+   * Returns the cache files that the references index records, per blob name.
+   */
+  private Map<String, List<File>> getReferences()
+  {
+    Map<String, List<File>> references = new HashMap<>();
+    File cacheFolder = folder.getParentFile();
+
+    for (Map.Entry<String, String> entry : PropertiesUtil.getProperties(referencesFile).entrySet())
+    {
+      references.computeIfAbsent(entry.getValue(), key -> new ArrayList<>()).add(new File(cacheFolder, entry.getKey()));
+    }
+
+    return references;
+  }
+
+  private static boolean isReferenced(File blob, List<File> files)
+  {
+    if (files != null)
+    {
+      for (File file : files)
+      {
+        try
+        {
+          if (file.isFile() && Files.isSameFile(file.toPath(), blob.toPath()))
+          {
+            return true;
+          }
+        }
+        catch (IOException ex)
+        {
+          //$FALL-THROUGH$
+        }
+      }
+    }
+
+    return false;
+  }
+
+  private void addReference(File file, File blob)
+  {
+    updateReferences(references -> references.put(file.getName(), blob.getName()));
+  }
+
+  private void retainReferences(Set<String> blobNames)
+  {
+    updateReferences(references -> references.values().retainAll(blobNames));
+  }
+
+  /**
+   * Updates the references index while its lock file is locked, because the processes that share the cache share the index, too.
+   */
+  private void updateReferences(Consumer<Map<String, String>> updater)
+  {
+    File lockFile = new File(referencesFile.getPath() + LOCK_SUFFIX);
+    lockFile.getParentFile().mkdirs();
+
+    try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE); FileLock lock = channel.lock())
+    {
+      Map<String, String> references = PropertiesUtil.getProperties(referencesFile);
+      updater.accept(references);
+      PropertiesUtil.saveProperties(referencesFile, references, true);
+    }
+    catch (IOException | IORuntimeException ex)
+    {
+      // Without the index, unreferenced blobs are collected only where link counts are known.
+    }
+  }
+
+  private File getBlob(String digest, long lastModified)
+  {
+    return new File(new File(folder, digest.substring(0, 2)), digest + "-" + lastModified); //$NON-NLS-1$
+  }
+
+  static int getLinkCount(File file)
+  {
+    try
+    {
+      return (Integer)Files.getAttribute(file.toPath(), "unix:nlink"); //$NON-NLS-1$
+    }
+    catch (IOException | UnsupportedOperationException | IllegalArgumentException ex)
+    {
+      // Without link counts we can't tell whether a blob is still referenced.
+      return -1;
+    }
+  }
+
+  private static String getDigest(File file) throws IOException
+  {
+    MessageDigest digest;
+
+    try
+    {
+      digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+    catch (NoSuchAlgorithmException ex)
+    {
+      throw new IOException(ex);
+    }
+
+    InputStream in = null;
+
+    try
+    {
+      in = new FileInputStream(file);
+
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) != -1)
+      {
+        digest.update(buffer, 0, n);
+      }
+    }
+    finally
+    {
+      IOUtil.closeSilent(in);
+    }
+
+    return HexUtil.bytesToHex(digest.digest());
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.p2.internal.core;
+
+import org.eclipse.ecf.filetransfer.IFileRangeSpecification;
+import org.eclipse.ecf.filetransfer.IFileTransferListener;
+import org.eclipse.ecf.filetransfer.IRetrieveFileTransferOptions;
+import org.eclipse.ecf.filetransfer.IncomingFileTransferException;
+import org.eclipse.ecf.filetransfer.events.IIncomingFileTransferReceiveStartEvent;
+import org.eclipse.ecf.filetransfer.identity.IFileID;
+import org.eclipse.ecf.provider.filetransfer.retrieve.MultiProtocolRetrieveAdapter;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The HTTP headers of a download that the {@link CachingTransport} needs to resume it later.
+ * <p>
+ * p2's transport doesn't expose the headers, so the {@link RetrieveAdapter retrieve adapter} that Oomph registers with ECF
+ * sends the <code>If-Range</code> header of the download that's {@link #run(Supplier) running} in the current thread
+ * and records the response's <code>Content-Length</code> and <code>ETag</code> or <code>Last-Modified</code> header.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+final class DownloadExchange
+{
+  private static final ThreadLocal<DownloadExchange> CURRENT = new ThreadLocal<>();
+
+  private static final String IF_RANGE = "If-Range"; //$NON-NLS-1$
+
+  private static final String CONTENT_RANGE = "Content-Range"; //$NON-NLS-1$
+
+  private static final String ETAG = "ETag"; //$NON-NLS-1$
+
+  private static final String LAST_MODIFIED = "Last-Modified"; //$NON-NLS-1$
+
+  private static final String WEAK_ETAG_PREFIX = "W/"; //$NON-NLS-1$
+
+  private final String ifRange;
+
+  private final FileChannel partialChannel;
+
+  private volatile long contentLength = -1;
+
+  private volatile String validator;
+
+  private volatile boolean rangeIgnored;
+
+  /**
+   * Creates an exchange for a download from the start, or for a range request that's only served if the remote file still matches the given validator.
+   * If the server sends the whole file instead, the given partial file is truncated before the bytes are appended to it.
+   */
+  public DownloadExchange(String ifRange, FileChannel partialChannel)
+  {
+    this.ifRange = ifRange;
+    this.partialChannel = partialChannel;
+  }
+
+  /**
+   * Returns the length of the downloaded file, or <code>-1</code> if the server didn't send it.
+   */
+  public long getContentLength()
+  {
+    return contentLength;
+  }
+
+  /**
+   * Returns the value of an <code>If-Range</code> header that can resume the download, or <code>null</code> if the server didn't send a validator.
+   */
+  public String getValidator()
+  {
+    return validator;
+  }
+
+  /**
+   * Returns whether the server has sent the whole file although a range was requested.
+   */
+  public boolean isRangeIgnored()
+  {
+    return rangeIgnored;
+  }
+
+  /**
+   * Returns the result of the given download, whose requests take part in this exchange.
+   */
+  public <T> T run(Supplier<T> download)
+  {
+    DownloadExchange previous = CURRENT.get();
+    CURRENT.set(this);
+
+    try
+    {
+      return download.get();
+    }
+    finally
+    {
+      CURRENT.set(previous);
+    }
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private Map addRequestHeaders(IFileRangeSpecification rangeSpecification, Map options)
+  {
+    if (rangeSpecification == null || ifRange == null)
+    {
+      return options;
+    }
+
+    Map result = options == null ? new HashMap<>() : new HashMap<>(options);
+    Map<String, String> headers = new HashMap<>();
+    Object requestHeaders = result.get(IRetrieveFileTransferOptions.REQUEST_HEADERS);
+    if (requestHeaders instanceof Map)
+    {
+      headers.putAll((Map<String, String>)requestHeaders);
+    }
+
+    headers.put(IF_RANGE, ifRange);
+    result.put(IRetrieveFileTransferOptions.REQUEST_HEADERS, headers);
+    return result;
+  }
+
+  private void received(IIncomingFileTransferReceiveStartEvent event, boolean ranged)
+  {
+    Map<?, ?> headers = event.getResponseHeaders();
+
+    if (ranged)
+    {
+      // Without a Content-Range the server sends the whole file, e.g., because the If-Range validator doesn't match anymore.
+      rangeIgnored = headers == null || getHeader(headers, CONTENT_RANGE) == null;
+      if (rangeIgnored && partialChannel != null)
+      {
+        try
+        {
+          partialChannel.truncate(0);
+        }
+        catch (IOException ex)
+        {
+          //$FALL-THROUGH$
+        }
+      }
+    }
+
+    if (!ranged || rangeIgnored)
+    {
+      contentLength = event.getSource().getFileLength();
+    }
+
+    if (headers != null)
+    {
+      // If-Range requires a strong validator.
+      String etag = getHeader(headers, ETAG);
+      validator = etag != null && !etag.startsWith(WEAK_ETAG_PREFIX) ? etag : getHeader(headers, LAST_MODIFIED);
+    }
+  }
+
+  private static String getHeader(Map<?, ?> headers, String name)
+  {
+    for (Map.Entry<?, ?> entry : headers.entrySet())
+    {
+      if (name.equalsIgnoreCase(String.valueOf(entry.getKey())))
+      {
+        Object value = entry.getValue();
+        return value == null ? null : value.toString();
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * A retrieve adapter that lets the {@link DownloadExchange} of the current thread take part in its requests.
+   *
+   * @author Eike Stepper
+   */
+  static final class RetrieveAdapter extends MultiProtocolRetrieveAdapter
+  {
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void sendRetrieveRequest(IFileID remoteFileID, IFileTransferListener transferListener, Map options) throws IncomingFileTransferException
+    {
+      sendRetrieveRequest(remoteFileID, null, transferListener, options);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void sendRetrieveRequest(IFileID remoteFileID, IFileRangeSpecification rangeSpecification, IFileTransferListener transferListener, Map options)
+        throws IncomingFileTransferException
+    {
+      DownloadExchange exchange = CURRENT.get();
+      if (exchange == null)
+      {
+        super.sendRetrieveRequest(remoteFileID, rangeSpecification, transferListener, options);
+        return;
+      }
+
+      boolean ranged = rangeSpecification != null;
+      super.sendRetrieveRequest(remoteFileID, rangeSpecification, event -> {
+        if (event instanceof IIncomingFileTransferReceiveStartEvent)
+        {
+          exchange.received((IIncomingFileTransferReceiveStartEvent)event, ranged);
+        }
+
+        transferListener.handleTransferEvent(event);
+      }, exchange.addRequestHeaders(rangeSpecification, options));
+    }
+  }
+}
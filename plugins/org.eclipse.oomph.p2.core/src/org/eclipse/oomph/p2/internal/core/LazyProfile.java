@@ -41,6 +41,11 @@ public final class LazyProfile extends org.eclipse.equinox.internal.p2.engine.Pr
 
   private SoftReference<org.eclipse.equinox.internal.p2.engine.Profile> delegate;
 
+  /**
+   * The summary that answers the queries of the summarized properties until the delegate is loaded, or <code>null</code>.
+   */
+  private ProfileSummaryIndex.Summary summary;
+
   private org.eclipse.equinox.internal.p2.engine.Profile parent;
 
   /**
@@ -50,10 +55,30 @@ public final class LazyProfile extends org.eclipse.equinox.internal.p2.engine.Pr
   private org.eclipse.equinox.internal.p2.engine.Profile self;
 
   public LazyProfile(LazyProfileRegistry registry, String profileId, File profileDirectory)
+  {
+    this(registry, profileId, profileDirectory, null);
+  }
+
+  public LazyProfile(LazyProfileRegistry registry, String profileId, File profileDirectory, ProfileSummaryIndex.Summary summary)
   {
     super(registry.getProvisioningAgent(), profileId, null, null);
     this.registry = registry;
     this.profileDirectory = profileDirectory;
+    this.summary = summary;
+  }
+
+  public File getProfileDirectory()
+  {
+    return profileDirectory;
+  }
+
+  /**
+   * Returns the summary of this profile if the delegate isn't loaded, or <code>null</code>.
+   * Once the delegate is loaded, the summary is discarded because the delegate might be changed.
+   */
+  public synchronized ProfileSummaryIndex.Summary getSummary()
+  {
+    return summary;
   }
 
   public synchronized org.eclipse.equinox.internal.p2.engine.Profile getDelegate(boolean loadOnDemand)
@@ -83,6 +108,7 @@ public final class LazyProfile extends org.eclipse.equinox.internal.p2.engine.Pr
 
     referent.setParent(parent);
     delegate = new SoftReference<>(referent);
+    summary = null;
 
     // Keep a strong reference to the referenced profile if this is the self profile.
     if (getProfileId().equals(registry.self))
@@ -155,14 +181,26 @@ public final class LazyProfile extends org.eclipse.equinox.internal.p2.engine.Pr
   @Override
   public String getProperty(String key)
   {
+    ProfileSummaryIndex.Summary summary = getSummary();
+    if (summary != null && summary.isSummarized(key))
+    {
+      Map<String, String> properties = summary.getProperties();
+
+      // Only updateRoamingProfile needs the special handling of the cache property below, so only that call loads the profile.
+      if (!IProfile.PROP_CACHE.equals(key) || !"true".equals(properties.get(org.eclipse.oomph.p2.core.Profile.PROP_PROFILE_SHARED_POOL)) //$NON-NLS-1$
+          || !isCalledFromUpdateRoamingProfile(Thread.currentThread().getStackTrace()))
+      {
+        return properties.get(key);
+      }
+    }
+
     Profile delegate = getDelegate();
 
     // If we're getting the cache property and this is for an installation with a shared bundle pool...
     if (IProfile.PROP_CACHE.equals(key) && "true".equals(delegate.getProperty(org.eclipse.oomph.p2.core.Profile.PROP_PROFILE_SHARED_POOL))) //$NON-NLS-1$
     {
       // If we're being called from org.eclipse.equinox.internal.p2.engine.SimpleProfileRegistry.updateRoamingProfile(Profile)
-      StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-      if (stackTrace.length > 3 && "updateRoamingProfile".equals(stackTrace[2].getMethodName())) //$NON-NLS-1$
+      if (isCalledFromUpdateRoamingProfile(Thread.currentThread().getStackTrace()))
       {
         // Return the value of the install folder instead.
         // This will prevent that method from trying to change the value of the cache property.
@@ -173,6 +211,15 @@ public final class LazyProfile extends org.eclipse.equinox.internal.p2.engine.Pr
     return delegate.getProperty(key);
   }
 
+  /**
+   * Returns whether the given stack trace, taken in {@link #getProperty(String)}, shows a call from
+   * org.eclipse.equinox.internal.p2.engine.SimpleProfileRegistry.updateRoamingProfile(Profile).
+   */
+  private static boolean isCalledFromUpdateRoamingProfile(StackTraceElement[] stackTrace)
+  {
+    return stackTrace.length > 3 && "updateRoamingProfile".equals(stackTrace[2].getMethodName()); //$NON-NLS-1$
+  }
+
   @Override
   public String getLocalProperty(String key)
   {
@@ -339,6 +386,12 @@ public final class LazyProfile extends org.eclipse.equinox.internal.p2.engine.Pr
   @Override
   public long getTimestamp()
   {
+    ProfileSummaryIndex.Summary summary = getSummary();
+    if (summary != null)
+    {
+      return summary.getTimestamp();
+    }
+
     return getDelegate().getTimestamp();
   }
 
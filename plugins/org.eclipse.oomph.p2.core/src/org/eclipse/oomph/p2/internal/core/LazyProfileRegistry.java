@@ -73,6 +73,8 @@ public class LazyProfileRegistry extends SimpleProfileRegistry
 
   private final File store;
 
+  private final ProfileSummaryIndex summaryIndex;
+
   final String self;
 
   private final boolean canWrite;
@@ -89,6 +91,7 @@ public class LazyProfileRegistry extends SimpleProfileRegistry
     super(provisioningAgent, store, updateSelfProfile ? new AdjustingSurrogateProfileHandler(provisioningAgent) : null, updateSelfProfile);
     this.provisioningAgent = provisioningAgent;
     this.store = store;
+    summaryIndex = store != null ? new ProfileSummaryIndex(store) : null;
 
     canWrite = IOUtil.canWriteFolder(store);
 
@@ -175,6 +178,57 @@ public class LazyProfileRegistry extends SimpleProfileRegistry
     }
   }
 
+  /**
+   * Returns the profiles of this registry without loading the profiles whose {@link ProfileSummaryIndex summaries} are valid.
+   * Queries of the summarized properties of such profiles are answered from the summaries;
+   * all other profiles are loaded and summarized.
+   */
+  public synchronized IProfile[] getSummarizedProfiles(IProgressMonitor monitor)
+  {
+    Map<String, Profile> profileMap = getProfileMap();
+    int size = profileMap.size();
+    monitor.beginTask("", size); //$NON-NLS-1$
+
+    try
+    {
+      List<Profile> result = new ArrayList<>(size);
+      for (Profile profile : profileMap.values())
+      {
+        try
+        {
+          if (profile instanceof LazyProfile)
+          {
+            LazyProfile lazyProfile = (LazyProfile)profile;
+            if (lazyProfile.getSummary() == null)
+            {
+              monitor.subTask(NLS.bind(Messages.LazyProfileRegistry_Loading_task, profile.getProfileId()));
+              lazyProfile.getDelegate(true);
+            }
+          }
+
+          result.add(profile);
+        }
+        catch (RuntimeException ex)
+        {
+          P2CorePlugin.INSTANCE.log(ex, ex instanceof IORuntimeException ? IStatus.WARNING : IStatus.ERROR);
+        }
+
+        monitor.worked(1);
+      }
+
+      if (summaryIndex != null)
+      {
+        summaryIndex.save();
+      }
+
+      return result.toArray(new IProfile[result.size()]);
+    }
+    finally
+    {
+      monitor.done();
+    }
+  }
+
   @Override
   public synchronized void removeProfile(String id, long timestamp) throws ProvisionException
   {
@@ -270,20 +324,22 @@ public class LazyProfileRegistry extends SimpleProfileRegistry
         {
           P2CorePlugin.checkCancelation(monitor);
 
-          File profileFile = findLatestProfileFile(profileDirectory);
-          if (profileFile == null)
+          String directoryName = profileDirectory.getName();
+          String profileId = unescape(directoryName.substring(0, directoryName.lastIndexOf(PROFILE_EXT)));
+
+          // A valid summary implies that the profile directory is unchanged since its latest profile file was written.
+          ProfileSummaryIndex.Summary summary = summaryIndex == null ? null : summaryIndex.getSummary(profileId, profileDirectory);
+          File profileFile = summary != null ? null : findLatestProfileFile(profileDirectory);
+          if (summary == null && profileFile == null)
           {
             monitor.subTask(NLS.bind(Messages.LazyProfileRegistry_Deleting_task, profileDirectory));
             IOUtil.deleteBestEffort(profileFile);
           }
           else
           {
-            String directoryName = profileDirectory.getName();
-            String profileId = unescape(directoryName.substring(0, directoryName.lastIndexOf(PROFILE_EXT)));
-
             monitor.subTask(NLS.bind(Messages.LazyProfileRegistry_Registering_task, profileId));
 
-            LazyProfile profile = new LazyProfile(this, profileId, profileDirectory);
+            LazyProfile profile = new LazyProfile(this, profileId, profileDirectory, summary);
             profileMap.put(profileId, profile);
           }
 
@@ -324,6 +380,7 @@ public class LazyProfileRegistry extends SimpleProfileRegistry
         profileLocks.put(profileId, lock);
       }
 
+      boolean parsed = false;
       boolean locked = false;
       if (lock == null || lock.processHoldsLock() || (locked = lock.lock()))
       {
@@ -335,6 +392,7 @@ public class LazyProfileRegistry extends SimpleProfileRegistry
             try
             {
               ReflectUtil.invokeMethod(parseMethod, parser, profileFile);
+              parsed = true;
             }
             catch (ReflectionException ex)
             {
@@ -367,7 +425,13 @@ public class LazyProfileRegistry extends SimpleProfileRegistry
       Map<String, org.eclipse.equinox.internal.p2.engine.Profile> profileMap = //
           (Map<String, org.eclipse.equinox.internal.p2.engine.Profile>)ReflectUtil.invokeMethod(getProfileMapMethod, parser);
 
-      return profileMap.get(profileId);
+      org.eclipse.equinox.internal.p2.engine.Profile profile = profileMap.get(profileId);
+      if (parsed && profile != null && summaryIndex != null)
+      {
+        summaryIndex.summarize(profileId, profileDirectory, profile);
+      }
+
+      return profile;
     }
     catch (RuntimeException ex)
     {
@@ -387,12 +451,24 @@ public class LazyProfileRegistry extends SimpleProfileRegistry
     // We already keep a strong reference of the self profile, but it's possible to perform transactions on any profile, so better safe than sorry.
     String id = profile.getProfileId();
     Profile current = getProfileMap().get(id);
+    File profileDirectory = null;
     if (current instanceof LazyProfile)
     {
+      profileDirectory = ((LazyProfile)current).getProfileDirectory();
       current = ((LazyProfile)current).getDelegate(true);
     }
 
     super.updateProfile(profile);
+
+    if (profileDirectory != null && summaryIndex != null)
+    {
+      Profile updated = getProfileMap().get(id);
+      if (updated != null)
+      {
+        summaryIndex.summarize(id, profileDirectory, updated);
+        summaryIndex.save();
+      }
+    }
   }
 
   public static File findLatestProfileFile(File profileDirectory)
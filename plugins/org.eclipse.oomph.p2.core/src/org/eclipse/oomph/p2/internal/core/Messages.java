@@ -53,12 +53,18 @@ public class Messages extends NLS
 
   public static String AgentManagerImpl_RefreshingAgents_task;
 
+  public static String ArtifactPrefetcher_Fetching_task;
+
   public static String BundlePoolImpl_CachCannotBeChanged_exception;
 
   public static String BundlePoolImpl_PoolNotLoaded_exception;
 
   public static String BundlePoolImpl_SharedBundlePool_label;
 
+  public static String CacheSweeper_Recording_job;
+
+  public static String CacheSweeper_Sweeping_job;
+
   public static String CachingRepositoryManager_AddingRepository_task;
 
   public static String CachingRepositoryManager_artifact;
@@ -103,6 +109,8 @@ public class Messages extends NLS
 
   public static String P2CorePlugin_OldFolder_message;
 
+  public static String P2IndexImpl_SavingCapabilities_job;
+
   public static String PersistentMap_LockInterrupted_exception;
 
   public static String PersistentMap_LockTimeout_exception;
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.p2.internal.core;
+
+import org.eclipse.oomph.util.IOUtil;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.equinox.p2.metadata.Version;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A local, memory-mapped store of the capability lookups of the {@link P2IndexImpl P2 index}.
+ * <p>
+ * The store is a sorted string table that maps <code>namespace/name</code> keys to the index time stamp of the lookup
+ * and to the versions of the capability in each repository, identified by its ID in the index.
+ * Version strings are interned in a table of their own, so each distinct version is stored and parsed only once.
+ * New lookups are kept in memory and merged into the store file when the store is {@link #save() saved},
+ * which the index does once after each burst of lookups.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+public final class P2CapabilityStore
+{
+  private static final int MAGIC = 0x4f503243;
+
+  private static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_SIZE = 16;
+
+  private static final char KEY_SEPARATOR = '/';
+
+  private final File file;
+
+  private final Map<String, Entry> pendingEntries = new TreeMap<>();
+
+  private ByteBuffer buffer;
+
+  private int entryCount;
+
+  private int versionCount;
+
+  private Version[] versions;
+
+  public P2CapabilityStore(File file)
+  {
+    this.file = file;
+    map();
+  }
+
+  public File getFile()
+  {
+    return file;
+  }
+
+  /**
+   * Returns the stored lookup of the given capability, or <code>null</code> if the capability has never been looked up.
+   */
+  public synchronized Entry get(String namespace, String name)
+  {
+    String key = getKey(namespace, name);
+    Entry entry = pendingEntries.get(key);
+    if (entry != null)
+    {
+      return entry;
+    }
+
+    int index = find(key);
+    if (index >= 0)
+    {
+      return readEntry(getEntryOffset(index));
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the names of the stored capabilities in the given namespace that start with the given prefix and that have been found in some repository,
+   * in sorted order.
+   * The sorted table is scanned from the first key with the prefix, so only the matching entries are read.
+   */
+  public synchronized List<String> getNames(String namespace, String prefix)
+  {
+    String keyPrefix = getKey(namespace, prefix);
+    Set<String> names = new TreeSet<>();
+
+    int start = find(keyPrefix);
+    if (start < 0)
+    {
+      start = -start - 1;
+    }
+
+    for (int index = start; index < entryCount; index++)
+    {
+      int offset = getEntryOffset(index);
+      String key = readString(offset);
+      if (!key.startsWith(keyPrefix))
+      {
+        break;
+      }
+
+      // The repository count follows the key and the time stamp.
+      if (buffer.getInt(offset + 4 + buffer.getInt(offset) + 8) != 0)
+      {
+        names.add(key.substring(namespace.length() + 1));
+      }
+    }
+
+    for (Map.Entry<String, Entry> entry : pendingEntries.entrySet())
+    {
+      String key = entry.getKey();
+      if (key.startsWith(keyPrefix) && !entry.getValue().getVersions().isEmpty())
+      {
+        names.add(key.substring(namespace.length() + 1));
+      }
+    }
+
+    return new ArrayList<>(names);
+  }
+
+  public synchronized void put(String namespace, String name, long timeStamp, Map<Integer, Set<Version>> versions)
+  {
+    pendingEntries.put(getKey(namespace, name), new Entry(timeStamp, versions));
+  }
+
+  /**
+   * Merges the pending lookups into the store file and maps the new file.
+   */
+  public synchronized void save()
+  {
+    if (pendingEntries.isEmpty())
+    {
+      return;
+    }
+
+    Map<String, Entry> entries = new TreeMap<>();
+    for (int index = 0; index < entryCount; index++)
+    {
+      int offset = getEntryOffset(index);
+      entries.put(readString(offset), readEntry(offset));
+    }
+
+    entries.putAll(pendingEntries);
+
+    File tempFile = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+
+    try
+    {
+      write(tempFile, entries);
+    }
+    catch (IOException ex)
+    {
+      tempFile.delete();
+      P2CorePlugin.INSTANCE.log(ex, IStatus.WARNING);
+      return;
+    }
+
+    // A file that is still mapped can't be replaced on Windows.
+    unmap();
+
+    try
+    {
+      Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      pendingEntries.clear();
+    }
+    catch (IOException ex)
+    {
+      // The pending lookups are retained in memory.
+      tempFile.delete();
+      P2CorePlugin.INSTANCE.log(ex, IStatus.WARNING);
+    }
+
+    map();
+  }
+
+  private void map()
+  {
+    buffer = null;
+    entryCount = 0;
+    versionCount = 0;
+    versions = null;
+
+    if (!file.isFile())
+    {
+      return;
+    }
+
+    RandomAccessFile randomAccessFile = null;
+
+    try
+    {
+      randomAccessFile = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+      ByteBuffer mappedBuffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+      if (mappedBuffer.getInt(0) == MAGIC && mappedBuffer.getInt(4) == FORMAT_VERSION)
+      {
+        buffer = mappedBuffer;
+        entryCount = buffer.getInt(8);
+        versionCount = buffer.getInt(12);
+        versions = new Version[versionCount];
+      }
+    }
+    catch (Exception ex)
+    {
+      // A damaged store is simply rebuilt from new lookups.
+      buffer = null;
+      entryCount = 0;
+      versionCount = 0;
+    }
+    finally
+    {
+      // The mapping remains valid after the file is closed.
+      IOUtil.closeSilent(randomAccessFile);
+    }
+  }
+
+  /**
+   * Releases the mapping of the store file right away, if the JVM supports it, rather than when the buffer is garbage collected.
+   */
+  private void unmap()
+  {
+    ByteBuffer mappedBuffer = buffer;
+    buffer = null;
+    entryCount = 0;
+    versionCount = 0;
+    versions = null;
+
+    if (mappedBuffer != null && mappedBuffer.isDirect())
+    {
+      try
+      {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe"); //$NON-NLS-1$
+        Field theUnsafeField = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+        theUnsafeField.setAccessible(true);
+
+        Object unsafe = theUnsafeField.get(null);
+        unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe, mappedBuffer); //$NON-NLS-1$
+      }
+      catch (Throwable ex)
+      {
+        //$FALL-THROUGH$
+      }
+    }
+  }
+
+  private int find(String key)
+  {
+    int low = 0;
+    int high = entryCount - 1;
+
+    while (low <= high)
+    {
+      int middle = (low + high) >>> 1;
+      int comparison = readString(getEntryOffset(middle)).compareTo(key);
+      if (comparison < 0)
+      {
+        low = middle + 1;
+      }
+      else if (comparison > 0)
+      {
+        high = middle - 1;
+      }
+      else
+      {
+        return middle;
+      }
+    }
+
+    return -(low + 1);
+  }
+
+  private int getEntryOffset(int index)
+  {
+    return buffer.getInt(HEADER_SIZE + 4 * index);
+  }
+
+  private Version getVersion(int index)
+  {
+    Version version = versions[index];
+    if (version == null)
+    {
+      int offset = buffer.getInt(HEADER_SIZE + 4 * entryCount + 4 * index);
+      version = Version.parseVersion(readString(offset));
+      versions[index] = version;
+    }
+
+    return version;
+  }
+
+  private Entry readEntry(int offset)
+  {
+    offset += 4 + buffer.getInt(offset);
+    long timeStamp = buffer.getLong(offset);
+    offset += 8;
+
+    int repositoryCount = buffer.getInt(offset);
+    offset += 4;
+
+    Map<Integer, Set<Version>> repositoryVersions = new LinkedHashMap<>();
+    for (int i = 0; i < repositoryCount; i++)
+    {
+      int repositoryID = buffer.getInt(offset);
+      int count = buffer.getInt(offset + 4);
+      offset += 8;
+
+      Set<Version> set = new HashSet<>();
+      for (int j = 0; j < count; j++)
+      {
+        set.add(getVersion(buffer.getInt(offset)));
+        offset += 4;
+      }
+
+      repositoryVersions.put(repositoryID, set);
+    }
+
+    return new Entry(timeStamp, repositoryVersions);
+  }
+
+  private String readString(int offset)
+  {
+    int length = buffer.getInt(offset);
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++)
+    {
+      bytes[i] = buffer.get(offset + 4 + i);
+    }
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void write(File file, Map<String, Entry> entries) throws IOException
+  {
+    Map<Version, Integer> versionIndices = new LinkedHashMap<>();
+    for (Entry entry : entries.values())
+    {
+      for (Set<Version> set : entry.getVersions().values())
+      {
+        for (Version version : set)
+        {
+          if (!versionIndices.containsKey(version))
+          {
+            versionIndices.put(version, versionIndices.size());
+          }
+        }
+      }
+    }
+
+    int dataOffset = HEADER_SIZE + 4 * entries.size() + 4 * versionIndices.size();
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    DataOutputStream dataStream = new DataOutputStream(data);
+
+    List<Integer> versionOffsets = new ArrayList<>();
+    for (Version version : versionIndices.keySet())
+    {
+      versionOffsets.add(dataOffset + dataStream.size());
+      writeString(dataStream, version.toString());
+    }
+
+    List<Integer> entryOffsets = new ArrayList<>();
+    for (Map.Entry<String, Entry> mapEntry : entries.entrySet())
+    {
+      entryOffsets.add(dataOffset + dataStream.size());
+      writeString(dataStream, mapEntry.getKey());
+
+      Entry entry = mapEntry.getValue();
+      dataStream.writeLong(entry.getTimeStamp());
+
+      Map<Integer, Set<Version>> repositoryVersions = entry.getVersions();
+      dataStream.writeInt(repositoryVersions.size());
+      for (Map.Entry<Integer, Set<Version>> repositoryEntry : repositoryVersions.entrySet())
+      {
+        dataStream.writeInt(repositoryEntry.getKey());
+
+        Set<Version> set = repositoryEntry.getValue();
+        dataStream.writeInt(set.size());
+        for (Version version : set)
+        {
+          dataStream.writeInt(versionIndices.get(version));
+        }
+      }
+    }
+
+    DataOutputStream out = null;
+
+    try
+    {
+      out = new DataOutputStream(new FileOutputStream(file));
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(entryOffsets.size());
+      out.writeInt(versionOffsets.size());
+
+      for (int offset : entryOffsets)
+      {
+        out.writeInt(offset);
+      }
+
+      for (int offset : versionOffsets)
+      {
+        out.writeInt(offset);
+      }
+
+      data.writeTo(out);
+    }
+    finally
+    {
+      IOUtil.close(out);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException
+  {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String getKey(String namespace, String name)
+  {
+    return namespace + KEY_SEPARATOR + name;
+  }
+
+  /**
+   * @author Eike Stepper
+   */
+  public static final class Entry
+  {
+    private final long timeStamp;
+
+    private final Map<Integer, Set<Version>> versions;
+
+    public Entry(long timeStamp, Map<Integer, Set<Version>> versions)
+    {
+      this.timeStamp = timeStamp;
+      this.versions = versions;
+    }
+
+    public long getTimeStamp()
+    {
+      return timeStamp;
+    }
+
+    /**
+     * Returns the versions of the capability per repository ID.
+     */
+    public Map<Integer, Set<Version>> getVersions()
+    {
+      return versions;
+    }
+
+    @Override
+    public String toString()
+    {
+      return timeStamp + " " + versions; //$NON-NLS-1$
+    }
+  }
+}
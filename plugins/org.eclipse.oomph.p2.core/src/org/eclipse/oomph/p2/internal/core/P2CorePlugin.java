@@ -25,7 +25,6 @@ import org.eclipse.ecf.filetransfer.IRemoteFileSystemBrowserContainerAdapter;
 import org.eclipse.ecf.filetransfer.IRetrieveFileTransferContainerAdapter;
 import org.eclipse.ecf.provider.filetransfer.browse.MultiProtocolFileSystemBrowserAdapter;
 import org.eclipse.ecf.provider.filetransfer.browse.MultiProtocolFileSystemBrowserAdapterFactory;
-import org.eclipse.ecf.provider.filetransfer.retrieve.MultiProtocolRetrieveAdapter;
 import org.eclipse.ecf.provider.filetransfer.retrieve.MultiProtocolRetrieveAdapterFactory;
 import org.eclipse.osgi.util.NLS;
 
@@ -129,7 +128,8 @@ public final class P2CorePlugin extends OomphPlugin
           {
             if (adapterType.equals(IRetrieveFileTransferContainerAdapter.class))
             {
-              return new MultiProtocolRetrieveAdapter();
+              // This adapter also sends and records the headers that resumable downloads need.
+              return new DownloadExchange.RetrieveAdapter();
             }
 
             return null;
@@ -32,6 +32,17 @@ public interface P2Index
 
   public Map<String, Set<String>> getCapabilities();
 
+  /**
+   * Returns the names of the capabilities in the given namespace that match the given pattern, in sorted order.
+   * The pattern may contain the wild cards <code>*</code> and <code>?</code>; a pattern without wild cards matches all names with that prefix.
+   * Only the locally cached capabilities index and the stored lookups are used, so this works offline.
+   */
+  public Set<String> findCapabilityNames(String namespace, String pattern);
+
+  /**
+   * Returns the versions of the given capability per repository.
+   * Lookups are stored locally and are reused for as long as the index hasn't changed, or when the index isn't reachable.
+   */
   public Map<Repository, Set<Version>> lookupCapabilities(String namespace, String name);
 
   public Map<Repository, Set<Version>> generateCapabilitiesFromComposedRepositories(Map<Repository, Set<Version>> capabilitiesFromSimpleRepositories);
@@ -19,8 +19,11 @@ import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
 import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl.EObjectInputStream;
 
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.equinox.p2.metadata.Version;
 
 import java.io.BufferedReader;
@@ -40,7 +43,10 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -51,6 +57,8 @@ public class P2IndexImpl implements P2Index
 {
   public static final P2IndexImpl INSTANCE = new P2IndexImpl();
 
+  private static final long CAPABILITY_STORE_SAVE_DELAY = 2000;
+
   private static final String INDEX_BASE = "https://download.eclipse.org/oomph/index/"; //$NON-NLS-1$
 
   private long timeStamp;
@@ -61,6 +69,26 @@ public class P2IndexImpl implements P2Index
 
   private Map<String, Set<String>> capabilitiesMap;
 
+  private Map<String, NavigableSet<String>> sortedCapabilitiesMap;
+
+  private P2CapabilityStore capabilityStore;
+
+  private final Job saveCapabilityStoreJob = new Job(Messages.P2IndexImpl_SavingCapabilities_job)
+  {
+    @Override
+    protected IStatus run(IProgressMonitor monitor)
+    {
+      // The lookups of one operation, e.g., of all the missing requirements of a targlet container, are saved at once.
+      P2CapabilityStore store = getCapabilityStore();
+      if (store != null)
+      {
+        store.save();
+      }
+
+      return Status.OK_STATUS;
+    }
+  };
+
   private File repositoriesCacheFile;
 
   private File capabilitiesCacheFile;
@@ -71,6 +99,7 @@ public class P2IndexImpl implements P2Index
 
   private P2IndexImpl()
   {
+    saveCapabilityStoreJob.setSystem(true);
   }
 
   private synchronized void initCapabilities()
@@ -78,6 +107,7 @@ public class P2IndexImpl implements P2Index
     if (capabilitiesMap == null || capabilitiesCacheFile.lastModified() + capabilitiesRefreshHours * 60 * 60 * 1000 < System.currentTimeMillis())
     {
       capabilitiesMap = new LinkedHashMap<>();
+      sortedCapabilitiesMap = null;
 
       ZipFile zipFile = null;
       InputStream inputStream = null;
@@ -264,54 +294,133 @@ public class P2IndexImpl implements P2Index
     return Collections.unmodifiableMap(capabilitiesMap);
   }
 
+  @Override
+  public Set<String> findCapabilityNames(String namespace, String pattern)
+  {
+    int wildcard = StringUtil.isEmpty(pattern) ? -1 : indexOfWildcard(pattern);
+    String prefix = pattern == null ? "" : wildcard == -1 ? pattern : pattern.substring(0, wildcard); //$NON-NLS-1$
+
+    NavigableSet<String> candidates = new TreeSet<>();
+    NavigableSet<String> names = getSortedCapabilities(namespace);
+    if (names != null)
+    {
+      candidates.addAll(names.subSet(prefix, true, prefix + Character.MAX_VALUE, true));
+    }
+
+    P2CapabilityStore store = getCapabilityStore();
+    if (store != null)
+    {
+      candidates.addAll(store.getNames(namespace, prefix));
+    }
+
+    if (wildcard == -1)
+    {
+      return Collections.unmodifiableSet(candidates);
+    }
+
+    Pattern regex = createWildcardPattern(pattern);
+    Set<String> result = new TreeSet<>();
+    for (String name : candidates)
+    {
+      if (regex.matcher(name).matches())
+      {
+        result.add(name);
+      }
+    }
+
+    return result;
+  }
+
+  private synchronized NavigableSet<String> getSortedCapabilities(String namespace)
+  {
+    initCapabilities();
+
+    if (sortedCapabilitiesMap == null)
+    {
+      sortedCapabilitiesMap = new HashMap<>();
+      for (Map.Entry<String, Set<String>> entry : capabilitiesMap.entrySet())
+      {
+        sortedCapabilitiesMap.put(entry.getKey(), Collections.unmodifiableNavigableSet(new TreeSet<>(entry.getValue())));
+      }
+    }
+
+    return sortedCapabilitiesMap.get(namespace);
+  }
+
   @Override
   public Map<Repository, Set<Version>> lookupCapabilities(String namespace, String name)
   {
     Map<Repository, Set<Version>> capabilities = new HashMap<>();
     if (!StringUtil.isEmpty(namespace) && !StringUtil.isEmpty(name))
     {
-      namespace = URI.encodeSegment(namespace, false);
-      name = URI.encodeSegment(name, false);
+      initRepositories(false);
+
+      P2CapabilityStore store = getCapabilityStore();
+      P2CapabilityStore.Entry entry = store == null ? null : store.get(namespace, name);
+      if (entry != null && entry.getTimeStamp() == timeStamp)
+      {
+        return getCapabilities(entry.getVersions());
+      }
+
+      String encodedNamespace = URI.encodeSegment(namespace, false);
+      String encodedName = URI.encodeSegment(name, false);
 
       BufferedReader reader = null;
 
       try
       {
-        InputStream inputStream = new URL(INDEX_BASE + namespace + "/" + name).openStream(); //$NON-NLS-1$
-        reader = new BufferedReader(new InputStreamReader(inputStream));
+        Map<Integer, Set<Version>> versionsByID = new LinkedHashMap<>();
+        long timeStamp = this.timeStamp;
 
-        String line = reader.readLine();
-        if (line == null)
+        try
         {
-          return capabilities;
-        }
+          InputStream inputStream = new URL(INDEX_BASE + encodedNamespace + "/" + encodedName).openStream(); //$NON-NLS-1$
+          reader = new BufferedReader(new InputStreamReader(inputStream));
 
-        long timeStamp = Long.parseLong(line);
-        initRepositories(timeStamp != this.timeStamp);
+          String line = reader.readLine();
+          if (line == null)
+          {
+            return capabilities;
+          }
 
-        while ((line = reader.readLine()) != null)
-        {
-          String[] tokens = line.split(","); //$NON-NLS-1$
-          int repositoryID = Integer.parseInt(tokens[0]);
-          Repository repository = repositories.get(repositoryID);
-          if (repository != null)
+          timeStamp = Long.parseLong(line);
+          initRepositories(timeStamp != this.timeStamp);
+
+          while ((line = reader.readLine()) != null)
           {
+            String[] tokens = line.split(","); //$NON-NLS-1$
+            int repositoryID = Integer.parseInt(tokens[0]);
+
             Set<Version> versions = new HashSet<>();
             for (int i = 1; i < tokens.length; i++)
             {
               versions.add(Version.parseVersion(tokens[i]));
             }
 
-            capabilities.put(repository, versions);
+            versionsByID.put(repositoryID, versions);
           }
         }
-      }
-      catch (FileNotFoundException ex)
-      {
-        // Ignore.
+        catch (FileNotFoundException ex)
+        {
+          // Remember that the capability isn't in the index.
+        }
+
+        if (store != null)
+        {
+          store.put(namespace, name, timeStamp, versionsByID);
+          saveCapabilityStoreJob.schedule(CAPABILITY_STORE_SAVE_DELAY);
+        }
+
+        capabilities = getCapabilities(versionsByID);
       }
       catch (Exception ex)
       {
+        if (entry != null)
+        {
+          // Offline, so the outdated lookup is better than nothing.
+          return getCapabilities(entry.getVersions());
+        }
+
         P2CorePlugin.INSTANCE.log(ex, IStatus.WARNING);
       }
       finally
@@ -323,6 +432,80 @@ public class P2IndexImpl implements P2Index
     return capabilities;
   }
 
+  private Map<Repository, Set<Version>> getCapabilities(Map<Integer, Set<Version>> versionsByID)
+  {
+    Map<Repository, Set<Version>> capabilities = new HashMap<>();
+    for (Map.Entry<Integer, Set<Version>> entry : versionsByID.entrySet())
+    {
+      Repository repository = repositories.get(entry.getKey());
+      if (repository != null)
+      {
+        capabilities.put(repository, entry.getValue());
+      }
+    }
+
+    return capabilities;
+  }
+
+  private synchronized P2CapabilityStore getCapabilityStore()
+  {
+    if (capabilityStore == null)
+    {
+      try
+      {
+        IPath stateLocation = P2CorePlugin.INSTANCE.isOSGiRunning() ? P2CorePlugin.INSTANCE.getStateLocation() : new Path("."); //$NON-NLS-1$
+        capabilityStore = new P2CapabilityStore(new File(stateLocation.toOSString(), "capabilities.store")); //$NON-NLS-1$
+      }
+      catch (Exception ex)
+      {
+        P2CorePlugin.INSTANCE.log(ex, IStatus.WARNING);
+      }
+    }
+
+    return capabilityStore;
+  }
+
+  private static int indexOfWildcard(String pattern)
+  {
+    for (int i = 0; i < pattern.length(); i++)
+    {
+      char c = pattern.charAt(i);
+      if (c == '*' || c == '?')
+      {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private static Pattern createWildcardPattern(String pattern)
+  {
+    StringBuilder regex = new StringBuilder();
+    int start = 0;
+    for (int i = 0; i < pattern.length(); i++)
+    {
+      char c = pattern.charAt(i);
+      if (c == '*' || c == '?')
+      {
+        if (start < i)
+        {
+          regex.append(Pattern.quote(pattern.substring(start, i)));
+        }
+
+        regex.append(c == '*' ? ".*" : "."); //$NON-NLS-1$ //$NON-NLS-2$
+        start = i + 1;
+      }
+    }
+
+    if (start < pattern.length())
+    {
+      regex.append(Pattern.quote(pattern.substring(start)));
+    }
+
+    return Pattern.compile(regex.toString());
+  }
+
   @Override
   public Map<Repository, Set<Version>> generateCapabilitiesFromComposedRepositories(Map<Repository, Set<Version>> capabilitiesFromSimpleRepositories)
   {
@@ -11,6 +11,7 @@
 package org.eclipse.oomph.p2.internal.core;
 
 import org.eclipse.oomph.util.CollectionUtil;
+import org.eclipse.oomph.util.HexUtil;
 import org.eclipse.oomph.util.IOUtil;
 import org.eclipse.oomph.util.Pair;
 import org.eclipse.oomph.util.PropertiesUtil;
@@ -34,8 +35,11 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
@@ -63,6 +67,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -77,9 +82,14 @@ public final class P2Indexer implements IApplication
   private final Map<URI, Repository> repositories = new ConcurrentHashMap<>();
 
   /**
-   * The map from repository URL to the list of capabilities in that repository.
+   * The map from qualified capability name to the versions of that capability in each repository.
    */
-  private final Map<String, List<Capability>> capabilities = new HashMap<>();
+  private final Map<String, Map<Repository, Set<String>>> capabilities = new HashMap<>();
+
+  /**
+   * The interned version strings, guarded by the {@link #capabilityIndex}.
+   */
+  private final Map<String, String> versions = new HashMap<>();
 
   /**
    * The map from capability namespace to the set of capability names in that namespace.
@@ -106,6 +116,15 @@ public final class P2Indexer implements IApplication
 
   private Reporter reporter;
 
+  /**
+   * The folder in which the capabilities of each simple repository are recorded for incremental runs, or <code>null</code>.
+   */
+  private File stateFolder;
+
+  private final Set<File> usedStateFiles = ConcurrentHashMap.newKeySet();
+
+  private final AtomicInteger reusedRepositories = new AtomicInteger();
+
   @Override
   public Object start(IApplicationContext context) throws Exception
   {
@@ -135,6 +154,17 @@ public final class P2Indexer implements IApplication
         {
           checkTimeStamps = true;
         }
+        else if ("-incremental".equalsIgnoreCase(arg) || "-i".equals(arg))
+        {
+          if (stateFolder == null)
+          {
+            stateFolder = new File(outputFolder.getParentFile(), outputFolder.getName() + ".state");
+          }
+        }
+        else if ("-state".equalsIgnoreCase(arg))
+        {
+          stateFolder = new File(arguments.removeFirst()).getCanonicalFile();
+        }
         else if ("-report".equalsIgnoreCase(arg) || "-r".equals(arg))
         {
           File reportFolder = new File(arguments.removeFirst());
@@ -154,10 +184,15 @@ public final class P2Indexer implements IApplication
 
       generateRepositoryMetadata();
       threadPool.awaitFinished();
+      pruneStateFolder();
 
       long end = System.currentTimeMillis();
 
       System.out.println("Analysis finished after " + (end - start) / 1000 + " seconds.");
+      if (stateFolder != null)
+      {
+        System.out.println("Reused the recorded capabilities of " + reusedRepositories + " unchanged repositories.");
+      }
       System.out.println();
       System.out.println("Generating index to " + outputFolder);
       generateIndex(outputFolder);
@@ -385,6 +420,85 @@ public final class P2Indexer implements IApplication
     }
   }
 
+  /**
+   * Returns the file in which the capabilities of the given repository are recorded, or <code>null</code> if the indexer doesn't run incrementally.
+   * Time stamp checks report problems while parsing, so they disable the reuse of recorded capabilities.
+   */
+  private File getStateFile(Repository repository)
+  {
+    if (stateFolder == null || checkTimeStamps)
+    {
+      return null;
+    }
+
+    try
+    {
+      File stateFile = new File(stateFolder, HexUtil.bytesToHex(IOUtil.getSHA1(repository.getURI().toString())));
+      usedStateFiles.add(stateFile);
+      return stateFile;
+    }
+    catch (Exception ex)
+    {
+      return null;
+    }
+  }
+
+  private void pruneStateFolder()
+  {
+    if (stateFolder != null)
+    {
+      File[] stateFiles = stateFolder.listFiles();
+      if (stateFiles != null)
+      {
+        for (File stateFile : stateFiles)
+        {
+          if (!usedStateFiles.contains(stateFile))
+          {
+            stateFile.delete();
+          }
+        }
+      }
+    }
+  }
+
+  private void addCapability(Repository repository, String namespace, String name, String version)
+  {
+    String qualifiedName = namespace + "/" + name;
+
+    synchronized (capabilityIndex)
+    {
+      CollectionUtil.add(capabilityIndex, namespace, name);
+
+      Map<Repository, Set<String>> repositoryVersions = capabilities.get(qualifiedName);
+      if (repositoryVersions == null)
+      {
+        repositoryVersions = new HashMap<>();
+        capabilities.put(qualifiedName, repositoryVersions);
+      }
+
+      Set<String> set = repositoryVersions.get(repository);
+      if (set == null)
+      {
+        set = new HashSet<>();
+        repositoryVersions.put(repository, set);
+      }
+
+      if (version != null)
+      {
+        String internedVersion = versions.get(version);
+        if (internedVersion == null)
+        {
+          versions.put(version, version);
+          internedVersion = version;
+        }
+
+        version = internedVersion;
+      }
+
+      set.add(version);
+    }
+  }
+
   private SAXParser acquireParser() throws ParserConfigurationException, SAXException
   {
     SAXParser parser = parserPool.poll();
@@ -502,7 +616,7 @@ public final class P2Indexer implements IApplication
 
   private int writeCapabilities(final File outputFolder) throws InterruptedException
   {
-    for (final Map.Entry<String, List<Capability>> entry : capabilities.entrySet())
+    for (final Map.Entry<String, Map<Repository, Set<String>>> entry : capabilities.entrySet())
     {
       threadPool.submit(new Runnable()
       {
@@ -518,36 +632,24 @@ public final class P2Indexer implements IApplication
     return capabilities.size();
   }
 
-  private void writeCapability(File outputFolder, String name, List<Capability> capabilities)
+  private void writeCapability(File outputFolder, String name, Map<Repository, Set<String>> versions)
   {
     if (verbose)
     {
       System.out.println("Capability " + name);
     }
 
-    Map<Repository, Set<String>> versions = new HashMap<>();
-    for (Capability capability : capabilities)
-    {
-      Repository repository = capability.getRepository();
-      if (repositories.containsKey(repository.getURI()))
-      {
-        Set<String> set = versions.get(repository);
-        if (set == null)
-        {
-          set = new HashSet<>();
-          versions.put(repository, set);
-        }
-
-        set.add(capability.getVersion());
-      }
-    }
-
     List<String> lines = new ArrayList<>();
     lines.add(Long.toString(timeStamp));
 
     for (Map.Entry<Repository, Set<String>> versionEntry : versions.entrySet())
     {
       Repository repository = versionEntry.getKey();
+      if (!repositories.containsKey(repository.getURI()))
+      {
+        continue;
+      }
+
       StringBuilder builder = new StringBuilder();
       builder.append(repository.getID());
 
@@ -873,11 +975,122 @@ public final class P2Indexer implements IApplication
 
       private int capabilityCount;
 
+      private DataOutputStream stateStream;
+
       public Simple(P2Indexer indexer, URI uri, File metadataFile)
       {
         super(indexer, uri, metadataFile);
       }
 
+      /**
+       * Reuses the recorded capabilities if the metadata file is unchanged since they were recorded,
+       * or otherwise parses the metadata file and streams the capabilities into a new record.
+       */
+      @Override
+      public void processsMetadata(SAXParser parser) throws IOException, SAXException
+      {
+        File stateFile = indexer.getStateFile(this);
+        if (stateFile == null)
+        {
+          super.processsMetadata(parser);
+          return;
+        }
+
+        if (loadState(stateFile))
+        {
+          indexer.reusedRepositories.incrementAndGet();
+          return;
+        }
+
+        stateFile.getParentFile().mkdirs();
+        File tempFile = new File(stateFile.getPath() + ".tmp");
+        boolean recorded = false;
+
+        try
+        {
+          stateStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+          stateStream.writeLong(metadataFile.length());
+          stateStream.writeLong(timestamp);
+
+          super.processsMetadata(parser);
+
+          if (stateStream != null)
+          {
+            stateStream.writeBoolean(false);
+            stateStream.writeInt(iuCount);
+            stateStream.writeInt(capabilityCount);
+            stateStream.close();
+            recorded = true;
+          }
+        }
+        finally
+        {
+          IOUtil.closeSilent(stateStream);
+          stateStream = null;
+
+          if (recorded)
+          {
+            stateFile.delete();
+            recorded = tempFile.renameTo(stateFile);
+          }
+
+          if (!recorded)
+          {
+            tempFile.delete();
+          }
+        }
+      }
+
+      private boolean loadState(File stateFile)
+      {
+        if (!stateFile.isFile())
+        {
+          return false;
+        }
+
+        DataInputStream in = null;
+
+        try
+        {
+          in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+          if (in.readLong() != metadataFile.length() || in.readLong() != timestamp)
+          {
+            return false;
+          }
+
+          while (in.readBoolean())
+          {
+            String namespace = in.readUTF();
+            String name = in.readUTF();
+            String version = in.readBoolean() ? in.readUTF() : null;
+            indexer.addCapability(this, namespace, name, version);
+          }
+
+          iuCount = in.readInt();
+          capabilityCount = in.readInt();
+          return true;
+        }
+        catch (IOException ex)
+        {
+          // A damaged record can only be reused partially, so start over.
+          synchronized (indexer.capabilityIndex)
+          {
+            for (Map<Repository, Set<String>> repositoryVersions : indexer.capabilities.values())
+            {
+              repositoryVersions.remove(this);
+            }
+          }
+
+          iuCount = 0;
+          capabilityCount = 0;
+          return false;
+        }
+        finally
+        {
+          IOUtil.closeSilent(in);
+        }
+      }
+
       @Override
       public boolean isComposed()
       {
@@ -925,19 +1138,28 @@ public final class P2Indexer implements IApplication
             return true;
           }
 
-          synchronized (indexer.capabilityIndex)
-          {
-            CollectionUtil.add(indexer.capabilityIndex, namespace, name);
+          indexer.addCapability(this, namespace, name, version);
+          ++capabilityCount;
 
-            List<Capability> list = indexer.capabilities.get(qualifiedName);
-            if (list == null)
+          if (stateStream != null)
+          {
+            try
+            {
+              stateStream.writeBoolean(true);
+              stateStream.writeUTF(namespace);
+              stateStream.writeUTF(name);
+              stateStream.writeBoolean(version != null);
+              if (version != null)
+              {
+                stateStream.writeUTF(version);
+              }
+            }
+            catch (IOException ex)
             {
-              list = new ArrayList<>();
-              indexer.capabilities.put(qualifiedName, list);
+              // Give up recording; the repository is parsed again in the next run.
+              IOUtil.closeSilent(stateStream);
+              stateStream = null;
             }
-
-            list.add(new Capability(this, version));
-            ++capabilityCount;
           }
 
           return true;
@@ -1033,32 +1255,6 @@ public final class P2Indexer implements IApplication
     }
   }
 
-  /**
-   * @author Eike Stepper
-   */
-  private static final class Capability
-  {
-    private final Repository repository;
-
-    private final String version;
-
-    public Capability(Repository repository, String version)
-    {
-      this.repository = repository;
-      this.version = version;
-    }
-
-    public Repository getRepository()
-    {
-      return repository;
-    }
-
-    public String getVersion()
-    {
-      return version;
-    }
-  }
-
   /**
    * @author Eike Stepper
    */
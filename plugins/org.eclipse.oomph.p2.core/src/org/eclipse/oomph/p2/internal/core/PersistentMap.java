@@ -13,6 +13,7 @@ package org.eclipse.oomph.p2.internal.core;
 import org.eclipse.oomph.p2.core.AgentManagerElement;
 import org.eclipse.oomph.util.IORuntimeException;
 import org.eclipse.oomph.util.IOUtil;
+import org.eclipse.oomph.util.PropertiesUtil;
 import org.eclipse.oomph.util.StringUtil;
 
 import org.eclipse.core.runtime.IStatus;
@@ -20,11 +21,18 @@ import org.eclipse.osgi.util.NLS;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,12 +42,46 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
 
 /**
+ * A map of elements that is persisted in a sorted file of <code>key|extraInfo</code> lines and that is shared between processes.
+ * <p>
+ * In journaled mode, which is enabled with the system property <code>oomph.p2.persistent.map.journal</code>,
+ * the additions and removals are appended as records to a journal beside the file instead of rewriting the file each time.
+ * The journal starts with a generation line and is compacted into the file when it has grown beyond
+ * <code>oomph.p2.persistent.map.journal.compaction</code> records (default 200).
+ * Each record is encoded in the charset of the map and framed by its length and its CRC-32 checksum,
+ * so an incomplete or damaged record, e.g., of a process that was killed while appending it, is recognized and dropped.
+ * A {@link #refresh()} replays only the records that have been appended since the journal was last read,
+ * unless another process has compacted the journal in the meantime.
+ * The journal is always honored when it exists, so processes with and without journaled mode can share the same map.
+ * </p>
+ *
  * @author Eike Stepper
  */
 public abstract class PersistentMap<E>
 {
+  private static final String PROP_JOURNAL = "oomph.p2.persistent.map.journal"; //$NON-NLS-1$
+
+  private static final boolean JOURNAL = PropertiesUtil.isProperty(PROP_JOURNAL);
+
+  private static final String PROP_JOURNAL_COMPACTION = "oomph.p2.persistent.map.journal.compaction"; //$NON-NLS-1$
+
+  private static final int JOURNAL_COMPACTION = PropertiesUtil.getProperty(PROP_JOURNAL_COMPACTION, 200);
+
+  private static final int JOURNAL_GENERATION_LENGTH = UUID.randomUUID().toString().length();
+
+  private static final char JOURNAL_ADDED = '+';
+
+  private static final char JOURNAL_REMOVED = '-';
+
+  /**
+   * The length of the length and of the checksum that frame a journal record.
+   */
+  private static final int JOURNAL_FRAME_LENGTH = 4;
+
   private final Charset charset;
 
   private final File file;
@@ -48,8 +90,16 @@ public abstract class PersistentMap<E>
 
   private final File lockFile;
 
+  private final File journalFile;
+
   private final Map<String, E> elements = new LinkedHashMap<>();
 
+  private String journalGeneration;
+
+  private long journalOffset;
+
+  private int journalRecords;
+
   public PersistentMap(File file, Charset charset)
   {
     this.charset = charset;
@@ -63,11 +113,13 @@ public abstract class PersistentMap<E>
       String name = file.getName();
       tempFile = new File(folder, name + ".temp"); //$NON-NLS-1$
       lockFile = IOUtil.canWriteFolder(folder) ? new File(folder, name + ".lock") : null; //$NON-NLS-1$
+      journalFile = new File(folder, name + ".journal"); //$NON-NLS-1$
     }
     else
     {
       tempFile = null;
       lockFile = null;
+      journalFile = null;
     }
   }
 
@@ -193,7 +245,25 @@ public abstract class PersistentMap<E>
 
   public final synchronized boolean refresh()
   {
-    return reconcile(null, null);
+    FileWriter lock = lock();
+
+    try
+    {
+      if (journalGeneration != null)
+      {
+        Boolean changed = replayJournal(null, null);
+        if (changed != null)
+        {
+          return changed;
+        }
+      }
+
+      return reconcile(null, null);
+    }
+    finally
+    {
+      unlock(lock);
+    }
   }
 
   /**
@@ -222,8 +292,37 @@ public abstract class PersistentMap<E>
   {
   }
 
+  /**
+   * Returns whether changes are appended to the journal rather than rewriting the file.
+   * <p>
+   * The default implementation returns whether the system property <code>oomph.p2.persistent.map.journal</code> is set.
+   */
+  protected boolean isJournaled()
+  {
+    return JOURNAL;
+  }
+
   private void load(KeyHandler handler)
   {
+    for (Map.Entry<String, String> entry : readEntries().entrySet())
+    {
+      try
+      {
+        handler.handleKey(entry.getKey(), entry.getValue());
+      }
+      catch (Exception ex)
+      {
+        P2CorePlugin.INSTANCE.log(ex);
+      }
+    }
+  }
+
+  /**
+   * Reads the file and applies all records of the journal.
+   */
+  private Map<String, String> readEntries()
+  {
+    final Map<String, String> entries = new LinkedHashMap<>();
     FileReader infoReader = null;
 
     try
@@ -234,24 +333,164 @@ public abstract class PersistentMap<E>
       String line;
       while ((line = bufferedReader.readLine()) != null)
       {
-        try
+        int pos = line.indexOf('|');
+        if (pos == -1)
+        {
+          entries.put(line, null);
+        }
+        else
         {
-          String key;
-          String extraInfo;
+          entries.put(line.substring(0, pos), line.substring(pos + 1));
+        }
+      }
 
-          int pos = line.indexOf('|');
-          if (pos == -1)
-          {
-            key = line;
-            extraInfo = null;
-          }
-          else
+      IOUtil.close(bufferedReader);
+    }
+    catch (IOException ex)
+    {
+      throw new IORuntimeException(ex);
+    }
+    finally
+    {
+      IOUtil.closeSilent(infoReader);
+    }
+
+    journalGeneration = null;
+    journalOffset = 0;
+    journalRecords = 0;
+
+    readJournal(new JournalHandler()
+    {
+      @Override
+      public void handleRecord(boolean added, String key, String extraInfo)
+      {
+        if (added)
+        {
+          entries.put(key, extraInfo);
+        }
+        else
+        {
+          entries.remove(key);
+        }
+      }
+    });
+
+    return entries;
+  }
+
+  /**
+   * Applies the journal records that have been appended by other processes since the journal was last read,
+   * except for the removal of the added key and the addition of the removed key.
+   *
+   * @return whether elements have been added or removed, or <code>null</code> if the journal has been compacted in the meantime.
+   */
+  private Boolean replayJournal(final String addedKey, final String removedKey)
+  {
+    final boolean[] changed = { false };
+
+    boolean replayed = readJournal(new JournalHandler()
+    {
+      @Override
+      public void handleRecord(boolean added, String key, String extraInfo)
+      {
+        if (added)
+        {
+          if (!key.equals(removedKey) && !elements.containsKey(key))
           {
-            key = line.substring(0, pos);
-            extraInfo = line.substring(pos + 1);
+            E element = createElement(key, extraInfo);
+            if (element != null)
+            {
+              elements.put(key, element);
+              changed[0] = true;
+            }
           }
+        }
+        else if (!key.equals(addedKey) && elements.remove(key) != null)
+        {
+          changed[0] = true;
+        }
+      }
+    });
+
+    return replayed ? changed[0] : null;
+  }
+
+  /**
+   * Reads the complete journal records from the last known offset on.
+   * Only processes that own the lock read or append the journal, so an incomplete or damaged record can only be the tail that a killed process has left behind.
+   * The reading stops at such a tail, which the next {@link #appendJournal(String, String) append} truncates.
+   *
+   * @return <code>false</code> if the journal has been compacted since it was last read, <code>true</code> otherwise.
+   */
+  private boolean readJournal(JournalHandler handler)
+  {
+    if (!journalFile.isFile())
+    {
+      return journalGeneration == null;
+    }
+
+    RandomAccessFile in = null;
+
+    try
+    {
+      in = new RandomAccessFile(journalFile, "r"); //$NON-NLS-1$
+      long length = in.length();
+      if (length <= JOURNAL_GENERATION_LENGTH)
+      {
+        return journalGeneration == null;
+      }
+
+      byte[] header = new byte[JOURNAL_GENERATION_LENGTH];
+      in.readFully(header);
+
+      String generation = new String(header, StandardCharsets.US_ASCII);
+      if (journalGeneration == null)
+      {
+        journalGeneration = generation;
+        journalOffset = JOURNAL_GENERATION_LENGTH + 1;
+      }
+      else if (!journalGeneration.equals(generation) || length < journalOffset)
+      {
+        return false;
+      }
 
-          handler.handleKey(key, extraInfo);
+      byte[] tail = new byte[(int)(length - journalOffset)];
+      in.seek(journalOffset);
+      in.readFully(tail);
+
+      ByteBuffer buffer = ByteBuffer.wrap(tail);
+      while (buffer.remaining() >= 2 * JOURNAL_FRAME_LENGTH)
+      {
+        int recordLength = buffer.getInt();
+        if (recordLength < 1 || recordLength > buffer.remaining() - JOURNAL_FRAME_LENGTH)
+        {
+          break;
+        }
+
+        byte[] bytes = new byte[recordLength];
+        buffer.get(bytes);
+        if (buffer.getInt() != getChecksum(bytes))
+        {
+          break;
+        }
+
+        journalOffset += 2 * JOURNAL_FRAME_LENGTH + recordLength;
+        ++journalRecords;
+
+        String record = new String(bytes, charset);
+        String key = record.substring(1);
+        String extraInfo = null;
+
+        int pos = key.indexOf('|');
+        if (pos != -1)
+        {
+          extraInfo = key.substring(pos + 1);
+          key = key.substring(0, pos);
+        }
+
+        try
+        {
+          handler.handleRecord(record.charAt(0) == JOURNAL_ADDED, key, extraInfo);
         }
         catch (Exception ex)
         {
@@ -259,18 +498,89 @@ public abstract class PersistentMap<E>
         }
       }
 
-      IOUtil.close(bufferedReader);
+      return true;
     }
     catch (IOException ex)
     {
-      throw new IORuntimeException(ex);
+      P2CorePlugin.INSTANCE.log(ex, IStatus.WARNING);
+      return journalGeneration == null;
     }
     finally
     {
-      IOUtil.closeSilent(infoReader);
+      IOUtil.closeSilent(in);
     }
   }
 
+  /**
+   * Appends the records of the given change to the journal, which is created if it doesn't exist.
+   * An incomplete or damaged tail behind the last record that has been read is truncated first, so that the new records don't join it.
+   */
+  private void appendJournal(String addedKey, String removedKey) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    boolean create = journalGeneration == null;
+    if (create)
+    {
+      journalGeneration = UUID.randomUUID().toString();
+      journalOffset = 0;
+      journalRecords = 0;
+      out.write((journalGeneration + "\n").getBytes(StandardCharsets.US_ASCII)); //$NON-NLS-1$
+    }
+
+    if (removedKey != null)
+    {
+      writeJournalRecord(out, JOURNAL_REMOVED + removedKey);
+    }
+
+    if (addedKey != null)
+    {
+      E element = elements.get(addedKey);
+      if (element != null)
+      {
+        String record = JOURNAL_ADDED + addedKey;
+        if (element instanceof ExtraInfoProvider)
+        {
+          record += "|" + ((ExtraInfoProvider)element).getExtraInfo(); //$NON-NLS-1$
+        }
+
+        writeJournalRecord(out, record);
+      }
+    }
+
+    out.flush();
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+    {
+      channel.truncate(journalOffset);
+      channel.position(journalOffset);
+      while (buffer.hasRemaining())
+      {
+        channel.write(buffer);
+      }
+    }
+
+    journalOffset += buffer.limit();
+  }
+
+  private void writeJournalRecord(DataOutputStream out, String record) throws IOException
+  {
+    byte[] bytes = record.getBytes(charset);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+    out.writeInt(getChecksum(bytes));
+    ++journalRecords;
+  }
+
+  private static int getChecksum(byte[] bytes)
+  {
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return (int)crc.getValue();
+  }
+
   public void save(String addedKey, final String removedKey)
   {
     if (file != null)
@@ -284,7 +594,24 @@ public abstract class PersistentMap<E>
         {
           if (file.exists())
           {
-            reconcile(addedKey, removedKey);
+            if (isJournaled())
+            {
+              if (journalGeneration == null || replayJournal(addedKey, removedKey) == null)
+              {
+                reconcile(addedKey, removedKey);
+              }
+
+              // A journal that exists but couldn't be read is compacted rather than truncated.
+              if (journalRecords < JOURNAL_COMPACTION && (journalGeneration != null || !journalFile.exists()))
+              {
+                appendJournal(addedKey, removedKey);
+                return;
+              }
+            }
+            else
+            {
+              reconcile(addedKey, removedKey);
+            }
           }
         }
 
@@ -316,6 +643,12 @@ public abstract class PersistentMap<E>
 
         file.delete();
         tempFile.renameTo(file);
+
+        // The file now contains all journal records.
+        journalFile.delete();
+        journalGeneration = null;
+        journalOffset = 0;
+        journalRecords = 0;
       }
       catch (IOException ex)
       {
@@ -441,6 +774,14 @@ public abstract class PersistentMap<E>
     public void handleKey(String key, String extraInfo) throws Exception;
   }
 
+  /**
+   * @author Eike Stepper
+   */
+  private interface JournalHandler
+  {
+    public void handleRecord(boolean added, String key, String extraInfo) throws Exception;
+  }
+
   /**
    * @author Eike Stepper
    */
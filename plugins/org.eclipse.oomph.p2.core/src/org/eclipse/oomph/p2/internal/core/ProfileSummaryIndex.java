@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.p2.internal.core;
+
+import org.eclipse.oomph.p2.core.Profile;
+import org.eclipse.oomph.util.IOUtil;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.equinox.p2.engine.IProfile;
+import org.eclipse.equinox.p2.query.QueryUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent index of the {@link Summary summaries} of the profiles in a {@link LazyProfileRegistry profile registry}.
+ * <p>
+ * A summary is valid as long as the last modified time stamp of its profile directory is unchanged,
+ * i.e., as long as no profile state has been added to or removed from the directory.
+ * Listing and querying the properties of the profiles with a valid summary doesn't need to parse the profile files.
+ * Several processes can share an agent, so the index file is locked while it's saved,
+ * and the summaries that have been changed by this process are merged into the ones that other processes have saved.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+public final class ProfileSummaryIndex
+{
+  public static final String FILE_NAME = ".oomph.profiles.summary"; //$NON-NLS-1$
+
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * The properties that are needed to list the profiles of an agent and to determine their types and bundle pools.
+   */
+  public static final List<String> PROPERTIES = Collections.unmodifiableList(Arrays.asList(Profile.PROP_PROFILE_TYPE, Profile.PROP_PROFILE_REFERENCER,
+      Profile.PROP_PROFILE_SHARED_POOL, IProfile.PROP_CACHE, IProfile.PROP_INSTALL_FOLDER, IProfile.PROP_NAME, "targlet.container.id")); //$NON-NLS-1$
+
+  private final File file;
+
+  private final File lockFile;
+
+  private final Map<String, Summary> summaries = new ConcurrentHashMap<>();
+
+  /**
+   * The IDs of the profiles whose summaries have been recorded or removed by this process since the last save.
+   */
+  private final Set<String> changedProfileIDs = ConcurrentHashMap.newKeySet();
+
+  private boolean loaded;
+
+  private volatile boolean damaged;
+
+  public ProfileSummaryIndex(File store)
+  {
+    file = new File(store, FILE_NAME);
+    lockFile = new File(store, FILE_NAME + ".lock"); //$NON-NLS-1$
+  }
+
+  public File getFile()
+  {
+    return file;
+  }
+
+  /**
+   * Returns the summary of the given profile if it's still valid for the given profile directory, or <code>null</code>.
+   */
+  public Summary getSummary(String profileID, File profileDirectory)
+  {
+    load();
+
+    Summary summary = summaries.get(profileID);
+    if (summary != null && summary.getDirectoryTimestamp() == profileDirectory.lastModified())
+    {
+      return summary;
+    }
+
+    return null;
+  }
+
+  /**
+   * Records the summary of the given profile, which must be the latest state of the profile in the given profile directory.
+   */
+  public Summary summarize(String profileID, File profileDirectory, IProfile profile)
+  {
+    Map<String, String> properties = new HashMap<>();
+    for (String key : PROPERTIES)
+    {
+      String value = profile.getProperty(key);
+      if (value != null)
+      {
+        properties.put(key, value);
+      }
+    }
+
+    int iuCount = profile.query(QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet().size();
+
+    Summary summary = new Summary(profileDirectory.lastModified(), profile.getTimestamp(), iuCount, properties);
+    summaries.put(profileID, summary);
+    changedProfileIDs.add(profileID);
+    return summary;
+  }
+
+  public void remove(String profileID)
+  {
+    if (summaries.remove(profileID) != null)
+    {
+      changedProfileIDs.add(profileID);
+    }
+  }
+
+  public synchronized void save()
+  {
+    if (changedProfileIDs.isEmpty() && !damaged)
+    {
+      return;
+    }
+
+    lockFile.getParentFile().mkdirs();
+    File tempFile = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+
+    try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE); FileLock lock = channel.lock())
+    {
+      // Merge the changes of this process into the summaries that other processes have saved meanwhile.
+      Map<String, Summary> merged = new HashMap<>();
+      if (file.isFile())
+      {
+        try
+        {
+          read(merged);
+        }
+        catch (IOException ex)
+        {
+          merged.clear();
+        }
+      }
+
+      List<String> profileIDs = new ArrayList<>(changedProfileIDs);
+      for (String profileID : profileIDs)
+      {
+        Summary summary = summaries.get(profileID);
+        if (summary != null)
+        {
+          merged.put(profileID, summary);
+        }
+        else
+        {
+          merged.remove(profileID);
+        }
+      }
+
+      write(tempFile, merged);
+
+      file.delete();
+      if (!tempFile.renameTo(file))
+      {
+        tempFile.delete();
+        return;
+      }
+
+      changedProfileIDs.removeAll(profileIDs);
+      damaged = false;
+
+      for (Map.Entry<String, Summary> entry : merged.entrySet())
+      {
+        String profileID = entry.getKey();
+        if (!changedProfileIDs.contains(profileID))
+        {
+          summaries.put(profileID, entry.getValue());
+        }
+      }
+    }
+    catch (IOException ex)
+    {
+      // The index is rebuilt from the profiles that are loaded later.
+      P2CorePlugin.INSTANCE.log(ex, IStatus.WARNING);
+      tempFile.delete();
+    }
+  }
+
+  private synchronized void load()
+  {
+    if (loaded)
+    {
+      return;
+    }
+
+    loaded = true;
+    if (!file.isFile())
+    {
+      return;
+    }
+
+    Map<String, Summary> loadedSummaries = new HashMap<>();
+
+    try
+    {
+      read(loadedSummaries);
+    }
+    catch (IOException ex)
+    {
+      // A damaged index is rebuilt from the profiles that are loaded later.
+      damaged = true;
+    }
+
+    for (Map.Entry<String, Summary> entry : loadedSummaries.entrySet())
+    {
+      // Summaries that have been recorded in this process are newer.
+      summaries.putIfAbsent(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void read(Map<String, Summary> result) throws IOException
+  {
+    DataInputStream in = null;
+
+    try
+    {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != FORMAT_VERSION)
+      {
+        return;
+      }
+
+      for (int i = in.readInt(); i > 0; --i)
+      {
+        String profileID = in.readUTF();
+        long directoryTimestamp = in.readLong();
+        long timestamp = in.readLong();
+        int iuCount = in.readInt();
+
+        Map<String, String> properties = new HashMap<>();
+        for (int j = in.readInt(); j > 0; --j)
+        {
+          properties.put(in.readUTF(), in.readUTF());
+        }
+
+        result.put(profileID, new Summary(directoryTimestamp, timestamp, iuCount, properties));
+      }
+    }
+    finally
+    {
+      IOUtil.closeSilent(in);
+    }
+  }
+
+  private static void write(File file, Map<String, Summary> summaries) throws IOException
+  {
+    DataOutputStream out = null;
+
+    try
+    {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(summaries.size());
+
+      for (Map.Entry<String, Summary> entry : summaries.entrySet())
+      {
+        Summary summary = entry.getValue();
+        out.writeUTF(entry.getKey());
+        out.writeLong(summary.getDirectoryTimestamp());
+        out.writeLong(summary.getTimestamp());
+        out.writeInt(summary.getInstallableUnitCount());
+
+        Map<String, String> properties = summary.getProperties();
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> property : properties.entrySet())
+        {
+          out.writeUTF(property.getKey());
+          out.writeUTF(property.getValue());
+        }
+      }
+
+      out.close();
+      out = null;
+    }
+    finally
+    {
+      IOUtil.closeSilent(out);
+    }
+  }
+
+  /**
+   * The time stamp, the installable unit count, and the {@link ProfileSummaryIndex#PROPERTIES summarized properties} of the latest state of a profile.
+   *
+   * @author Eike Stepper
+   */
+  public static final class Summary
+  {
+    private final long directoryTimestamp;
+
+    private final long timestamp;
+
+    private final int iuCount;
+
+    private final Map<String, String> properties;
+
+    public Summary(long directoryTimestamp, long timestamp, int iuCount, Map<String, String> properties)
+    {
+      this.directoryTimestamp = directoryTimestamp;
+      this.timestamp = timestamp;
+      this.iuCount = iuCount;
+      this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    public long getDirectoryTimestamp()
+    {
+      return directoryTimestamp;
+    }
+
+    public long getTimestamp()
+    {
+      return timestamp;
+    }
+
+    public int getInstallableUnitCount()
+    {
+      return iuCount;
+    }
+
+    public Map<String, String> getProperties()
+    {
+      return properties;
+    }
+
+    public boolean isSummarized(String key)
+    {
+      return PROPERTIES.contains(key);
+    }
+
+    @Override
+    public String toString()
+    {
+      return timestamp + " " + properties; //$NON-NLS-1$
+    }
+  }
+}
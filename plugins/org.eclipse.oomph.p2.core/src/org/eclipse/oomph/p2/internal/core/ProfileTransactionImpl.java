@@ -403,12 +403,12 @@ public class ProfileTransactionImpl implements ProfileTransaction
       final IProfile delegate = profileImpl.getDelegate();
       final long timestamp = delegate.getTimestamp();
 
-      IPlanner planner = agent.getPlanner();
-
       // In org.eclipse.equinox.internal.p2.director.SimplePlanner.getSolutionFor(ProfileChangeRequest, ProvisioningContext, IProgressMonitor)
       // The removals will be add the removed IUs to the slicer,
       // but we don'ts want to do that for targlets.
       boolean isTarglet = Profile.TYPE_TARGLET.equals(profile.getType());
+
+      IPlanner planner = agent.getPlanner();
       IProfileChangeRequest profileChangeRequest = isTarglet ? new ProfileChangeRequest(delegate)
       {
         @Override
@@ -440,37 +440,60 @@ public class ProfileTransactionImpl implements ProfileTransaction
         provisioningContext.setProperty("org.eclipse.equinox.p2.internal.profileius", Boolean.FALSE.toString()); //$NON-NLS-1$
       }
 
-      IQueryable<IInstallableUnit> metadata = provisioningContext.getMetadata(MonitorUtil.create(monitor, 5));
+      // Targlets always compute a new target platform, so the targlet container caches their resolutions itself.
+      ResolutionCache resolutionCache = null;
+      String resolutionDigest = null;
+      boolean knownNoop = false;
+      if (!isTarglet && ResolutionCache.isEnabled())
+      {
+        boolean followReferences = Boolean.parseBoolean(provisioningContext.getProperty(ProvisioningContext.FOLLOW_REPOSITORY_REFERENCES));
+        resolutionCache = new ResolutionCache(agent.getLocation());
+        resolutionDigest = getResolutionDigest(context, delegate, metadataRepositories, followReferences);
+        knownNoop = resolutionCache.isNoop(profile.getProfileId(), resolutionDigest);
+      }
 
-      final IProvisioningPlan provisioningPlan = planner.getProvisioningPlan(profileChangeRequest, provisioningContext, MonitorUtil.create(monitor, 10));
-      P2CorePlugin.INSTANCE.coreException(provisioningPlan.getStatus());
+      final IProvisioningPlan provisioningPlan;
+      final Map<IInstallableUnit, CommitContext.DeltaType> iuDeltas = new HashMap<>();
+      final Map<IInstallableUnit, Map<String, Pair<Object, Object>>> propertyDeltas = new HashMap<>();
 
-      IQueryable<IInstallableUnit> futureState = provisioningPlan.getFutureState();
-      for (IRequirement requirement : rootIU.getRequirements())
+      if (knownNoop)
+      {
+        // The planner would change nothing, but the commit context must still see the empty plan.
+        provisioningPlan = agent.getEngine().createPlan(delegate, provisioningContext);
+        provisioningPlan.setFutureState(delegate);
+      }
+      else
       {
-        if (P2Util.isSimpleRequiredCapability(requirement))
+        IQueryable<IInstallableUnit> metadata = provisioningContext.getMetadata(MonitorUtil.create(monitor, 5));
+
+        provisioningPlan = planner.getProvisioningPlan(profileChangeRequest, provisioningContext, MonitorUtil.create(monitor, 10));
+        P2CorePlugin.INSTANCE.coreException(provisioningPlan.getStatus());
+
+        IQueryable<IInstallableUnit> futureState = provisioningPlan.getFutureState();
+        for (IRequirement requirement : rootIU.getRequirements())
         {
-          IRequiredCapability requiredCapability = (IRequiredCapability)requirement;
-          for (IInstallableUnit installableUnit : P2Util
-              .asIterable(futureState.query(QueryUtil.createIUQuery(requiredCapability.getName(), requiredCapability.getRange()), null)))
+          if (P2Util.isSimpleRequiredCapability(requirement))
           {
-            provisioningPlan.setInstallableUnitProfileProperty(installableUnit, Profile.PROP_PROFILE_ROOT_IU, Boolean.TRUE.toString());
-            provisioningPlan.setInstallableUnitProfileProperty(installableUnit, SimplePlanner.INCLUSION_RULES,
-                ProfileInclusionRules.createStrictInclusionRule(installableUnit));
+            IRequiredCapability requiredCapability = (IRequiredCapability)requirement;
+            for (IInstallableUnit installableUnit : P2Util
+                .asIterable(futureState.query(QueryUtil.createIUQuery(requiredCapability.getName(), requiredCapability.getRange()), null)))
+            {
+              provisioningPlan.setInstallableUnitProfileProperty(installableUnit, Profile.PROP_PROFILE_ROOT_IU, Boolean.TRUE.toString());
+              provisioningPlan.setInstallableUnitProfileProperty(installableUnit, SimplePlanner.INCLUSION_RULES,
+                  ProfileInclusionRules.createStrictInclusionRule(installableUnit));
+            }
           }
         }
-      }
 
-      if (includeSourceBundles)
-      {
-        IInstallableUnit sourceContainerIU = generateSourceContainerIU(provisioningPlan, metadata, MonitorUtil.create(monitor, 5));
-        provisioningPlan.addInstallableUnit(sourceContainerIU);
-        provisioningPlan.setInstallableUnitProfileProperty(sourceContainerIU, Profile.PROP_PROFILE_ROOT_IU, Boolean.TRUE.toString());
-      }
+        if (includeSourceBundles)
+        {
+          IInstallableUnit sourceContainerIU = generateSourceContainerIU(provisioningPlan, metadata, MonitorUtil.create(monitor, 5));
+          provisioningPlan.addInstallableUnit(sourceContainerIU);
+          provisioningPlan.setInstallableUnitProfileProperty(sourceContainerIU, Profile.PROP_PROFILE_ROOT_IU, Boolean.TRUE.toString());
+        }
 
-      final Map<IInstallableUnit, CommitContext.DeltaType> iuDeltas = new HashMap<>();
-      final Map<IInstallableUnit, Map<String, Pair<Object, Object>>> propertyDeltas = new HashMap<>();
-      computeOperandDeltas(provisioningPlan, iuDeltas, propertyDeltas);
+        computeOperandDeltas(provisioningPlan, iuDeltas, propertyDeltas);
+      }
 
       ResolutionInfo resolutionInfo = new ResolutionInfo()
       {
@@ -505,7 +528,13 @@ public class ProfileTransactionImpl implements ProfileTransaction
         }
       };
 
-      if (!context.handleProvisioningPlan(resolutionInfo) || iuDeltas.isEmpty() && propertyDeltas.isEmpty())
+      boolean noop = iuDeltas.isEmpty() && propertyDeltas.isEmpty();
+      if (resolutionCache != null && !knownNoop)
+      {
+        resolutionCache.setNoop(profile.getProfileId(), resolutionDigest, noop);
+      }
+
+      if (!context.handleProvisioningPlan(resolutionInfo) || noop)
       {
         return null;
       }
@@ -571,6 +600,11 @@ public class ProfileTransactionImpl implements ProfileTransaction
               checkMissingPGPSignatures(agent, artifactURIs, MonitorUtil.create(monitor, 1));
             }
 
+            if (Arrays.asList(phaseSet.getPhaseIds()).contains(PhaseSetFactory.PHASE_COLLECT))
+            {
+              prefetchArtifacts(agent, provisioningPlan, artifactURIs, MonitorUtil.create(monitor, 1));
+            }
+
             IStatus status = PlanExecutionHelper.executePlan(provisioningPlan, engine, phaseSet, provisioningContext,
                 new ExecutePlanMonitor(monitor, provisioningPlan));
 
@@ -610,6 +644,50 @@ public class ProfileTransactionImpl implements ProfileTransaction
     }
   }
 
+  private void prefetchArtifacts(Agent agent, IProvisioningPlan provisioningPlan, Set<URI> artifactURIs, IProgressMonitor monitor)
+  {
+    BundlePool bundlePool = profile.getBundlePool();
+    if (bundlePool == null || !ArtifactPrefetcher.isEnabled())
+    {
+      monitor.done();
+      return;
+    }
+
+    IFileArtifactRepository artifactRepository = bundlePool.getFileArtifactRepository();
+    if (artifactRepository == null)
+    {
+      monitor.done();
+      return;
+    }
+
+    ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(agent.getArtifactRepositoryManager(), artifactRepository, artifactURIs);
+    prefetcher.prefetch(provisioningPlan, monitor);
+  }
+
+  /**
+   * Returns the digest of everything that the planner's result depends on, or <code>null</code> if the result can't be cached.
+   */
+  private String getResolutionDigest(CommitContext context, IProfile delegate, List<IMetadataRepository> metadataRepositories, boolean followReferences)
+  {
+    ResolutionCache.Key key = new ResolutionCache.Key();
+    key.append(context.getClass().getName());
+    key.append(delegate.getProfileId());
+    key.append(delegate.getTimestamp());
+    key.append(removeAll);
+    key.append(profileDefinition);
+    key.append(profileProperties);
+
+    Map<String, String> iuPropertyValues = new HashMap<>();
+    for (Map.Entry<IUPropertyKey, String> entry : iuProperties.entrySet())
+    {
+      iuPropertyValues.put(entry.getKey().toString(), entry.getValue());
+    }
+
+    key.append(iuPropertyValues);
+    key.append(profile.getAgent().getMetadataRepositoryManager(), metadataRepositories, followReferences);
+    return key.getDigest();
+  }
+
   private void checkMissingPGPSignatures(Agent agent, Set<URI> artifactURIs, IProgressMonitor monitor)
   {
     IProvisioningAgent provisioningAgent = agent.getProvisioningAgent();
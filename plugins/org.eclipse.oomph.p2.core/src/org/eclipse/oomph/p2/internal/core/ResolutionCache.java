@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.p2.internal.core;
+
+import org.eclipse.oomph.util.HexUtil;
+import org.eclipse.oomph.util.IORuntimeException;
+import org.eclipse.oomph.util.IOUtil;
+import org.eclipse.oomph.util.PropertiesUtil;
+import org.eclipse.oomph.util.ReflectUtil;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import org.eclipse.equinox.internal.p2.metadata.repository.CompositeMetadataRepository;
+import org.eclipse.equinox.internal.p2.repository.helpers.AbstractRepositoryManager;
+import org.eclipse.equinox.p2.repository.IRepository;
+import org.eclipse.equinox.p2.repository.IRepositoryReference;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Remembers the resolutions of profile transactions that turned out to change nothing,
+ * so that an identical resolution can skip the planner.
+ * <p>
+ * A resolution is identified by a {@link Key digest} of the profile state, the requested changes,
+ * and the locations and time stamps of the metadata repositories, including the children of composites and, if the provisioning context follows them,
+ * the referenced repositories.
+ * The no-op resolutions are stored per profile in the agent's <code>.oomph.resolutions</code> file,
+ * which is locked while it's changed because several processes can share an agent.
+ * The cache can be disabled with the system property <code>oomph.p2.resolution.cache.disabled</code>.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+@SuppressWarnings("restriction")
+public final class ResolutionCache
+{
+  private static final String PROP_DISABLED = "oomph.p2.resolution.cache.disabled"; //$NON-NLS-1$
+
+  private static final boolean DISABLED = PropertiesUtil.isProperty(PROP_DISABLED);
+
+  private static final String FILE_NAME = ".oomph.resolutions"; //$NON-NLS-1$
+
+  private static final Method METHOD_basicGetRepository = ReflectUtil.getMethod(AbstractRepositoryManager.class, "basicGetRepository", URI.class); //$NON-NLS-1$
+
+  private final File file;
+
+  private final File lockFile;
+
+  public ResolutionCache(File agentLocation)
+  {
+    file = new File(agentLocation, FILE_NAME);
+    lockFile = new File(agentLocation, FILE_NAME + ".lock"); //$NON-NLS-1$
+  }
+
+  public static boolean isEnabled()
+  {
+    return !DISABLED;
+  }
+
+  public File getFile()
+  {
+    return file;
+  }
+
+  /**
+   * Returns whether the last resolution of the given profile with the given digest changed nothing.
+   */
+  public synchronized boolean isNoop(String profileID, String digest)
+  {
+    return digest != null && digest.equals(PropertiesUtil.getProperties(file).get(profileID));
+  }
+
+  /**
+   * Records whether the resolution of the given profile with the given digest changed nothing.
+   */
+  public synchronized void setNoop(String profileID, String digest, boolean noop)
+  {
+    lockFile.getParentFile().mkdirs();
+
+    // Other processes may change the entries of other profiles meanwhile, so the file is read, changed, and written under the lock.
+    try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE); FileLock lock = channel.lock())
+    {
+      Map<String, String> properties = PropertiesUtil.getProperties(file);
+      String oldDigest = properties.get(profileID);
+
+      if (noop && digest != null)
+      {
+        if (digest.equals(oldDigest))
+        {
+          return;
+        }
+
+        properties.put(profileID, digest);
+      }
+      else
+      {
+        if (oldDigest == null)
+        {
+          return;
+        }
+
+        properties.remove(profileID);
+      }
+
+      PropertiesUtil.saveProperties(file, properties, true);
+    }
+    catch (IOException | IORuntimeException ex)
+    {
+      // The cache only saves time.
+    }
+  }
+
+  /**
+   * Returns the children that the given composite has loaded, or <code>null</code> if they can't be determined.
+   */
+  public static List<IMetadataRepository> getLoadedChildren(CompositeMetadataRepository repository)
+  {
+    try
+    {
+      List<IMetadataRepository> loadedChildren = ReflectUtil.getValue("loadedRepos", repository); //$NON-NLS-1$
+      return new ArrayList<>(loadedChildren);
+    }
+    catch (RuntimeException ex)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Builds the digest that identifies a resolution.
+   *
+   * @author Eike Stepper
+   */
+  public static final class Key
+  {
+    private final StringBuilder builder = new StringBuilder();
+
+    private boolean valid = true;
+
+    public Key append(Object value)
+    {
+      builder.append(value).append('\n');
+      return this;
+    }
+
+    public Key append(Map<?, ?> map)
+    {
+      Map<String, String> sortedMap = new TreeMap<>();
+      for (Map.Entry<?, ?> entry : map.entrySet())
+      {
+        sortedMap.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+      }
+
+      return append((Object)sortedMap);
+    }
+
+    /**
+     * Appends the values of all non-derived attributes and containment references of the given object, recursively.
+     */
+    public Key append(EObject eObject)
+    {
+      builder.append(eObject.eClass().getName()).append('{');
+      for (EStructuralFeature feature : eObject.eClass().getEAllStructuralFeatures())
+      {
+        if (feature.isDerived() || feature.isTransient() || feature instanceof EReference && !((EReference)feature).isContainment())
+        {
+          continue;
+        }
+
+        builder.append(feature.getName()).append('=');
+
+        Object value = eObject.eGet(feature);
+        if (value instanceof List<?>)
+        {
+          builder.append('[');
+          for (Object element : (List<?>)value)
+          {
+            appendValue(element);
+            builder.append(',');
+          }
+
+          builder.append(']');
+        }
+        else
+        {
+          appendValue(value);
+        }
+
+        builder.append(';');
+      }
+
+      builder.append("}\n"); //$NON-NLS-1$
+      return this;
+    }
+
+    /**
+     * Appends the locations and time stamps of the given repositories, including the loaded children of composites
+     * and, if the provisioning context follows them, the referenced metadata repositories.
+     * No repository is loaded: a referenced repository must already be loaded by the given manager.
+     * A repository without a time stamp, or a followed reference that isn't loaded, makes the key invalid because its changes can't be detected.
+     */
+    public Key append(IMetadataRepositoryManager manager, Collection<IMetadataRepository> repositories, boolean followReferences)
+    {
+      Set<URI> visited = new HashSet<>();
+      for (IMetadataRepository repository : repositories)
+      {
+        append(manager, repository, followReferences, visited);
+      }
+
+      return this;
+    }
+
+    private void append(IMetadataRepositoryManager manager, IMetadataRepository repository, boolean followReferences, Set<URI> visited)
+    {
+      URI location = repository.getLocation();
+      if (!visited.add(location))
+      {
+        return;
+      }
+
+      builder.append(location).append('@');
+
+      if (repository instanceof CompositeMetadataRepository)
+      {
+        builder.append("composite\n"); //$NON-NLS-1$
+        for (URI child : ((CompositeMetadataRepository)repository).getChildren())
+        {
+          builder.append("+").append(child).append('\n'); //$NON-NLS-1$
+        }
+
+        // The composite has loaded its children already; a child that failed to load isn't part of the resolution either.
+        List<IMetadataRepository> loadedChildren = getLoadedChildren((CompositeMetadataRepository)repository);
+        if (loadedChildren == null)
+        {
+          valid = false;
+        }
+        else
+        {
+          for (IMetadataRepository child : loadedChildren)
+          {
+            append(manager, child, followReferences, visited);
+          }
+        }
+      }
+      else
+      {
+        String timestamp = repository.getProperty(IRepository.PROP_TIMESTAMP);
+        if (timestamp == null)
+        {
+          valid = false;
+        }
+
+        builder.append(timestamp).append('\n');
+      }
+
+      for (IRepositoryReference reference : repository.getReferences())
+      {
+        URI referenceLocation = reference.getLocation();
+        int referenceType = reference.getType();
+        builder.append("->").append(referenceLocation).append(':').append(referenceType).append(':').append(reference.getOptions()).append('\n'); //$NON-NLS-1$
+
+        if (followReferences && referenceType == IRepository.TYPE_METADATA && (reference.getOptions() & IRepository.ENABLED) != 0)
+        {
+          IMetadataRepository referencedRepository = getLoadedRepository(manager, referenceLocation);
+          if (referencedRepository == null)
+          {
+            valid = false;
+          }
+          else
+          {
+            append(manager, referencedRepository, followReferences, visited);
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the repository with the given location if the given manager has loaded it already, without loading or adding it.
+     */
+    private static IMetadataRepository getLoadedRepository(IMetadataRepositoryManager manager, URI location)
+    {
+      if (manager instanceof AbstractRepositoryManager<?>)
+      {
+        try
+        {
+          return ReflectUtil.invokeMethod(METHOD_basicGetRepository, manager, location);
+        }
+        catch (RuntimeException ex)
+        {
+          //$FALL-THROUGH$
+        }
+      }
+
+      return null;
+    }
+
+    private void appendValue(Object value)
+    {
+      if (value instanceof EObject)
+      {
+        append((EObject)value);
+      }
+      else
+      {
+        builder.append(value);
+      }
+    }
+
+    /**
+     * Returns the digest of the appended values, or <code>null</code> if the key is invalid.
+     */
+    public String getDigest()
+    {
+      if (!valid)
+      {
+        return null;
+      }
+
+      try
+      {
+        return HexUtil.bytesToHex(IOUtil.getSHA1(builder.toString()));
+      }
+      catch (Exception ex)
+      {
+        return null;
+      }
+    }
+  }
+}
@@ -23,7 +23,9 @@ import org.eclipse.oomph.p2.core.ProfileTransaction;
 import org.eclipse.oomph.p2.core.ProfileTransaction.Resolution;
 import org.eclipse.oomph.p2.internal.core.AgentManagerImpl;
 import org.eclipse.oomph.p2.internal.core.CachingRepositoryManager;
+import org.eclipse.oomph.p2.internal.core.PersistentMap;
 import org.eclipse.oomph.p2.internal.core.ProfileImpl;
+import org.eclipse.oomph.p2.internal.core.ResolutionCache;
 import org.eclipse.oomph.util.IOUtil;
 
 import org.eclipse.core.runtime.CoreException;
@@ -44,12 +46,18 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * @author Eike Stepper
@@ -562,4 +570,128 @@ public class AgentTests extends AbstractP2Test
 
     new RepoMan().test("https://download.eclipse.org/releases/mars");
   }
+
+  @Test
+  public void testPersistentMapJournalReplay() throws Exception
+  {
+    File file = new File(createTempFolder(), "map.info");
+    File journalFile = new File(file.getPath() + ".journal");
+
+    PersistentMap<String> map1 = createJournaledMap(file);
+    map1.load();
+    map1.addElement("a", null);
+    assertThat(journalFile.isFile(), is(true));
+
+    PersistentMap<String> map2 = createJournaledMap(file);
+    map2.load();
+    assertThat(map2.getElementKeys(), is(set("a")));
+
+    map1.addElement("b", null);
+    map1.removeElement("a");
+    assertThat(map2.refresh(), is(true));
+    assertThat(map2.getElementKeys(), is(set("b")));
+    assertThat(map2.refresh(), is(false));
+
+    // A record that a killed process has only partially appended is dropped and doesn't spoil the next record.
+    try (FileOutputStream out = new FileOutputStream(journalFile, true))
+    {
+      out.write(new byte[] { 0, 0, 0, 10, '+', 'x' });
+    }
+
+    map2.addElement("c", null);
+    assertThat(map1.refresh(), is(true));
+    assertThat(map1.getElementKeys(), is(set("b", "c")));
+
+    PersistentMap<String> map3 = createJournaledMap(file);
+    map3.load();
+    assertThat(map3.getElementKeys(), is(set("b", "c")));
+  }
+
+  @Test
+  public void testPersistentMapJournalCompaction() throws Exception
+  {
+    File file = new File(createTempFolder(), "map.info");
+    File journalFile = new File(file.getPath() + ".journal");
+
+    PersistentMap<String> map = createJournaledMap(file);
+    map.load();
+
+    // The journal is compacted into the file by the change that follows the 200th record.
+    Set<String> keys = new HashSet<>();
+    for (int i = 0; i < 200; i++)
+    {
+      String key = "key" + i;
+      map.addElement(key, null);
+      keys.add(key);
+    }
+
+    assertThat(journalFile.isFile(), is(true));
+    assertThat(Files.readAllLines(file.toPath()).size(), is(0));
+
+    map.addElement("key200", null);
+    keys.add("key200");
+    assertThat(journalFile.exists(), is(false));
+    assertThat(Files.readAllLines(file.toPath()).size(), is(201));
+
+    map.removeElement("key0");
+    keys.remove("key0");
+    assertThat(journalFile.isFile(), is(true));
+
+    PersistentMap<String> freshMap = createJournaledMap(file);
+    freshMap.load();
+    assertThat(freshMap.getElementKeys(), is(keys));
+  }
+
+  @Test
+  public void testResolutionCacheNoop() throws Exception
+  {
+    File agentLocation = createTempFolder();
+    ResolutionCache cache = new ResolutionCache(agentLocation);
+
+    String digest = new ResolutionCache.Key().append("requirement").append(Collections.singletonMap("property", "value")).getDigest();
+    String sameDigest = new ResolutionCache.Key().append("requirement").append(Collections.singletonMap("property", "value")).getDigest();
+    String changedDigest = new ResolutionCache.Key().append("requirement").append(Collections.singletonMap("property", "other")).getDigest();
+    assertThat(digest, notNullValue());
+    assertThat(sameDigest, is(digest));
+    assertThat(changedDigest, not(digest));
+
+    assertThat(cache.isNoop("profile1", digest), is(false));
+
+    cache.setNoop("profile1", digest, true);
+    assertThat(cache.isNoop("profile1", digest), is(true));
+    assertThat(cache.isNoop("profile1", changedDigest), is(false));
+    assertThat(cache.isNoop("profile1", null), is(false));
+    assertThat(cache.isNoop("profile2", digest), is(false));
+
+    // Other processes that share the agent see the cached resolution.
+    assertThat(new ResolutionCache(agentLocation).isNoop("profile1", digest), is(true));
+
+    // A resolution that changes the profile forgets the cached one.
+    cache.setNoop("profile1", changedDigest, false);
+    assertThat(cache.isNoop("profile1", digest), is(false));
+    assertThat(cache.isNoop("profile1", changedDigest), is(false));
+  }
+
+  private static PersistentMap<String> createJournaledMap(File file)
+  {
+    return new PersistentMap<String>(file, StandardCharsets.UTF_8)
+    {
+      @Override
+      protected String createElement(String key, String extraInfo)
+      {
+        return key;
+      }
+
+      @Override
+      protected boolean isJournaled()
+      {
+        return true;
+      }
+    };
+  }
+
+  private static Set<String> set(String... keys)
+  {
+    return new HashSet<>(Arrays.asList(keys));
+  }
 }
@@ -22,27 +22,40 @@ import org.eclipse.oomph.p2.core.AgentManager;
 import org.eclipse.oomph.p2.core.P2Util;
 import org.eclipse.oomph.p2.core.Profile;
 import org.eclipse.oomph.p2.core.ProfileTransaction;
+import org.eclipse.oomph.p2.internal.core.CacheSweeper;
 import org.eclipse.oomph.p2.internal.core.CachingTransport;
+import org.eclipse.oomph.p2.internal.core.ContentStore;
 import org.eclipse.oomph.util.IOUtil;
 import org.eclipse.oomph.util.PropertiesUtil;
+import org.eclipse.oomph.util.ReflectUtil;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
 
 import org.junit.AfterClass;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Method;
 import java.net.URI;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -610,6 +623,213 @@ public class TransportTests extends AbstractP2Test
     );
   }
 
+  @Test
+  public void test_9_ContentStoreSharesIdenticalFiles() throws Exception
+  {
+    File cacheFolder = createTempFolder();
+    ContentStore contentStore = new ContentStore(new File(cacheFolder, ContentStore.FOLDER_NAME));
+
+    File file1 = new File(cacheFolder, "mirror1-plugin.jar");
+    File file2 = new File(cacheFolder, "mirror2-plugin.jar");
+    File file3 = new File(cacheFolder, "other-plugin.jar");
+    IOUtil.writeUTF8(file1, "content");
+    IOUtil.writeUTF8(file2, "content");
+    IOUtil.writeUTF8(file3, "other content");
+    long lastModified = file1.lastModified();
+
+    String digest1 = contentStore.share(file1, lastModified);
+    Assume.assumeThat("Hard links are not supported", digest1, notNullValue());
+
+    String digest2 = contentStore.share(file2, lastModified);
+    assertThat(digest2, is(digest1));
+    assertThat(Files.isSameFile(file1.toPath(), file2.toPath()), is(true));
+
+    String digest3 = contentStore.share(file3, lastModified);
+    assertThat(digest3, not(digest1));
+    assertThat(Files.isSameFile(file1.toPath(), file3.toPath()), is(false));
+
+    // All blobs are still referenced by cache files.
+    assertThat(contentStore.gc(), is(0L));
+
+    // A blob is collected only when the last cache file that references it is gone.
+    file1.delete();
+    assertThat(contentStore.gc(), is(0L));
+    assertThat(IOUtil.readUTF8(file2), is("content"));
+
+    file2.delete();
+    assertThat(contentStore.gc(), is((long)"content".length()));
+    assertThat(contentStore.gc(), is(0L));
+    assertThat(IOUtil.readUTF8(file3), is("other content"));
+  }
+
+  @Test
+  public void test_10_URILockIsSharedWhileAcquired() throws Exception
+  {
+    Class<?> uriLockClass = CachingTransport.class.getClassLoader().loadClass(CachingTransport.class.getName() + "$URILock");
+    Method acquire = ReflectUtil.getMethod(uriLockClass, "acquire", File.class);
+    Method release = ReflectUtil.getMethod(uriLockClass, "release");
+    Map<?, ?> locks = ReflectUtil.getValue(ReflectUtil.getField(uriLockClass, "LOCKS"), null);
+
+    File folder = createTempFolder();
+    File cacheFile = new File(folder, "content.jar");
+    File otherCacheFile = new File(folder, "artifacts.jar");
+
+    Object lock1 = ReflectUtil.invokeMethod(acquire, null, cacheFile);
+    Object lock2 = ReflectUtil.invokeMethod(acquire, null, new File(cacheFile.getPath()));
+    Object otherLock = ReflectUtil.invokeMethod(acquire, null, otherCacheFile);
+    assertThat(lock2, sameInstance(lock1));
+    assertThat(otherLock, not(sameInstance(lock1)));
+
+    // The lock stays registered until its last user releases it.
+    ReflectUtil.invokeMethod(release, lock1);
+    assertThat(locks.get(cacheFile), sameInstance(lock1));
+
+    ReflectUtil.invokeMethod(release, lock2);
+    assertThat(locks.containsKey(cacheFile), is(false));
+    assertThat(locks.get(otherCacheFile), sameInstance(otherLock));
+
+    Object lock3 = ReflectUtil.invokeMethod(acquire, null, cacheFile);
+    assertThat(lock3, not(sameInstance(lock1)));
+    ReflectUtil.invokeMethod(release, lock3);
+    ReflectUtil.invokeMethod(release, otherLock);
+
+    // Concurrent users never leave a lock behind.
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++)
+    {
+      threads.add(new Thread()
+      {
+        @Override
+        public void run()
+        {
+          for (int j = 0; j < 1000; j++)
+          {
+            Object lock = ReflectUtil.invokeMethod(acquire, null, cacheFile);
+            ReflectUtil.invokeMethod(release, lock);
+          }
+        }
+      });
+    }
+
+    for (Thread thread : threads)
+    {
+      thread.start();
+    }
+
+    for (Thread thread : threads)
+    {
+      thread.join();
+    }
+
+    assertThat(locks.containsKey(cacheFile), is(false));
+    assertThat(locks.containsKey(otherCacheFile), is(false));
+  }
+
+  @Test
+  public void test_11_CacheSweeperEvictsLeastRecentlyUsedFirst() throws Exception
+  {
+    File cacheFolder = new File(createTempFolder(), "cache");
+    cacheFolder.mkdirs();
+
+    long now = System.currentTimeMillis();
+    long hour = 60L * 60L * 1000L;
+    Map<String, String> accesses = new HashMap<>();
+    String[] names = { "accessed-3h-ago.jar", "accessed-2h-ago.jar", "accessed-1h-ago.jar", "never-accessed.jar" };
+    for (int i = 0; i < names.length; i++)
+    {
+      File file = new File(cacheFolder, names[i]);
+      Files.write(file.toPath(), new byte[100]);
+
+      if (i < 3)
+      {
+        accesses.put(names[i], Long.toString(now - (3 - i) * hour));
+      }
+    }
+
+    CacheSweeper sweeper = new CacheSweeper(cacheFolder, null);
+    PropertiesUtil.saveProperties(sweeper.getAccessIndexFile(), accesses, true);
+
+    // 400 bytes exceed the budget by 50 bytes, so only the least recently used file is evicted.
+    sweeper.setMaxSize(350);
+    assertThat(sweeper.sweep(), is(100L));
+    assertThat(new File(cacheFolder, names[0]).exists(), is(false));
+    assertThat(new File(cacheFolder, names[1]).exists(), is(true));
+
+    // A file that has never been accessed counts as just accessed.
+    sweeper.setMaxSize(150);
+    assertThat(sweeper.sweep(), is(200L));
+    assertThat(new File(cacheFolder, names[1]).exists(), is(false));
+    assertThat(new File(cacheFolder, names[2]).exists(), is(false));
+    assertThat(new File(cacheFolder, names[3]).exists(), is(true));
+
+    // Without a size budget, only the files that haven't been accessed for longer than the maximum age are evicted.
+    sweeper.setMaxSize(0);
+    sweeper.setMaxAge(hour);
+    assertThat(sweeper.sweep(), is(0L));
+    assertThat(new File(cacheFolder, names[3]).exists(), is(true));
+
+    // The access index forgets the evicted files.
+    Map<String, String> savedAccesses = PropertiesUtil.getProperties(sweeper.getAccessIndexFile());
+    assertThat(savedAccesses.keySet(), is(Collections.singleton(names[3])));
+  }
+
+  @Test
+  public void test_12_ResumeFailedDownload() throws Exception
+  {
+    byte[] contents = new byte[10000];
+    for (int i = 0; i < contents.length; i++)
+    {
+      contents[i] = (byte)i;
+    }
+
+    Agent agent = P2Util.getAgentManager().addAgent(new File(getUserHome(), "p2"));
+    CachingTransport cachingTransport = (CachingTransport)agent.getProvisioningAgent().getService(CachingTransport.SERVICE_NAME);
+
+    URI uri = new URI(httpServer + "/resume" + System.currentTimeMillis() + "/plugins/org.example_1.0.0.jar");
+    File partialFile = new File(cachingTransport.getCacheFile(uri).getPath() + ".downloading");
+    File validatorFile = new File(partialFile.getPath() + ".resume");
+
+    RangeTransport rangeTransport = new RangeTransport(contents);
+    @SuppressWarnings("restriction")
+    org.eclipse.equinox.internal.p2.repository.Transport delegate = cachingTransport.getDelegate();
+    cachingTransport.setDelegate(rangeTransport);
+
+    try
+    {
+      // A previous attempt has failed after 4000 bytes and the server has sent a validator for them.
+      partialFile.getParentFile().mkdirs();
+      Files.write(partialFile.toPath(), Arrays.copyOf(contents, 4000));
+      IOUtil.writeUTF8(validatorFile, "\"v1\"");
+
+      ByteArrayOutputStream target = new ByteArrayOutputStream();
+      IStatus status = cachingTransport.download(uri, target, new NullProgressMonitor());
+      assertThat(status.isOK(), is(true));
+      assertThat(rangeTransport.getStartPositions(), is(Collections.singletonList(4000L)));
+      assertThat(target.toByteArray(), is(contents));
+      assertThat(partialFile.exists(), is(false));
+      assertThat(validatorFile.exists(), is(false));
+
+      // A validator that is too old to be trusted starts the download over.
+      Files.write(partialFile.toPath(), Arrays.copyOf(contents, 4000));
+      IOUtil.writeUTF8(validatorFile, "\"v1\"");
+      validatorFile.setLastModified(System.currentTimeMillis() - 8L * 24L * 60L * 60L * 1000L);
+
+      target = new ByteArrayOutputStream();
+      status = cachingTransport.download(uri, target, new NullProgressMonitor());
+      assertThat(status.isOK(), is(true));
+      assertThat(rangeTransport.getStartPositions(), is(Arrays.asList(4000L, 0L)));
+      assertThat(target.toByteArray(), is(contents));
+      assertThat(partialFile.exists(), is(false));
+      assertThat(validatorFile.exists(), is(false));
+    }
+    finally
+    {
+      cachingTransport.setDelegate(delegate);
+      partialFile.delete();
+      validatorFile.delete();
+    }
+  }
+
   /**
    * @author Eike Stepper
    */
@@ -679,4 +899,62 @@ public class TransportTests extends AbstractP2Test
       return requests.toString();
     }
   }
+
+  /**
+   * Serves the requested range of a file, like a server that honors the <code>If-Range</code> header.
+   *
+   * @author Eike Stepper
+   */
+  @SuppressWarnings("restriction")
+  private static final class RangeTransport extends org.eclipse.equinox.internal.p2.repository.Transport
+  {
+    private final byte[] contents;
+
+    private final List<Long> startPositions = new ArrayList<>();
+
+    private RangeTransport(byte[] contents)
+    {
+      this.contents = contents;
+    }
+
+    public List<Long> getStartPositions()
+    {
+      return startPositions;
+    }
+
+    @Deprecated
+    @Override
+    public IStatus download(URI uri, OutputStream target, long startPos, IProgressMonitor monitor)
+    {
+      startPositions.add(startPos);
+
+      try
+      {
+        target.write(contents, (int)startPos, contents.length - (int)startPos);
+        return Status.OK_STATUS;
+      }
+      catch (IOException ex)
+      {
+        return new Status(IStatus.ERROR, "org.eclipse.oomph.p2.tests", ex.getMessage(), ex);
+      }
+    }
+
+    @Override
+    public IStatus download(URI uri, OutputStream target, IProgressMonitor monitor)
+    {
+      return download(uri, target, 0, monitor);
+    }
+
+    @Override
+    public InputStream stream(URI uri, IProgressMonitor monitor)
+    {
+      return new ByteArrayInputStream(contents);
+    }
+
+    @Override
+    public long getLastModified(URI uri, IProgressMonitor monitor)
+    {
+      return 0;
+    }
+  }
 }
@@ -12,10 +12,10 @@ package org.eclipse.oomph.resources.backend;
 
 import org.eclipse.oomph.internal.resources.ResourcesPlugin;
 import org.eclipse.oomph.resources.ResourcesUtil.ImportResult;
+import org.eclipse.oomph.util.DaemonThreadFactory;
 import org.eclipse.oomph.util.ObjectUtil;
 import org.eclipse.oomph.util.PropertiesUtil;
 import org.eclipse.oomph.util.StringUtil;
-import org.eclipse.oomph.util.SynchronizedCounter;
 
 import org.eclipse.emf.common.util.URI;
 
@@ -32,22 +32,31 @@ import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.osgi.util.NLS;
 
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.WeakHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * The root of a tree of {@link BackendResource backend resources}.
+ * <p>
+ * The members of a container are visited in a work-stealing pool with the parallelism that the system property <code>oomph.resources.visitor.parallelism</code> specifies
+ * (default 10, 1 visits all resources in the calling thread), but not with more threads than the {@link #getMaxThreads() system} supports.
+ * </p>
+ *
  * @author Eike Stepper
  */
 public abstract class BackendSystem extends BackendContainer
@@ -58,11 +67,19 @@ public abstract class BackendSystem extends BackendContainer
 
   private static final URI EMPTY_URI = URI.createHierarchicalURI(EMPTY_SEGMENTS, null, null);
 
+  private static final String PROP_MAX_THREADS = "oomph.resources.VisitorThreadPool.MAX_THREADS"; //$NON-NLS-1$
+
+  private static final String PROP_PARALLELISM = "oomph.resources.visitor.parallelism"; //$NON-NLS-1$
+
+  private static final int PARALLELISM = PropertiesUtil.getProperty(PROP_PARALLELISM, PropertiesUtil.getProperty(PROP_MAX_THREADS, 10));
+
+  private static final DaemonThreadFactory VISITOR_THREAD_FACTORY = new DaemonThreadFactory("Oomph Resource Visitor"); //$NON-NLS-1$
+
   private final String systemURI; // Store as string to not lock this system in the system registry's weak map.
 
   private final AtomicInteger visitorCounter = new AtomicInteger();
 
-  private VisitorThreadPool visitorThreadPool;
+  private volatile ForkJoinPool visitorPool;
 
   protected BackendSystem(URI systemURI) throws BackendException
   {
@@ -83,13 +100,27 @@ public abstract class BackendSystem extends BackendContainer
 
   protected void beginVisitor()
   {
-    visitorThreadPool = new VisitorThreadPool(BackendSystem.this);
+    int parallelism = Math.min(PARALLELISM, getMaxThreads());
+    if (parallelism > 1)
+    {
+      visitorPool = new ForkJoinPool(parallelism, new ForkJoinWorkerThreadFactory()
+      {
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+        {
+          return VISITOR_THREAD_FACTORY.initialize(new VisitorThread(pool, BackendSystem.this));
+        }
+      }, null, false);
+    }
   }
 
   protected void endVisitor()
   {
-    visitorThreadPool.dispose();
-    visitorThreadPool = null;
+    if (visitorPool != null)
+    {
+      visitorPool.shutdownNow();
+      visitorPool = null;
+    }
   }
 
   protected Object beginConnected()
@@ -245,39 +276,22 @@ public abstract class BackendSystem extends BackendContainer
 
   protected void doAccept(BackendResource backendResource, Visitor visitor, IProgressMonitor monitor) throws Exception
   {
-    SynchronizedCounter counter = new SynchronizedCounter();
-
-    Queue<BackendResource> queue = new ConcurrentLinkedQueue<>();
-    queue.offer(backendResource);
-
-    for (;;)
+    ForkJoinPool pool = visitorPool;
+    if (pool == null)
     {
-      BackendResource polledResource = queue.poll();
-      if (polledResource != null)
+      Queue<BackendResource> queue = new ArrayDeque<>();
+      queue.offer(backendResource);
+
+      BackendResource polledResource;
+      while ((polledResource = queue.poll()) != null)
       {
-        VisitorThread thread = visitorThreadPool.checkout();
-        if (thread != null)
-        {
-          thread.scheduleVisit(polledResource, queue, counter, visitor, monitor);
-        }
-        else
-        {
-          polledResource.visit(queue, visitor, monitor);
-        }
+        polledResource.visit(queue, visitor, monitor);
       }
-      else
-      {
-        synchronized (counter)
-        {
-          if (counter.isZero())
-          {
-            break;
-          }
 
-          counter.awaitChange();
-        }
-      }
+      return;
     }
+
+    pool.invoke(new VisitTask(backendResource, visitor, new ThreadProgressMonitor(monitor)));
   }
 
   @Override
@@ -287,97 +301,59 @@ public abstract class BackendSystem extends BackendContainer
   }
 
   /**
+   * Visits a resource and, if it's a container that wants its members to be visited, visits the files of the container in the same task
+   * and forks a new task for each of the sub containers, so that idle threads steal the sub trees of busy threads.
+   *
    * @author Eike Stepper
    */
-  private static final class VisitorThread extends Thread
+  private static final class VisitTask extends RecursiveAction
   {
-    private static int lastID;
-
-    private final Object mutex = new Object();
-
-    private final VisitorThreadPool pool;
+    private static final long serialVersionUID = 1L;
 
-    private BackendResource backendResource;
+    private final transient BackendResource backendResource;
 
-    private Queue<BackendResource> queue;
+    private final transient Visitor visitor;
 
-    private SynchronizedCounter counter;
+    private final transient IProgressMonitor monitor;
 
-    private Visitor visitor;
-
-    private IProgressMonitor monitor;
-
-    public VisitorThread(VisitorThreadPool pool)
+    public VisitTask(BackendResource backendResource, Visitor visitor, IProgressMonitor monitor)
     {
-      super(NLS.bind(Messages.BackendSystem_Visitor_thread, ++lastID));
-      this.pool = pool;
-      setDaemon(true);
+      this.backendResource = backendResource;
+      this.visitor = visitor;
+      this.monitor = monitor;
     }
 
-    public void scheduleVisit(BackendResource backendResource, Queue<BackendResource> queue, SynchronizedCounter counter, Visitor visitor,
-        IProgressMonitor monitor)
+    @Override
+    protected void compute()
     {
-      counter.countUp();
-
-      synchronized (mutex)
+      Queue<BackendResource> members = new ArrayDeque<>();
+      if (!visit(backendResource, members))
       {
-        this.backendResource = backendResource;
-        this.queue = queue;
-        this.counter = counter;
-        this.visitor = visitor;
-        this.monitor = new ThreadProgressMonitor(monitor);
-        mutex.notifyAll();
+        return;
       }
-    }
 
-    @Override
-    public void run()
-    {
-      BackendSystem backendSystem = pool.getBackendSystem();
-      backendSystem.beginConnected();
-
-      try
+      List<VisitTask> tasks = new ArrayList<>();
+      for (BackendResource member : members.toArray(new BackendResource[members.size()]))
       {
-        while (!isInterrupted())
+        if (member instanceof BackendContainer)
         {
-          try
-          {
-            doVisit();
-          }
-          catch (OperationCanceledException ex)
-          {
-            return;
-          }
-          catch (InterruptedException ex)
-          {
-            return;
-          }
+          tasks.add(new VisitTask(member, visitor, monitor));
         }
-      }
-      finally
-      {
-        backendSystem.endConnected();
-      }
-    }
-
-    private void doVisit() throws InterruptedException
-    {
-      synchronized (mutex)
-      {
-        while (backendResource == null)
+        else
         {
-          mutex.wait();
+          visit(member, members);
         }
       }
 
-      if (isInterrupted())
-      {
-        throw new InterruptedException();
-      }
+      invokeAll(tasks);
+    }
 
+    private boolean visit(BackendResource resource, Queue<BackendResource> members)
+    {
       try
       {
-        backendResource.visit(queue, visitor, monitor);
+        resource.visit(members, visitor, monitor);
+        return true;
       }
       catch (OperationCanceledException ex)
       {
@@ -385,130 +361,42 @@ public abstract class BackendSystem extends BackendContainer
       }
       catch (Exception ex)
       {
-        if (ex instanceof InterruptedException)
-        {
-          throw (InterruptedException)ex;
-        }
-
         ResourcesPlugin.INSTANCE.log(ex);
-      }
-      finally
-      {
-        synchronized (mutex)
-        {
-          // Must happen before countDown() because that can dispose of the pool.
-          pool.checkin(this);
-
-          // Can dispose of the pool.
-          counter.countDown();
-
-          backendResource = null;
-          queue = null;
-          counter = null;
-          visitor = null;
-          monitor = null;
-        }
+        return false;
       }
     }
+  }
 
-    @Override
-    public void interrupt()
-    {
-      if (monitor != null)
-      {
-        monitor.setCanceled(true);
-      }
-
-      synchronized (mutex)
-      {
-        mutex.notifyAll();
-      }
+  /**
+   * @author Eike Stepper
+   */
+  private static final class VisitorThread extends ForkJoinWorkerThread
+  {
+    private final BackendSystem backendSystem;
 
-      super.interrupt();
+    public VisitorThread(ForkJoinPool pool, BackendSystem backendSystem)
+    {
+      super(pool);
+      this.backendSystem = backendSystem;
     }
 
     @Override
-    public String toString()
+    protected void onStart()
     {
-      return super.toString();
+      super.onStart();
+      backendSystem.beginConnected();
     }
 
-    /**
-     * @author Eike Stepper
-     */
-    private static final class ThreadProgressMonitor extends ProgressMonitorWrapper
+    @Override
+    protected void onTermination(Throwable exception)
     {
-      private boolean canceled;
-
-      protected ThreadProgressMonitor(IProgressMonitor monitor)
-      {
-        super(monitor != null ? monitor : new NullProgressMonitor());
-      }
-
-      @Override
-      public boolean isCanceled()
-      {
-        return canceled || super.isCanceled();
-      }
-
-      @Override
-      public void setCanceled(boolean value)
-      {
-        canceled = value;
-      }
-
-      @Override
-      public void beginTask(String name, int totalWork)
-      {
-        setTaskName(name);
-      }
-
-      @Override
-      public void clearBlocked()
-      {
-        // Do nothing.
-      }
-
-      @Override
-      public void setBlocked(IStatus reason)
-      {
-        // Do nothing.
-      }
-
-      @Override
-      public void setTaskName(String name)
-      {
-        synchronized (getWrappedProgressMonitor())
-        {
-          super.setTaskName(name);
-        }
-      }
-
-      @Override
-      public void subTask(String name)
-      {
-        synchronized (getWrappedProgressMonitor())
-        {
-          super.subTask(name);
-        }
-      }
-
-      @Override
-      public void internalWorked(double work)
-      {
-        // Do nothing.
-      }
-
-      @Override
-      public void worked(int work)
+      try
       {
-        // Do nothing.
+        backendSystem.endConnected();
       }
-
-      @Override
-      public void done()
+      finally
       {
-        // Do nothing.
+        super.onTermination(exception);
       }
     }
   }
@@ -516,98 +404,79 @@ public abstract class BackendSystem extends BackendContainer
   /**
    * @author Eike Stepper
    */
-  private static final class VisitorThreadPool
+  private static final class ThreadProgressMonitor extends ProgressMonitorWrapper
   {
-    private static final String PROP_MAX_THREADS = "oomph.resources.VisitorThreadPool.MAX_THREADS"; //$NON-NLS-1$
-
-    private static final int DEFAULT_MAX_THREADS = 10;
+    private boolean canceled;
 
-    private static final int MAX_THREADS = PropertiesUtil.getProperty(PROP_MAX_THREADS, DEFAULT_MAX_THREADS);
-
-    private static final String PROP_SKIP_THRESHOLD = "oomph.resources.VisitorThreadPool.SKIP_THRESHOLD"; //$NON-NLS-1$
-
-    private static final int DEFAULT_SKIP_THRESHOLD = MAX_THREADS / 2;
-
-    private static final int SKIP_THRESHOLD = PropertiesUtil.getProperty(PROP_SKIP_THRESHOLD, DEFAULT_SKIP_THRESHOLD);
-
-    private final LinkedList<VisitorThread> threads = new LinkedList<>();
-
-    private final Set<VisitorThread> checkouts = new HashSet<>();
-
-    private final BackendSystem backendSystem;
+    protected ThreadProgressMonitor(IProgressMonitor monitor)
+    {
+      super(monitor != null ? monitor : new NullProgressMonitor());
+    }
 
-    private final int maxThreads;
+    @Override
+    public boolean isCanceled()
+    {
+      return canceled || super.isCanceled();
+    }
 
-    private int skippedThreadCreations;
+    @Override
+    public void setCanceled(boolean value)
+    {
+      canceled = value;
+    }
 
-    private boolean disposed;
+    @Override
+    public void beginTask(String name, int totalWork)
+    {
+      setTaskName(name);
+    }
 
-    public VisitorThreadPool(BackendSystem backendSystem)
+    @Override
+    public void clearBlocked()
     {
-      this.backendSystem = backendSystem;
-      maxThreads = Math.min(MAX_THREADS, backendSystem.getMaxThreads());
+      // Do nothing.
     }
 
-    public BackendSystem getBackendSystem()
+    @Override
+    public void setBlocked(IStatus reason)
     {
-      return backendSystem;
+      // Do nothing.
     }
 
-    public synchronized VisitorThread checkout()
+    @Override
+    public void setTaskName(String name)
     {
-      if (!disposed && maxThreads > 0)
+      synchronized (getWrappedProgressMonitor())
       {
-        if (!threads.isEmpty())
-        {
-          VisitorThread thread = threads.removeFirst();
-          checkouts.add(thread);
-          return thread;
-        }
-
-        int currentNumberOfThreads = checkouts.size(); // Here we know that the pool is empty.
-        if (currentNumberOfThreads < maxThreads)
-        {
-          int threadCreationsToSkip = currentNumberOfThreads / SKIP_THRESHOLD;
-          if (++skippedThreadCreations >= threadCreationsToSkip)
-          {
-            skippedThreadCreations = 0;
-
-            VisitorThread thread = new VisitorThread(this);
-            thread.start();
-            checkouts.add(thread);
-            return thread;
-          }
-        }
+        super.setTaskName(name);
       }
-
-      // Let the calling thread do the work.
-      return null;
     }
 
-    public synchronized void checkin(VisitorThread thread)
+    @Override
+    public void subTask(String name)
     {
-      if (!disposed)
+      synchronized (getWrappedProgressMonitor())
       {
-        checkouts.remove(thread);
-        threads.addLast(thread);
+        super.subTask(name);
       }
     }
 
-    public synchronized void dispose()
+    @Override
+    public void internalWorked(double work)
     {
-      for (VisitorThread thread : threads)
-      {
-        thread.interrupt();
-      }
+      // Do nothing.
+    }
 
-      for (VisitorThread thread : checkouts)
-      {
-        thread.interrupt();
-      }
+    @Override
+    public void worked(int work)
+    {
+      // Do nothing.
+    }
 
-      threads.clear();
-      checkouts.clear();
-      disposed = true;
+    @Override
+    public void done()
+    {
+      // Do nothing.
     }
   }
 
@@ -27,12 +27,19 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 
 /**
+ * A {@link BackendSystem} for the local file system.
+ * <p>
+ * The members of the visited folders are remembered in a {@link ScanCache scan cache}.
+ * </p>
+ *
  * @author Eike Stepper
  */
 public final class LocalBackendSystem extends BackendSystem
 {
   private final File root;
 
+  private final ScanCache scanCache = ScanCache.isEnabled() ? new ScanCache() : null;
+
   private LocalBackendSystem(URI systemURI) throws BackendException
   {
     super(systemURI);
@@ -58,7 +65,13 @@ public final class LocalBackendSystem extends BackendSystem
   @Override
   protected Object[] getDelegateMembers(Object containerDelegate, IProgressMonitor monitor) throws Exception
   {
-    return ((File)containerDelegate).listFiles();
+    File folder = (File)containerDelegate;
+    if (scanCache != null)
+    {
+      return scanCache.getMembers(folder);
+    }
+
+    return folder.listFiles();
   }
 
   @Override
@@ -81,6 +94,11 @@ public final class LocalBackendSystem extends BackendSystem
       return Type.SYSTEM;
     }
 
+    if (resourceDelegate instanceof ScanCache.ScannedFile)
+    {
+      return ((ScanCache.ScannedFile)resourceDelegate).getType();
+    }
+
     File file = (File)resourceDelegate;
     if (file.isDirectory())
     {
@@ -95,6 +113,28 @@ public final class LocalBackendSystem extends BackendSystem
     return null;
   }
 
+  @Override
+  protected void doAccept(BackendResource backendResource, Visitor visitor, IProgressMonitor monitor) throws Exception
+  {
+    File scanRoot = scanCache != null && backendResource.isContainer() ? getDelegate(backendResource) : null;
+    if (scanRoot != null)
+    {
+      scanCache.load(scanRoot);
+    }
+
+    try
+    {
+      super.doAccept(backendResource, visitor, monitor);
+    }
+    finally
+    {
+      if (scanRoot != null)
+      {
+        scanCache.save(scanRoot);
+      }
+    }
+  }
+
   @Override
   protected IPath getLocation(BackendResource backendResource) throws Exception
   {
@@ -17,8 +17,6 @@ public class Messages extends NLS
 
   public static String BackendSystem_SchemeNotFound_exception;
 
-  public static String BackendSystem_Visitor_thread;
-
   static
   {
     NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.resources.backend;
+
+import org.eclipse.oomph.internal.resources.ResourcesPlugin;
+import org.eclipse.oomph.resources.backend.BackendResource.Type;
+import org.eclipse.oomph.util.HexUtil;
+import org.eclipse.oomph.util.IOUtil;
+import org.eclipse.oomph.util.PropertiesUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the members of the folders that a {@link LocalBackendSystem} visits, keyed by the modification time of each folder.
+ * <p>
+ * The members of a folder are added or removed only if the modification time of the folder changes,
+ * so the members of an unchanged folder are neither listed again nor are their types checked again.
+ * Folders that have been modified during the last two seconds are not remembered because their next modification may not change their time stamp.
+ * The folders below the root of each visit are stored in the state location of the resources plug-in, so that the next session can reuse them.
+ * The folders are only remembered in memory while a visit is in progress; when the last visit ends, they're forgotten.
+ * The cache can be disabled with the system property <code>oomph.resources.scan.cache.disabled</code>.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+final class ScanCache
+{
+  private static final String PROP_DISABLED = "oomph.resources.scan.cache.disabled"; //$NON-NLS-1$
+
+  private static final boolean DISABLED = PropertiesUtil.isProperty(PROP_DISABLED);
+
+  private static final int FORMAT_VERSION = 1;
+
+  private static final long RACY_INTERVAL = 2000;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Set<String> loadedRoots = new HashSet<>();
+
+  private final Set<String> dirtyRoots = new HashSet<>();
+
+  /**
+   * The number of visits in progress, guarded by {@link #loadedRoots}.
+   */
+  private volatile int visits;
+
+  public static boolean isEnabled()
+  {
+    return !DISABLED;
+  }
+
+  /**
+   * Returns the members of the given folder, or <code>null</code> if the folder can't be listed.
+   */
+  public File[] getMembers(File folder)
+  {
+    String path = folder.getPath();
+    long lastModified = folder.lastModified();
+
+    Entry entry = entries.get(path);
+    if (entry != null && entry.getLastModified() == lastModified)
+    {
+      entry.setUsed();
+      return entry.getMembers(folder);
+    }
+
+    File[] files = folder.listFiles();
+    if (files == null)
+    {
+      entries.remove(path);
+      return null;
+    }
+
+    List<String> names = new ArrayList<>(files.length);
+    List<Type> types = new ArrayList<>(files.length);
+    for (File file : files)
+    {
+      Type type = getType(file);
+      if (type != null)
+      {
+        names.add(file.getName());
+        types.add(type);
+      }
+    }
+
+    entry = new Entry(lastModified, names.toArray(new String[names.size()]), types.toArray(new Type[types.size()]));
+    if (visits != 0 && lastModified != 0L && System.currentTimeMillis() - lastModified > RACY_INTERVAL)
+    {
+      entry.setUsed();
+      entries.put(path, entry);
+      markDirty(path);
+    }
+    else
+    {
+      entries.remove(path);
+    }
+
+    return entry.getMembers(folder);
+  }
+
+  /**
+   * Begins a visit of the given root and loads the folders below it, unless they've already been loaded.
+   * Each call must be followed by a call to {@link #save(File)} when the visit ends.
+   */
+  public void load(File root)
+  {
+    String rootPath = root.getPath();
+    synchronized (loadedRoots)
+    {
+      ++visits;
+      if (!loadedRoots.add(rootPath))
+      {
+        return;
+      }
+    }
+
+    File file = getFile(rootPath);
+    if (file == null || !file.isFile())
+    {
+      return;
+    }
+
+    DataInputStream in = null;
+
+    try
+    {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != FORMAT_VERSION || !rootPath.equals(in.readUTF()))
+      {
+        return;
+      }
+
+      Type[] values = Type.values();
+      for (int i = in.readInt(); i > 0; --i)
+      {
+        String relativePath = in.readUTF();
+        long lastModified = in.readLong();
+
+        int size = in.readInt();
+        String[] names = new String[size];
+        Type[] types = new Type[size];
+        for (int j = 0; j < size; j++)
+        {
+          names[j] = in.readUTF();
+          types[j] = values[in.readByte()];
+        }
+
+        String path = relativePath.length() == 0 ? rootPath : getPrefix(rootPath) + relativePath;
+        entries.putIfAbsent(path, new Entry(lastModified, names, types));
+      }
+    }
+    catch (Exception ex)
+    {
+      // A damaged cache is replaced when the root is saved.
+      markDirty(rootPath);
+    }
+    finally
+    {
+      IOUtil.closeSilent(in);
+    }
+  }
+
+  /**
+   * Ends a visit of the given root and saves the folders below it that have been visited, if any of them have changed.
+   */
+  public void save(File root)
+  {
+    try
+    {
+      write(root.getPath());
+    }
+    finally
+    {
+      synchronized (loadedRoots)
+      {
+        if (--visits == 0)
+        {
+          // Don't hold on to the folders of all the roots that have ever been visited.
+          entries.clear();
+          loadedRoots.clear();
+
+          synchronized (dirtyRoots)
+          {
+            dirtyRoots.clear();
+          }
+        }
+      }
+    }
+  }
+
+  private void write(String rootPath)
+  {
+    synchronized (dirtyRoots)
+    {
+      if (!dirtyRoots.remove(rootPath))
+      {
+        return;
+      }
+    }
+
+    File file = getFile(rootPath);
+    if (file == null)
+    {
+      return;
+    }
+
+    String prefix = getPrefix(rootPath);
+    List<Map.Entry<String, Entry>> rootEntries = new ArrayList<>();
+    for (Map.Entry<String, Entry> mapEntry : entries.entrySet())
+    {
+      String path = mapEntry.getKey();
+      if (mapEntry.getValue().isUsed() && (path.equals(rootPath) || path.startsWith(prefix)))
+      {
+        rootEntries.add(mapEntry);
+      }
+    }
+
+    file.getParentFile().mkdirs();
+    File tempFile = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+    DataOutputStream out = null;
+
+    try
+    {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(rootPath);
+      out.writeInt(rootEntries.size());
+
+      for (Map.Entry<String, Entry> mapEntry : rootEntries)
+      {
+        String path = mapEntry.getKey();
+        Entry entry = mapEntry.getValue();
+
+        out.writeUTF(path.length() > prefix.length() ? path.substring(prefix.length()) : ""); //$NON-NLS-1$
+        out.writeLong(entry.getLastModified());
+        entry.write(out);
+      }
+
+      out.close();
+      out = null;
+
+      file.delete();
+      if (!tempFile.renameTo(file))
+      {
+        tempFile.delete();
+      }
+    }
+    catch (Exception ex)
+    {
+      // The cache only saves time.
+      tempFile.delete();
+    }
+    finally
+    {
+      IOUtil.closeSilent(out);
+    }
+  }
+
+  private void markDirty(String path)
+  {
+    synchronized (loadedRoots)
+    {
+      synchronized (dirtyRoots)
+      {
+        for (File file = new File(path); file != null; file = file.getParentFile())
+        {
+          String rootPath = file.getPath();
+          if (loadedRoots.contains(rootPath))
+          {
+            dirtyRoots.add(rootPath);
+          }
+        }
+      }
+    }
+  }
+
+  private static String getPrefix(String rootPath)
+  {
+    return rootPath.endsWith(File.separator) ? rootPath : rootPath + File.separator;
+  }
+
+  private static File getFile(String rootPath)
+  {
+    if (!ResourcesPlugin.INSTANCE.isOSGiRunning())
+    {
+      return null;
+    }
+
+    try
+    {
+      String name = HexUtil.bytesToHex(IOUtil.getSHA1(rootPath));
+      return ResourcesPlugin.INSTANCE.getStateLocation().append("scans").append(name).toFile(); //$NON-NLS-1$
+    }
+    catch (Exception ex)
+    {
+      return null;
+    }
+  }
+
+  private static Type getType(File file)
+  {
+    try
+    {
+      // A single file system access per member.
+      BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+      if (attributes.isDirectory())
+      {
+        return Type.FOLDER;
+      }
+
+      if (attributes.isRegularFile())
+      {
+        return Type.FILE;
+      }
+    }
+    catch (IOException ex)
+    {
+      //$FALL-THROUGH$
+    }
+
+    return null;
+  }
+
+  /**
+   * A member whose type is known without another file system access.
+   *
+   * @author Eike Stepper
+   */
+  static final class ScannedFile extends File
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final Type type;
+
+    public ScannedFile(File parent, String name, Type type)
+    {
+      super(parent, name);
+      this.type = type;
+    }
+
+    public Type getType()
+    {
+      return type;
+    }
+  }
+
+  /**
+   * @author Eike Stepper
+   */
+  private static final class Entry
+  {
+    private final long lastModified;
+
+    private final String[] names;
+
+    private final Type[] types;
+
+    private volatile boolean used;
+
+    public Entry(long lastModified, String[] names, Type[] types)
+    {
+      this.lastModified = lastModified;
+      this.names = names;
+      this.types = types;
+    }
+
+    public long getLastModified()
+    {
+      return lastModified;
+    }
+
+    public boolean isUsed()
+    {
+      return used;
+    }
+
+    public void setUsed()
+    {
+      used = true;
+    }
+
+    public File[] getMembers(File folder)
+    {
+      File[] members = new File[names.length];
+      for (int i = 0; i < names.length; i++)
+      {
+        members[i] = new ScannedFile(folder, names[i], types[i]);
+      }
+
+      return members;
+    }
+
+    public void write(DataOutputStream out) throws IOException
+    {
+      out.writeInt(names.length);
+      for (int i = 0; i < names.length; i++)
+      {
+        out.writeUTF(names[i]);
+        out.writeByte(types[i].ordinal());
+      }
+    }
+  }
+}
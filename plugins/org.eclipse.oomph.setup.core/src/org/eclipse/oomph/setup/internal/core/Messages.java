@@ -61,12 +61,18 @@ public class Messages extends NLS
 
   public static String SetupArchiver_SuccessfulUpdates_message;
 
+  public static String SetupArchiver_Unchanged_message;
+
   public static String SetupTaskPerformer_Build_job;
 
   public static String SetupTaskPerformer_ChangingConfiguration_message;
 
   public static String SetupTaskPerformer_MissingVariables_exception;
 
+  public static String SetupTaskPerformer_NeededCheck_message;
+
+  public static String SetupTaskPerformer_NeededChecks_message;
+
   public static String SetupTaskPerformer_NoInstallFolderForProfile_message;
 
   public static String SetupTaskPerformer_Performing_message;
@@ -21,6 +21,7 @@ import org.eclipse.oomph.setup.internal.core.util.ECFURIHandlerImpl;
 import org.eclipse.oomph.setup.internal.core.util.ECFURIHandlerImpl.CacheHandling;
 import org.eclipse.oomph.setup.internal.core.util.ResourceMirror;
 import org.eclipse.oomph.setup.internal.core.util.SetupCoreUtil;
+import org.eclipse.oomph.util.HexUtil;
 import org.eclipse.oomph.util.IORuntimeException;
 import org.eclipse.oomph.util.IOUtil;
 import org.eclipse.oomph.util.OS;
@@ -53,6 +54,7 @@ import org.eclipse.osgi.util.NLS;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -67,6 +69,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -84,6 +87,14 @@ public class SetupArchiver implements IApplication
 
   private static final URI HTTP_LEGACY_MODELS = URI.createURI("http://git.eclipse.org/c/oomph/org.eclipse.oomph.git/plain/setups/models/"); //$NON-NLS-1$
 
+  private static final String MANIFEST_FORMAT_KEY = "@format"; //$NON-NLS-1$
+
+  private static final String MANIFEST_FORMAT = "2"; //$NON-NLS-1$
+
+  private static final String MANIFEST_TIMESTAMP_KEY = "@timestamp"; //$NON-NLS-1$
+
+  private static final String MANIFEST_MODELS_KEY = "@models"; //$NON-NLS-1$
+
   @Override
   public Object start(IApplicationContext context)
   {
@@ -210,6 +221,7 @@ public class SetupArchiver implements IApplication
     Set<URI> uris = new LinkedHashSet<>();
     uris.add(SetupContext.INDEX_SETUP_URI);
 
+    boolean incremental = false;
     boolean expectURIs = false;
     for (int i = 0; i < arguments.length; ++i)
     {
@@ -231,6 +243,10 @@ public class SetupArchiver implements IApplication
       {
         expectURIs = true;
       }
+      else if ("-incremental".equals(argument)) //$NON-NLS-1$
+      {
+        incremental = true;
+      }
     }
 
     String url = file.getAbsolutePath();
@@ -311,7 +327,22 @@ public class SetupArchiver implements IApplication
       }
     }
 
-    CacheHandling cacheHandling = CacheHandling.valueOf(System.getProperty(ECFURIHandlerImpl.OPTION_CACHE_HANDLING, CacheHandling.CACHE_IGNORE.toString()));
+    // In incremental mode, the manifest records the ETag and the digest of the cached source of each resource in the archive,
+    // and the digest of the mapped locations of the resources it references.
+    // Resources that are still unchanged need no download beyond a conditional request, and don't need to be saved again.
+    File manifestFile = new File(file.getPath() + ".manifest"); //$NON-NLS-1$
+    Map<String, String> manifest = incremental && lastModified != 0 ? PropertiesUtil.getProperties(manifestFile) : new HashMap<>();
+    if (!MANIFEST_FORMAT.equals(manifest.get(MANIFEST_FORMAT_KEY)) || !Long.toString(lastModified).equals(manifest.get(MANIFEST_TIMESTAMP_KEY)))
+    {
+      // The manifest doesn't describe the current archive.
+      manifest.clear();
+    }
+
+    Map<String, String> newManifest = new HashMap<>();
+    Set<Resource> unchangedResources = new HashSet<>();
+
+    CacheHandling cacheHandling = CacheHandling.valueOf(System.getProperty(ECFURIHandlerImpl.OPTION_CACHE_HANDLING,
+        (incremental ? CacheHandling.CACHE_WITH_ETAG_CHECKING : CacheHandling.CACHE_IGNORE).toString()));
     resourceSet.getLoadOptions().put(ECFURIHandlerImpl.OPTION_CACHE_HANDLING, cacheHandling);
     resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("svg", new BytesResourceFactoryImpl()); //$NON-NLS-1$
 
@@ -447,6 +478,10 @@ public class SetupArchiver implements IApplication
     // We don't want that, so terminate early in that case.
     boolean hasEcoreFailures = false;
 
+    // The serialization of every resource depends on the models, so the manifest is only valid for the same models.
+    Set<String> modelEntries = new TreeSet<>();
+    boolean hasUnknownModels = false;
+
     for (Resource resource : resourceSet.getResources())
     {
       URI uri = resource.getURI();
@@ -462,6 +497,17 @@ public class SetupArchiver implements IApplication
           break;
         }
 
+        if (incremental)
+        {
+          String modelEntry = getManifestEntry(uriConverter, normalizedURI);
+          if (modelEntry == null)
+          {
+            hasUnknownModels = true;
+          }
+
+          modelEntries.add(normalizedURI + " " + modelEntry); //$NON-NLS-1$
+        }
+
         // Ensure that the model resources consistently use their actual location (the schemaLocation annotation of the model), not index:/...
         // It appears that someone has manually changed their schemaLocations to use https leading to non-deterministic changes to the setups.zip.
         EPackage ePackage = (EPackage)EcoreUtil.getObjectByType(resource.getContents(), EcorePackage.Literals.EPACKAGE);
@@ -502,6 +548,13 @@ public class SetupArchiver implements IApplication
       }
     }
 
+    String modelsDigest = incremental && !hasUnknownModels ? getDigest(modelEntries) : null;
+    if (modelsDigest == null || !modelsDigest.equals(manifest.get(MANIFEST_MODELS_KEY)))
+    {
+      // Any changed model might change the serialization of every resource.
+      manifest.clear();
+    }
+
     if (!hasEcoreFailures)
     {
       boolean hasFailures = false;
@@ -525,9 +578,11 @@ public class SetupArchiver implements IApplication
           System.out.println(NLS.bind(Messages.SetupArchiver_Mirroring_message, normalizedURI));
 
           URI output = path.resolve(outputLocation);
-          entryNames.remove(path.toString());
+          boolean archived = entryNames.remove(path.toString());
           URI old = uriMap.put(uri, output);
 
+          String manifestEntry = incremental ? getManifestEntry(uriConverter, normalizedURI, resource) : null;
+
           if (resource.getContents().isEmpty() || !resource.getErrors().isEmpty())
           {
             System.err.println(NLS.bind(Messages.SetupArchiver_FailedToLoad_message, normalizedURI));
@@ -549,13 +604,26 @@ public class SetupArchiver implements IApplication
                 legacyResources.put(resource, legacyURI);
               }
 
-              long before = resource.getTimeStamp();
-              resource.save(options);
-              long after = resource.getTimeStamp();
+              if (manifestEntry != null)
+              {
+                newManifest.put(normalizedURI.toString(), manifestEntry);
+              }
 
-              if (after - before > 0)
+              if (archived && manifestEntry != null && manifestEntry.equals(manifest.get(normalizedURI.toString())))
+              {
+                System.out.println(NLS.bind(Messages.SetupArchiver_Unchanged_message, normalizedURI));
+                unchangedResources.add(resource);
+              }
+              else
               {
-                System.err.println(NLS.bind(Messages.SetupArchiver_Changed_message, normalizedURI));
+                long before = resource.getTimeStamp();
+                resource.save(options);
+                long after = resource.getTimeStamp();
+
+                if (after - before > 0)
+                {
+                  System.err.println(NLS.bind(Messages.SetupArchiver_Changed_message, normalizedURI));
+                }
               }
             }
             catch (IOException ex)
@@ -595,10 +663,15 @@ public class SetupArchiver implements IApplication
         System.out.println(NLS.bind(Messages.SetupArchiver_MirroringLegacy_message, uri));
 
         URI output = path.resolve(outputLocation);
-        entryNames.remove(path.toString());
+        boolean archived = entryNames.remove(path.toString());
         uriMap.put(resource.getURI(), output);
         uriMap.put(uri, output);
 
+        if (archived && unchangedResources.contains(resource))
+        {
+          continue;
+        }
+
         try
         {
           long before = resource.getTimeStamp();
@@ -620,6 +693,7 @@ public class SetupArchiver implements IApplication
       if (hasFailures)
       {
         System.err.println(Messages.SetupArchiver_Failures_message);
+        newManifest = null;
       }
       else
       {
@@ -697,9 +771,105 @@ public class SetupArchiver implements IApplication
       }
     }
 
+    if (incremental)
+    {
+      if (hasEcoreFailures || newManifest == null || modelsDigest == null || !file.isFile())
+      {
+        manifestFile.delete();
+      }
+      else
+      {
+        newManifest.put(MANIFEST_FORMAT_KEY, MANIFEST_FORMAT);
+        newManifest.put(MANIFEST_TIMESTAMP_KEY, Long.toString(file.lastModified()));
+        newManifest.put(MANIFEST_MODELS_KEY, modelsDigest);
+        PropertiesUtil.saveProperties(manifestFile, newManifest, true);
+      }
+    }
+
     return null;
   }
 
+  /**
+   * Returns the ETag and the digest of the cached source of the given resource, or <code>null</code> if the source isn't cached with an ETag.
+   */
+  private static String getManifestEntry(URIConverter uriConverter, URI uri)
+  {
+    URI cacheURI = ECFURIHandlerImpl.getCacheFile(uri);
+    String eTag = ECFURIHandlerImpl.getETag(uriConverter, cacheURI);
+    if (eTag == null)
+    {
+      return null;
+    }
+
+    InputStream inputStream = null;
+
+    try
+    {
+      inputStream = new FileInputStream(cacheURI.toFileString());
+      return eTag + " " + HexUtil.bytesToHex(IOUtil.getSHA1(inputStream)); //$NON-NLS-1$
+    }
+    catch (Exception ex)
+    {
+      return null;
+    }
+    finally
+    {
+      IOUtil.closeSilent(inputStream);
+    }
+  }
+
+  /**
+   * Returns the manifest entry of the given resource, i.e., the ETag and the digest of its cached source,
+   * followed by the digest of the locations to which the URI map maps the resources that it references,
+   * because the references are serialized relative to these locations.
+   * Returns <code>null</code> if the source isn't cached with an ETag.
+   */
+  private static String getManifestEntry(URIConverter uriConverter, URI uri, Resource resource)
+  {
+    String manifestEntry = getManifestEntry(uriConverter, uri);
+    if (manifestEntry == null)
+    {
+      return null;
+    }
+
+    Set<String> references = new TreeSet<>();
+    for (EObject eObject : EcoreUtil.ExternalCrossReferencer.find(resource).keySet())
+    {
+      Resource referencedResource = eObject.eResource();
+      URI referencedURI = referencedResource != null ? referencedResource.getURI() : EcoreUtil.getURI(eObject).trimFragment();
+      references.add(referencedURI + " " + uriConverter.normalize(referencedURI)); //$NON-NLS-1$
+    }
+
+    String referencesDigest = getDigest(references);
+    if (referencesDigest == null)
+    {
+      return null;
+    }
+
+    return manifestEntry + " " + referencesDigest; //$NON-NLS-1$
+  }
+
+  /**
+   * Returns the digest of the given manifest entries, or <code>null</code> if it can't be computed.
+   */
+  private static String getDigest(Set<String> entries)
+  {
+    StringBuilder builder = new StringBuilder();
+    for (String entry : entries)
+    {
+      builder.append(entry).append('\n');
+    }
+
+    try
+    {
+      return HexUtil.bytesToHex(IOUtil.getSHA1(builder.toString()));
+    }
+    catch (Exception ex)
+    {
+      return null;
+    }
+  }
+
   private boolean isDamaged(File file)
   {
     if (file == null || !file.exists())
@@ -30,6 +30,7 @@ import org.eclipse.oomph.setup.AnnotationConstants;
 import org.eclipse.oomph.setup.Argument;
 import org.eclipse.oomph.setup.AttributeRule;
 import org.eclipse.oomph.setup.CompoundTask;
+import org.eclipse.oomph.setup.ConcurrentSetupTask;
 import org.eclipse.oomph.setup.EAnnotationConstants;
 import org.eclipse.oomph.setup.EclipseIniTask;
 import org.eclipse.oomph.setup.Installation;
@@ -60,6 +61,7 @@ import org.eclipse.oomph.setup.VariableTask;
 import org.eclipse.oomph.setup.VariableType;
 import org.eclipse.oomph.setup.Workspace;
 import org.eclipse.oomph.setup.WorkspaceTask;
+import org.eclipse.oomph.setup.impl.PreferenceTaskImpl;
 import org.eclipse.oomph.setup.impl.SetupTaskImpl;
 import org.eclipse.oomph.setup.internal.core.util.Authenticator;
 import org.eclipse.oomph.setup.internal.core.util.SetupCoreUtil;
@@ -72,6 +74,7 @@ import org.eclipse.oomph.setup.p2.impl.P2TaskImpl;
 import org.eclipse.oomph.setup.util.SetupUtil;
 import org.eclipse.oomph.setup.util.StringExpander;
 import org.eclipse.oomph.util.CollectionUtil;
+import org.eclipse.oomph.util.DaemonThreadFactory;
 import org.eclipse.oomph.util.IORuntimeException;
 import org.eclipse.oomph.util.IOUtil;
 import org.eclipse.oomph.util.MonitorUtil;
@@ -130,6 +133,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactRepository;
 import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
@@ -154,7 +158,10 @@ import java.io.PrintStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -163,6 +170,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -172,6 +181,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -204,6 +218,20 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
 
   private static final ThreadLocal<IProgressMonitor> CREATION_MONITOR = new ThreadLocal<>();
 
+  /**
+   * The maximum number of {@link ConcurrentSetupTask concurrent setup tasks} that are performed at the same time; 1 or less disables the concurrency.
+   */
+  private static final int MAX_CONCURRENT_TASKS = PropertiesUtil.getProperty("oomph.setup.perform.max.threads", 4); //$NON-NLS-1$
+
+  private static final String AUTO_BUILDING_PREFERENCE_KEY = "/instance/org.eclipse.core.resources/description.autobuilding"; //$NON-NLS-1$
+
+  /**
+   * The minimum time in milliseconds that a check whether a task is needed must take to be logged.
+   */
+  private static final long NEEDED_CHECK_LOG_THRESHOLD = 100;
+
+  private static final ThreadFactory CONCURRENT_TASK_THREAD_FACTORY = new DaemonThreadFactory("Oomph Setup Task Performer"); //$NON-NLS-1$
+
   private final Set<String> filterProperties = new LinkedHashSet<>();
 
   private ProgressLog progress;
@@ -220,6 +248,11 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
 
   private EList<SetupTask> neededSetupTasks;
 
+  /**
+   * The explicit dependencies of the triggered tasks, before {@link #reorderSetupTasks(EList)} chains them up.
+   */
+  private Map<SetupTask, Set<SetupTask>> setupTaskDependencies = Collections.emptyMap();
+
   private final Set<Bundle> bundles = new LinkedHashSet<>();
 
   /**
@@ -233,6 +266,11 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
 
   private final ProgressLogFilter logFilter = new ProgressLogFilter();
 
+  /**
+   * Serializes the logging and all calls to the {@link #createConcurrentContext() view} of this performer that concurrently processed tasks get.
+   */
+  private final Object contextLock = new Object();
+
   private IProgressMonitor progressMonitor;
 
   private final List<EStructuralFeature.Setting> unresolvedSettings = new ArrayList<>();
@@ -2279,11 +2317,23 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
 
         try
         {
-          for (Iterator<SetupTask> it = triggeredSetupTasks.iterator(); it.hasNext();)
+          long start = System.currentTimeMillis();
+
+          for (int i = 0, size = triggeredSetupTasks.size(); i < size;)
           {
-            SetupTask setupTask = it.next();
             checkCancelation();
+
+            Map<SetupTask, ISchedulingRule> concurrentTasks = getConcurrentSetupTasks(triggeredSetupTasks, i, false);
+            if (concurrentTasks.size() > 1)
+            {
+              i += concurrentTasks.size();
+              initConcurrentNeededSetupTasks(concurrentTasks, monitor);
+              continue;
+            }
+
+            SetupTask setupTask = triggeredSetupTasks.get(i++);
             progressMonitor = MonitorUtil.create(monitor, 1);
+            long taskStart = System.currentTimeMillis();
 
             try
             {
@@ -2301,8 +2351,11 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
             {
               progressMonitor.done();
               progressMonitor = null;
+              logNeededCheck(setupTask, System.currentTimeMillis() - taskStart);
             }
           }
+
+          log(NLS.bind(Messages.SetupTaskPerformer_NeededChecks_message, triggeredSetupTasks.size(), System.currentTimeMillis() - start), false, Severity.INFO);
         }
         finally
         {
@@ -2420,50 +2473,54 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
   @Override
   public void log(String line, boolean filter, Severity severity)
   {
-    if (progress != null)
+    // Concurrently performed tasks log from their worker threads.
+    synchronized (contextLock)
     {
-      if (logMessageBuffer != null)
+      if (progress != null)
       {
-        for (Object value : logMessageBuffer)
+        if (logMessageBuffer != null)
         {
-          String bufferedLine;
-          Severity bufferedSeverity;
-          if (value instanceof String)
+          for (Object value : logMessageBuffer)
           {
-            bufferedLine = (String)value;
-            bufferedSeverity = Severity.OK;
-          }
-          else
-          {
-            @SuppressWarnings("unchecked")
-            Pair<String, Severity> pair = (Pair<String, Severity>)value;
+            String bufferedLine;
+            Severity bufferedSeverity;
+            if (value instanceof String)
+            {
+              bufferedLine = (String)value;
+              bufferedSeverity = Severity.OK;
+            }
+            else
+            {
+              @SuppressWarnings("unchecked")
+              Pair<String, Severity> pair = (Pair<String, Severity>)value;
 
-            bufferedLine = pair.getElement1();
-            bufferedSeverity = pair.getElement2();
+              bufferedLine = pair.getElement1();
+              bufferedSeverity = pair.getElement2();
+            }
+
+            doLog(bufferedLine, filter, bufferedSeverity);
           }
 
-          doLog(bufferedLine, filter, bufferedSeverity);
+          logMessageBuffer = null;
         }
 
-        logMessageBuffer = null;
-      }
-
-      doLog(line, filter, severity);
-    }
-    else
-    {
-      if (logMessageBuffer == null)
-      {
-        logMessageBuffer = new ArrayList<>();
-      }
-
-      if (severity == Severity.OK)
-      {
-        logMessageBuffer.add(line);
+        doLog(line, filter, severity);
       }
       else
       {
-        logMessageBuffer.add(Pair.create(line, severity));
+        if (logMessageBuffer == null)
+        {
+          logMessageBuffer = new ArrayList<>();
+        }
+
+        if (severity == Severity.OK)
+        {
+          logMessageBuffer.add(line);
+        }
+        else
+        {
+          logMessageBuffer.add(Pair.create(line, severity));
+        }
       }
     }
   }
@@ -2881,19 +2938,8 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
       return null;
     }
 
-    Set<String> result = new LinkedHashSet<>();
-    for (Matcher matcher = STRING_EXPANSION_PATTERN.matcher(string); matcher.find();)
-    {
-      String key = matcher.group(1);
-      if (!"$".equals(key)) //$NON-NLS-1$
-      {
-        key = matcher.group(2);
-      }
-
-      result.add(key);
-    }
-
-    return result;
+    // The keys of the compiled string are cached and unmodifiable.
+    return new LinkedHashSet<>(StringExpander.getKeys(string));
   }
 
   public static boolean isFilterUsed(String name, EObject eObject)
@@ -3834,16 +3880,37 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
 
       monitor.beginTask("", totalWork); //$NON-NLS-1$
 
-      for (SetupTask neededTask : neededSetupTasks)
+      for (int i = 0, size = neededSetupTasks.size(); i < size;)
       {
+        SetupTask neededTask = neededSetupTasks.get(i);
         checkCancelation();
 
-        // Once we're past all the installation priority tasks that might cause restart reasons and there are restart reasons, stop performing.
-        if (trigger != Trigger.BOOTSTRAP && neededTask.getPriority() >= SetupTask.PRIORITY_CONFIGURATION && !getRestartReasons().isEmpty())
+        if (isRestartCutOff(trigger, neededTask))
         {
           break;
         }
 
+        Map<SetupTask, ISchedulingRule> concurrentTasks = getConcurrentSetupTasks(neededSetupTasks, i, true);
+        if (concurrentTasks.size() > 1)
+        {
+          i += concurrentTasks.size();
+          if (!performConcurrentSetupTasks(trigger, concurrentTasks, monitor))
+          {
+            break;
+          }
+
+          continue;
+        }
+
+        List<PreferenceTaskImpl> preferenceTasks = getPreferenceTasks(neededSetupTasks, i);
+        if (preferenceTasks.size() > 1)
+        {
+          i += preferenceTasks.size();
+          performPreferenceTasks(preferenceTasks, monitor);
+          continue;
+        }
+
+        ++i;
         task(neededTask);
 
         int work = Math.max(0, neededTask.getProgressMonitorWork());
@@ -3857,7 +3924,7 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
           if (neededTask instanceof PreferenceTask)
           {
             PreferenceTask preferenceTask = (PreferenceTask)neededTask;
-            if ("/instance/org.eclipse.core.resources/description.autobuilding".equals(preferenceTask.getKey())) //$NON-NLS-1$
+            if (AUTO_BUILDING_PREFERENCE_KEY.equals(preferenceTask.getKey()))
             {
               String value = preferenceTask.getValue();
               autoBuilding = value == null ? Boolean.TRUE : Boolean.valueOf(value);
@@ -4379,6 +4446,229 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
     return list;
   }
 
+  /**
+   * Once we're past all the installation priority tasks that might cause restart reasons and there are restart reasons, stop performing.
+   */
+  private boolean isRestartCutOff(Trigger trigger, SetupTask neededTask)
+  {
+    return trigger != Trigger.BOOTSTRAP && neededTask.getPriority() >= SetupTask.PRIORITY_CONFIGURATION && !getRestartReasons().isEmpty();
+  }
+
+  /**
+   * Returns the run of tasks, starting at the given index, that can be processed concurrently, along with their rules.
+   */
+  private Map<SetupTask, ISchedulingRule> getConcurrentSetupTasks(List<SetupTask> setupTasks, int index, boolean samePriority)
+  {
+    Map<SetupTask, ISchedulingRule> result = new LinkedHashMap<>();
+    if (MAX_CONCURRENT_TASKS > 1)
+    {
+      int priority = setupTasks.get(index).getPriority();
+      for (int i = index, size = setupTasks.size(); i < size; ++i)
+      {
+        SetupTask setupTask = setupTasks.get(i);
+        if (samePriority && setupTask.getPriority() != priority || !(setupTask instanceof ConcurrentSetupTask))
+        {
+          break;
+        }
+
+        ISchedulingRule rule = ((ConcurrentSetupTask)setupTask).getConcurrencyRule(this);
+        if (rule == null)
+        {
+          break;
+        }
+
+        result.put(setupTask, rule);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Performs the given tasks in a pool of worker threads.
+   *
+   * @return <code>false</code> if the restart cut-off has been reached, <code>true</code> otherwise.
+   */
+  private boolean performConcurrentSetupTasks(final Trigger trigger, Map<SetupTask, ISchedulingRule> concurrentTasks, final IProgressMonitor monitor)
+      throws Exception
+  {
+    return new ConcurrentSetupTaskRunner(this)
+    {
+      @Override
+      protected boolean isCutOff(SetupTask setupTask)
+      {
+        return isRestartCutOff(trigger, setupTask);
+      }
+
+      @Override
+      protected Set<SetupTask> getDependencies(SetupTask setupTask)
+      {
+        return getTransitiveDependencies(setupTask);
+      }
+
+      @Override
+      protected void started(SetupTask setupTask)
+      {
+        task(setupTask);
+      }
+
+      @Override
+      protected Object call(SetupTask setupTask, SetupTaskContext context) throws Exception
+      {
+        try
+        {
+          setupTask.perform(context);
+          setupTask.dispose();
+        }
+        catch (NoClassDefFoundError ex)
+        {
+          log(ex);
+        }
+
+        return null;
+      }
+
+      @Override
+      protected void finished(SetupTask setupTask, Object result, long elapsed)
+      {
+        monitor.worked(Math.max(0, setupTask.getProgressMonitorWork()));
+      }
+    }.run(concurrentTasks);
+  }
+
+  /**
+   * Returns the run of preference tasks, starting at the given index, that can be performed in a single batch.
+   * The auto-building preference is handled specially.
+   * Preference tasks don't cause restart reasons, so the restart cut-off, which is checked before the first task, applies to the whole batch.
+   */
+  public static List<PreferenceTaskImpl> getPreferenceTasks(List<SetupTask> setupTasks, int index)
+  {
+    List<PreferenceTaskImpl> result = new ArrayList<>();
+    for (int i = index, size = setupTasks.size(); i < size; ++i)
+    {
+      SetupTask setupTask = setupTasks.get(i);
+      if (!(setupTask instanceof PreferenceTaskImpl) || AUTO_BUILDING_PREFERENCE_KEY.equals(((PreferenceTask)setupTask).getKey()))
+      {
+        break;
+      }
+
+      result.add((PreferenceTaskImpl)setupTask);
+    }
+
+    return result;
+  }
+
+  /**
+   * Performs the given preference tasks in a single batch so that each modified preference node is flushed only once.
+   */
+  private void performPreferenceTasks(List<PreferenceTaskImpl> preferenceTasks, IProgressMonitor monitor) throws Exception
+  {
+    int work = 0;
+    for (PreferenceTaskImpl preferenceTask : preferenceTasks)
+    {
+      task(preferenceTask);
+      work += Math.max(0, preferenceTask.getProgressMonitorWork());
+    }
+
+    progressMonitor = MonitorUtil.create(monitor, work);
+
+    try
+    {
+      PreferenceTaskImpl.perform(this, preferenceTasks);
+
+      for (PreferenceTaskImpl preferenceTask : preferenceTasks)
+      {
+        preferenceTask.dispose();
+      }
+    }
+    catch (NoClassDefFoundError ex)
+    {
+      log(ex);
+    }
+    finally
+    {
+      progressMonitor.done();
+      progressMonitor = null;
+    }
+  }
+
+  /**
+   * Checks in a pool of worker threads whether the given tasks are needed and adds the needed ones in their original order.
+   */
+  private void initConcurrentNeededSetupTasks(Map<SetupTask, ISchedulingRule> concurrentTasks, final IProgressMonitor monitor) throws Exception
+  {
+    final Set<SetupTask> needed = new HashSet<>();
+    new ConcurrentSetupTaskRunner(this)
+    {
+      @Override
+      protected Object call(SetupTask setupTask, SetupTaskContext context) throws Exception
+      {
+        try
+        {
+          return setupTask.isNeeded(context);
+        }
+        catch (NoClassDefFoundError ex)
+        {
+          // Don't perform tasks that can't load their enabling dependencies
+          SetupCorePlugin.INSTANCE.log(ex);
+          return false;
+        }
+      }
+
+      @Override
+      protected void finished(SetupTask setupTask, Object result, long elapsed)
+      {
+        if (Boolean.TRUE.equals(result))
+        {
+          needed.add(setupTask);
+        }
+
+        logNeededCheck(setupTask, elapsed);
+        monitor.worked(1);
+      }
+    }.run(concurrentTasks);
+
+    for (SetupTask setupTask : concurrentTasks.keySet())
+    {
+      if (needed.contains(setupTask))
+      {
+        neededSetupTasks.add(setupTask);
+      }
+    }
+  }
+
+  private void logNeededCheck(SetupTask setupTask, long elapsed)
+  {
+    if (elapsed >= NEEDED_CHECK_LOG_THRESHOLD)
+    {
+      log(NLS.bind(Messages.SetupTaskPerformer_NeededCheck_message, getLabel(setupTask), elapsed), false, Severity.INFO);
+    }
+  }
+
+  private Set<SetupTask> getTransitiveDependencies(SetupTask setupTask)
+  {
+    Set<SetupTask> result = new HashSet<>();
+    List<SetupTask> queue = new ArrayList<>();
+    queue.add(setupTask);
+
+    for (int i = 0; i < queue.size(); ++i)
+    {
+      Set<SetupTask> dependencies = setupTaskDependencies.get(queue.get(i));
+      if (dependencies != null)
+      {
+        for (SetupTask dependency : dependencies)
+        {
+          if (result.add(dependency))
+          {
+            queue.add(dependency);
+          }
+        }
+      }
+    }
+
+    return result;
+  }
+
   private void reorderSetupTasks(EList<SetupTask> setupTasks)
   {
     ECollections.sort(setupTasks, new Comparator<SetupTask>()
@@ -4410,6 +4700,8 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
       }
     });
 
+    setupTaskDependencies = dependencies;
+
     // Set up the predecessor dependencies so these tasks will not be reordered relative to each other when they are merged with tasks from other streams.
     SetupTask previousSetupTask = null;
     for (SetupTask setupTask : setupTasks)
@@ -5125,6 +5417,237 @@ public class SetupTaskPerformer extends AbstractSetupTaskContext
     }
   }
 
+  /**
+   * Returns a view of this performer for the worker threads of a {@link ConcurrentSetupTaskRunner}.
+   * The state of this performer isn't thread-safe, so the view serializes all calls,
+   * and only the tasks' own work, e.g., their file I/O, is done in parallel.
+   */
+  private SetupTaskContext createConcurrentContext()
+  {
+    return (SetupTaskContext)Proxy.newProxyInstance(SetupTaskContext.class.getClassLoader(), new Class<?>[] { SetupTaskContext.class }, new InvocationHandler()
+    {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+      {
+        synchronized (contextLock)
+        {
+          try
+          {
+            return method.invoke(SetupTaskPerformer.this, args);
+          }
+          catch (InvocationTargetException ex)
+          {
+            throw ex.getCause();
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs an action for {@link ConcurrentSetupTask concurrent setup tasks} in a pool of worker threads.
+   * A task is started only when it doesn't depend on a task that isn't finished yet
+   * and when its rule doesn't conflict with the rule of a running task or of a preceding task that isn't started yet,
+   * so tasks for the same location are still processed in their original order.
+   * No further task is started once a task has failed, the performer has been canceled, or a task has been cut off,
+   * but the running tasks are always awaited.
+   * The callbacks other than {@link #call(SetupTask, SetupTaskContext)} are invoked on the calling thread.
+   *
+   * @author Eike Stepper
+   */
+  private abstract static class ConcurrentSetupTaskRunner
+  {
+    private final SetupTaskPerformer performer;
+
+    public ConcurrentSetupTaskRunner(SetupTaskPerformer performer)
+    {
+      this.performer = performer;
+    }
+
+    protected boolean isCutOff(SetupTask setupTask)
+    {
+      return false;
+    }
+
+    protected Set<SetupTask> getDependencies(SetupTask setupTask)
+    {
+      return Collections.emptySet();
+    }
+
+    protected void started(SetupTask setupTask)
+    {
+    }
+
+    /**
+     * Called on a worker thread with a context that serializes its calls with the other worker threads and with the other callbacks.
+     */
+    protected abstract Object call(SetupTask setupTask, SetupTaskContext context) throws Exception;
+
+    protected abstract void finished(SetupTask setupTask, Object result, long elapsed);
+
+    /**
+     * @return <code>false</code> if a task has been cut off, <code>true</code> otherwise.
+     */
+    public boolean run(Map<SetupTask, ISchedulingRule> concurrentTasks) throws Exception
+    {
+      List<SetupTask> pendingTasks = new ArrayList<>(concurrentTasks.keySet());
+      Map<SetupTask, ISchedulingRule> runningTasks = new LinkedHashMap<>();
+      final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+      Map<SetupTask, Set<SetupTask>> dependencies = new HashMap<>();
+      for (SetupTask setupTask : pendingTasks)
+      {
+        dependencies.put(setupTask, getDependencies(setupTask));
+      }
+
+      final SetupTaskContext context = performer.createConcurrentContext();
+      int threads = Math.min(MAX_CONCURRENT_TASKS, pendingTasks.size());
+      ExecutorService executor = Executors.newFixedThreadPool(threads, CONCURRENT_TASK_THREAD_FACTORY);
+      Throwable failure = null;
+      boolean cutOff = false;
+
+      try
+      {
+        while (!pendingTasks.isEmpty() || !runningTasks.isEmpty())
+        {
+          if (failure == null && !cutOff && !performer.isCanceled())
+          {
+            List<SetupTask> precedingTasks = new ArrayList<>();
+            for (Iterator<SetupTask> it = pendingTasks.iterator(); it.hasNext() && runningTasks.size() < threads;)
+            {
+              final SetupTask setupTask = it.next();
+              if (isCutOff(setupTask))
+              {
+                cutOff = true;
+                break;
+              }
+
+              ISchedulingRule rule = concurrentTasks.get(setupTask);
+              if (canStart(rule, dependencies.get(setupTask), precedingTasks, runningTasks, concurrentTasks))
+              {
+                it.remove();
+                runningTasks.put(setupTask, rule);
+                synchronized (performer.contextLock)
+                {
+                  started(setupTask);
+                }
+
+                executor.execute(new Runnable()
+                {
+                  @Override
+                  public void run()
+                  {
+                    long start = System.currentTimeMillis();
+                    Object result = null;
+                    Throwable throwable = null;
+
+                    try
+                    {
+                      result = call(setupTask, context);
+                    }
+                    catch (Throwable ex)
+                    {
+                      throwable = ex;
+                    }
+
+                    completions.add(new Completion(setupTask, result, throwable, System.currentTimeMillis() - start));
+                  }
+                });
+              }
+              else
+              {
+                precedingTasks.add(setupTask);
+              }
+            }
+          }
+
+          if (runningTasks.isEmpty())
+          {
+            break;
+          }
+
+          Completion completion = completions.take();
+          runningTasks.remove(completion.setupTask);
+
+          if (completion.throwable != null)
+          {
+            if (failure == null)
+            {
+              failure = completion.throwable;
+            }
+          }
+          else
+          {
+            synchronized (performer.contextLock)
+            {
+              finished(completion.setupTask, completion.result, completion.elapsed);
+            }
+          }
+        }
+      }
+      finally
+      {
+        executor.shutdown();
+      }
+
+      if (failure instanceof Exception)
+      {
+        throw (Exception)failure;
+      }
+
+      if (failure instanceof Error)
+      {
+        throw (Error)failure;
+      }
+
+      performer.checkCancelation();
+      return !cutOff;
+    }
+
+    private static boolean canStart(ISchedulingRule rule, Set<SetupTask> dependencies, List<SetupTask> precedingTasks,
+        Map<SetupTask, ISchedulingRule> runningTasks, Map<SetupTask, ISchedulingRule> concurrentTasks)
+    {
+      for (SetupTask precedingTask : precedingTasks)
+      {
+        if (dependencies.contains(precedingTask) || rule.isConflicting(concurrentTasks.get(precedingTask)))
+        {
+          return false;
+        }
+      }
+
+      for (Map.Entry<SetupTask, ISchedulingRule> entry : runningTasks.entrySet())
+      {
+        if (dependencies.contains(entry.getKey()) || rule.isConflicting(entry.getValue()))
+        {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * @author Eike Stepper
+     */
+    private static final class Completion
+    {
+      private final SetupTask setupTask;
+
+      private final Object result;
+
+      private final Throwable throwable;
+
+      private final long elapsed;
+
+      public Completion(SetupTask setupTask, Object result, Throwable throwable, long elapsed)
+      {
+        this.setupTask = setupTask;
+        this.result = result;
+        this.throwable = throwable;
+        this.elapsed = elapsed;
+      }
+    }
+  }
+
   private static class PDEAPIUtil
   {
     private static final Field BUILD_DISABLED_FIELD;
@@ -36,6 +36,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -52,6 +53,11 @@ public class StringFilterRegistry
 
   private final Map<String, StringFilter> filters = new HashMap<>();
 
+  /**
+   * The filters and their arguments per filter name, as used in variable references, so that each name is looked up only once.
+   */
+  private final Map<String, BoundFilter> boundFilters = new ConcurrentHashMap<>();
+
   private StringFilterRegistry()
   {
     registerFilter(new DocumentedStringFilter()
@@ -1000,6 +1006,21 @@ public class StringFilterRegistry
   }
 
   public String filter(String value, String filterName)
+  {
+    BoundFilter boundFilter = boundFilters.get(filterName);
+    if (boundFilter == null)
+    {
+      synchronized (filters)
+      {
+        boundFilter = bind(filterName);
+        boundFilters.put(filterName, boundFilter);
+      }
+    }
+
+    return boundFilter.filter(value);
+  }
+
+  private BoundFilter bind(String filterName)
   {
     StringFilter filter = filters.get(filterName.toLowerCase());
     if (filter == null)
@@ -1010,15 +1031,14 @@ public class StringFilterRegistry
         filter = filters.get(filterName.substring(0, argumentIndex).toLowerCase());
         if (filter instanceof ParameterizedStringFilter)
         {
-          ParameterizedStringFilter parameterizedStringFilter = (ParameterizedStringFilter)filter;
-          return parameterizedStringFilter.filter(value, filterName.substring(argumentIndex + 1));
+          return new BoundFilter(filter, filterName.substring(argumentIndex + 1));
         }
       }
 
-      return value;
+      return BoundFilter.IDENTITY;
     }
 
-    return filter.filter(value);
+    return new BoundFilter(filter, null);
   }
 
   void initContributions()
@@ -1055,21 +1075,65 @@ public class StringFilterRegistry
 
   private void registerFilter(String filterName, StringFilter filter)
   {
-    filters.put(filterName.toLowerCase(), filter);
+    synchronized (filters)
+    {
+      filters.put(filterName.toLowerCase(), filter);
+      boundFilters.clear();
+    }
   }
 
   private void registerFilter(StringFilterDocumentation filter)
   {
-    String name = filter.getName().toLowerCase();
-    filters.put(name, (StringFilter)filter);
+    synchronized (filters)
+    {
+      String name = filter.getName().toLowerCase();
+      filters.put(name, (StringFilter)filter);
+
+      String[] deprecations = filter.getDeprecations();
+      if (deprecations != null)
+      {
+        for (String deprecatedName : deprecations)
+        {
+          filters.put(deprecatedName.toLowerCase(), (StringFilter)filter);
+        }
+      }
+
+      boundFilters.clear();
+    }
+  }
+
+  /**
+   * A filter along with the argument of a parameterized filter.
+   *
+   * @author Eike Stepper
+   */
+  private static final class BoundFilter
+  {
+    private static final BoundFilter IDENTITY = new BoundFilter(null, null);
 
-    String[] deprecations = filter.getDeprecations();
-    if (deprecations != null)
+    private final StringFilter filter;
+
+    private final String argument;
+
+    public BoundFilter(StringFilter filter, String argument)
+    {
+      this.filter = filter;
+      this.argument = argument;
+    }
+
+    public String filter(String value)
     {
-      for (String deprecatedName : deprecations)
+      if (filter == null)
       {
-        filters.put(deprecatedName.toLowerCase(), (StringFilter)filter);
+        return value;
       }
+
+      if (argument != null)
+      {
+        return ((ParameterizedStringFilter)filter).filter(value, argument);
+      }
+
+      return filter.filter(value);
     }
   }
 
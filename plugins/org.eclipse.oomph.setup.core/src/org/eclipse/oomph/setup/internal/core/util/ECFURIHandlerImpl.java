@@ -83,6 +83,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -94,6 +95,7 @@ import java.net.SocketTimeoutException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -136,6 +138,8 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
 
   private static final String FAILED_EXPECTED_ETAG = "-1"; //$NON-NLS-1$
 
+  private static final String OPTION_REVALIDATE = "OPTION_REVALIDATE"; //$NON-NLS-1$
+
   private static final URI CACHE_FOLDER = SetupContext.GLOBAL_STATE_LOCATION_URI.appendSegment("cache"); //$NON-NLS-1$
 
   private static final Map<URI, String> EXPECTED_ETAGS = new HashMap<>();
@@ -369,6 +373,13 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
   }
 
   public static Set<? extends URI> clearExpectedETags()
+  {
+    // Cached resources that have been validated before are no longer considered fresh.
+    CacheFreshness.revalidateAll();
+    return basicClearExpectedETags();
+  }
+
+  private static Set<? extends URI> basicClearExpectedETags()
   {
     Set<URI> result;
     synchronized (EXPECTED_ETAGS)
@@ -840,6 +851,10 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
 
     public long lastModified;
 
+    public String cacheControl;
+
+    public boolean notModified;
+
     public Exception exception;
 
     private IProgressMonitor monitor;
@@ -888,6 +903,7 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
         if (responseHeaders != null)
         {
           eTag = getValue(responseHeaders, "ETag"); //$NON-NLS-1$
+          cacheControl = getValue(responseHeaders, "Cache-Control"); //$NON-NLS-1$
 
           String lastModifiedValue = getValue(responseHeaders, "Last-Modified"); //$NON-NLS-1$
           if (lastModifiedValue != null)
@@ -914,6 +930,7 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
 
           if (expectedETag != null && expectedETag.equals(eTag))
           {
+            notModified = true;
             receiveStartEvent.cancel();
 
             // Older versions of ECF don't produce a IIncomingFileTransferReceiveDoneEvent.
@@ -1087,6 +1104,14 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
       return ((IncomingFileTransferException)exception).getErrorCode();
     }
 
+    /**
+     * Returns whether the server confirmed that the cached resource with the {@link #expectedETag expected ETag} is still current.
+     */
+    public boolean isNotModified()
+    {
+      return notModified || hasTransferException() && getErrorCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
     /**
      * @author Ed Merks
      */
@@ -1272,7 +1297,7 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
       OPTIONS = resourceSet.getLoadOptions();
       OPTIONS.put(OPTION_CACHE_HANDLING, CacheHandling.CACHE_WITH_ETAG_CHECKING);
       URI_CONVERTER = resourceSet.getURIConverter();
-      clearExpectedETags();
+      basicClearExpectedETags();
     }
 
     private Set<? extends URI> uris;
@@ -1373,6 +1398,320 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
     }
   }
 
+  /**
+   * The freshness of a cached resource, as declared by the <code>Cache-Control</code> header of the response that last validated it.
+   * It's stored next to the cached resource, so all processes that share the cache folder benefit from it.
+   * Without a <code>max-age</code> directive, the resource is fresh for <code>oomph.setup.ecf.cache.max.age</code> seconds (default 0)
+   * and may be used while it's revalidated for another <code>oomph.setup.ecf.cache.stale.while.revalidate</code> seconds (default 0).
+   * A resource that isn't found isn't requested again for <code>oomph.setup.ecf.cache.missing.max.age</code> seconds (default 60).
+   * A response with a <code>no-store</code> directive isn't cached at all.
+   *
+   * @author Ed Merks
+   */
+  private static final class CacheFreshness
+  {
+    private static final long DEFAULT_MAX_AGE = 1000L * PropertiesUtil.getProperty(SetupProperties.PROP_SETUP_ECF_CACHE_MAX_AGE, 0);
+
+    private static final long DEFAULT_STALE_WHILE_REVALIDATE = 1000L * PropertiesUtil.getProperty(SetupProperties.PROP_SETUP_ECF_CACHE_STALE_WHILE_REVALIDATE, 0);
+
+    private static final long MISSING_MAX_AGE = 1000L * PropertiesUtil.getProperty(SetupProperties.PROP_SETUP_ECF_CACHE_MISSING_MAX_AGE, 60);
+
+    private static final Set<URI> REVALIDATIONS = new LinkedHashSet<>();
+
+    private static Job revalidationJob;
+
+    private static volatile long revalidationTime;
+
+    private final long validated;
+
+    private final long maxAge;
+
+    private final long staleWhileRevalidate;
+
+    private CacheFreshness(long validated, long maxAge, long staleWhileRevalidate)
+    {
+      this.validated = validated;
+      this.maxAge = maxAge;
+      this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    public boolean isFresh(long now)
+    {
+      return validated >= revalidationTime && now - validated < maxAge;
+    }
+
+    public boolean isStaleWhileRevalidate(long now)
+    {
+      return validated >= revalidationTime && now - validated < maxAge + staleWhileRevalidate;
+    }
+
+    @Override
+    public String toString()
+    {
+      return validated + " " + maxAge + " " + staleWhileRevalidate; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    public static CacheFreshness get(URIConverter uriConverter, URI cacheURI)
+    {
+      String value = readFile(uriConverter, cacheURI.appendFileExtension("freshness")); //$NON-NLS-1$
+      if (value != null)
+      {
+        try
+        {
+          String[] values = value.split(" "); //$NON-NLS-1$
+          return new CacheFreshness(Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2]));
+        }
+        catch (RuntimeException ex)
+        {
+          // If the freshness is damaged, the cached resource is revalidated.
+        }
+      }
+
+      return null;
+    }
+
+    /**
+     * Records that the cached resource has just been validated by a response with the given <code>Cache-Control</code> header.
+     * A not modified response without that header retains the directives of the previous validation.
+     */
+    public static void setValidated(URIConverter uriConverter, URI cacheURI, String cacheControl, boolean notModified)
+    {
+      URI file = cacheURI.appendFileExtension("freshness"); //$NON-NLS-1$
+      if (isNoStore(cacheControl))
+      {
+        // The cached resource, which may just be in use, is removed when the resource is received again.
+        deleteFile(uriConverter, file);
+        return;
+      }
+
+      long maxAge = DEFAULT_MAX_AGE;
+      long staleWhileRevalidate = DEFAULT_STALE_WHILE_REVALIDATE;
+
+      if (cacheControl != null)
+      {
+        boolean mustRevalidate = false;
+        for (String directive : cacheControl.toLowerCase().split(",")) //$NON-NLS-1$
+        {
+          directive = directive.trim();
+          if (directive.equals("no-cache")) //$NON-NLS-1$
+          {
+            maxAge = 0;
+            mustRevalidate = true;
+            break;
+          }
+
+          if (directive.equals("must-revalidate")) //$NON-NLS-1$
+          {
+            mustRevalidate = true;
+          }
+          else if (directive.startsWith("max-age=")) //$NON-NLS-1$
+          {
+            maxAge = parseSeconds(directive, maxAge);
+          }
+          else if (directive.startsWith("stale-while-revalidate=")) //$NON-NLS-1$
+          {
+            staleWhileRevalidate = parseSeconds(directive, staleWhileRevalidate);
+          }
+        }
+
+        if (mustRevalidate)
+        {
+          staleWhileRevalidate = 0;
+        }
+      }
+      else if (notModified)
+      {
+        CacheFreshness previous = get(uriConverter, cacheURI);
+        if (previous != null)
+        {
+          maxAge = previous.maxAge;
+          staleWhileRevalidate = previous.staleWhileRevalidate;
+        }
+      }
+
+      if (maxAge <= 0 && staleWhileRevalidate <= 0)
+      {
+        deleteFile(uriConverter, file);
+      }
+      else
+      {
+        writeFile(uriConverter, file, new CacheFreshness(System.currentTimeMillis(), Math.max(0, maxAge), Math.max(0, staleWhileRevalidate)).toString());
+      }
+    }
+
+    /**
+     * Returns whether the given <code>Cache-Control</code> header forbids storing the response.
+     */
+    public static boolean isNoStore(String cacheControl)
+    {
+      if (cacheControl != null)
+      {
+        for (String directive : cacheControl.toLowerCase().split(",")) //$NON-NLS-1$
+        {
+          if (directive.trim().equals("no-store")) //$NON-NLS-1$
+          {
+            return true;
+          }
+        }
+      }
+
+      return false;
+    }
+
+    /**
+     * Removes the cached resource, together with its ETag and its freshness.
+     */
+    public static void remove(URIConverter uriConverter, URI cacheURI)
+    {
+      for (URI file : new URI[] { cacheURI, cacheURI.appendFileExtension("etag"), cacheURI.appendFileExtension("freshness") }) //$NON-NLS-1$ //$NON-NLS-2$
+      {
+        if (uriConverter.exists(file, null))
+        {
+          deleteFile(uriConverter, file);
+        }
+      }
+    }
+
+    public static boolean isMissing(URIConverter uriConverter, URI cacheURI)
+    {
+      String value = readFile(uriConverter, cacheURI.appendFileExtension("missing")); //$NON-NLS-1$
+      if (value != null)
+      {
+        try
+        {
+          long time = Long.parseLong(value);
+          return time >= revalidationTime && System.currentTimeMillis() - time < MISSING_MAX_AGE;
+        }
+        catch (NumberFormatException ex)
+        {
+          // If the time is damaged, the resource is requested again.
+        }
+      }
+
+      return false;
+    }
+
+    public static void setMissing(URIConverter uriConverter, URI cacheURI, boolean missing)
+    {
+      URI file = cacheURI.appendFileExtension("missing"); //$NON-NLS-1$
+      if (missing)
+      {
+        if (MISSING_MAX_AGE > 0)
+        {
+          writeFile(uriConverter, file, Long.toString(System.currentTimeMillis()));
+        }
+      }
+      else if (uriConverter.exists(file, null))
+      {
+        deleteFile(uriConverter, file);
+      }
+    }
+
+    /**
+     * Ensures that all resources that have been validated or found missing so far are revalidated when they're requested again.
+     */
+    public static void revalidateAll()
+    {
+      revalidationTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Revalidates the given resource in the background, together with all other resources that are scheduled before the revalidation starts.
+     */
+    public static void scheduleRevalidation(URI uri)
+    {
+      synchronized (REVALIDATIONS)
+      {
+        if (REVALIDATIONS.add(uri) && revalidationJob == null)
+        {
+          revalidationJob = new Job(Messages.ECFURIHandlerImpl_Revalidation_job)
+          {
+            @Override
+            protected IStatus run(IProgressMonitor monitor)
+            {
+              for (;;)
+              {
+                Set<URI> uris;
+                synchronized (REVALIDATIONS)
+                {
+                  if (REVALIDATIONS.isEmpty() || monitor.isCanceled())
+                  {
+                    REVALIDATIONS.clear();
+                    revalidationJob = null;
+                    return Status.OK_STATUS;
+                  }
+
+                  uris = new LinkedHashSet<>(REVALIDATIONS);
+                  REVALIDATIONS.clear();
+                }
+
+                ETagMirror etagMirror = new ETagMirror();
+                etagMirror.options.put(OPTION_REVALIDATE, Boolean.TRUE);
+                etagMirror.begin(uris, monitor);
+              }
+            }
+          };
+
+          revalidationJob.setSystem(true);
+          revalidationJob.schedule();
+        }
+      }
+    }
+
+    private static long parseSeconds(String directive, long defaultValue)
+    {
+      try
+      {
+        return 1000L * Long.parseLong(directive.substring(directive.indexOf('=') + 1).trim());
+      }
+      catch (NumberFormatException ex)
+      {
+        return defaultValue;
+      }
+    }
+
+    private static String readFile(URIConverter uriConverter, URI file)
+    {
+      if (uriConverter.exists(file, null))
+      {
+        try
+        {
+          return new String(BaseUtil.readFile(uriConverter, null, file), StandardCharsets.UTF_8).trim();
+        }
+        catch (IORuntimeException ex)
+        {
+          // If we can't read the file, we'll just return null.
+        }
+      }
+
+      return null;
+    }
+
+    private static void writeFile(URIConverter uriConverter, URI file, String value)
+    {
+      try
+      {
+        BaseUtil.writeFile(uriConverter, null, file, value.getBytes(StandardCharsets.UTF_8));
+      }
+      catch (IORuntimeException ex)
+      {
+        // If we can't write the file, perhaps some other process is writing it, but it's expected to write a similar value.
+      }
+    }
+
+    private static void deleteFile(URIConverter uriConverter, URI file)
+    {
+      try
+      {
+        BaseUtil.deleteFile(uriConverter, null, file);
+      }
+      catch (IORuntimeException ex)
+      {
+        // If we can't delete the file, perhaps some other process is deleting it.
+      }
+    }
+  }
+
   /**
    * @author Ed Merks
    *
@@ -1447,8 +1786,9 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
         CacheHandling cacheHandling = getCacheHandling(options);
         URIConverter uriConverter = getURIConverter(options);
         URI cacheURI = getCacheFile(uri);
+        boolean revalidate = Boolean.TRUE.equals(options.get(OPTION_REVALIDATE));
         String eTag = cacheHandling == CacheHandling.CACHE_IGNORE ? null : getETag(uriConverter, cacheURI);
-        String expectedETag = cacheHandling == CacheHandling.CACHE_IGNORE ? null : getExpectedETag(uri);
+        String expectedETag = cacheHandling == CacheHandling.CACHE_IGNORE || revalidate ? null : getExpectedETag(uri);
 
         if (TRACE)
         {
@@ -1473,6 +1813,61 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
           throw EXPECTED_EXCEPTIONS.get(uri);
         }
 
+        boolean checkFreshness = cacheHandling == CacheHandling.CACHE_WITH_ETAG_CHECKING && expectedETag == null && !revalidate;
+
+        // This is a URI that recently wasn't found, possibly by another process, so fail quickly until the negative cache entry expires.
+        if (checkFreshness && CacheFreshness.isMissing(uriConverter, cacheURI))
+        {
+          if (TRACE)
+          {
+            System.out.println(tracePrefix + " recently not found"); //$NON-NLS-1$
+          }
+
+          IOException ioException = new FileNotFoundException(NLS.bind(Messages.ECFURIHandlerImpl_NotFound_exception, uri));
+          EXPECTED_EXCEPTIONS.put(uri, ioException);
+          setExpectedETag(uri, FAILED_EXPECTED_ETAG);
+          throw ioException;
+        }
+
+        // If the server declared the cached content to be fresh, there is no need to revalidate it.
+        // If it's stale but within its stale-while-revalidate window, use it and revalidate it in the background.
+        if (checkFreshness && eTag != null)
+        {
+          CacheFreshness freshness = CacheFreshness.get(uriConverter, cacheURI);
+          if (freshness != null)
+          {
+            long now = System.currentTimeMillis();
+            boolean fresh = freshness.isFresh(now);
+            if (fresh || freshness.isStaleWhileRevalidate(now))
+            {
+              if (TRACE)
+              {
+                System.out.println(tracePrefix + (fresh ? " fresh=" : " stale=") + freshness); //$NON-NLS-1$ //$NON-NLS-2$
+              }
+
+              try
+              {
+                T result = handleCache(uriConverter, cacheURI, eTag);
+                if (!fresh)
+                {
+                  CacheFreshness.scheduleRevalidation(originalURI);
+                }
+
+                return result;
+              }
+              catch (IOException ex)
+              {
+                // Perhaps another JVM is busy writing this file.
+                // Proceed to revalidate it.
+                if (TRACE)
+                {
+                  System.out.println(tracePrefix + Messages.ECFURIHandlerImpl_UnableToLoadCache_message);
+                }
+              }
+            }
+          }
+        }
+
         if (expectedETag != null || cacheHandling == CacheHandling.CACHE_ONLY || cacheHandling == CacheHandling.CACHE_WITHOUT_ETAG_CHECKING)
         {
           if (cacheHandling == CacheHandling.CACHE_ONLY || //
@@ -1799,12 +2194,23 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
             EXPECTED_EXCEPTIONS.put(uri, ioException);
             setExpectedETag(uri, FAILED_EXPECTED_ETAG);
 
+            if (!CacheHandling.CACHE_IGNORE.equals(cacheHandling) && transferListener.hasTransferException()
+                && transferListener.getErrorCode() == HttpURLConnection.HTTP_NOT_FOUND)
+            {
+              CacheFreshness.setMissing(uriConverter, cacheURI, true);
+            }
+
             throw ioException;
           }
 
           // Saves the credentials for the proxy if they've been authorized at some point during the connection processing.
           proxyWrapper.update();
 
+          if (!CacheHandling.CACHE_IGNORE.equals(cacheHandling))
+          {
+            CacheFreshness.setMissing(uriConverter, cacheURI, false);
+          }
+
           return handleResult(uriConverter, cacheURI);
         }
       }
@@ -1852,6 +2258,11 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
     {
       setExpectedETag(uri, transferListener == null ? expectedETag
           : transferListener.eTag == null ? expectedETag == null ? Long.toString(System.currentTimeMillis()) : expectedETag : transferListener.eTag);
+      if (transferListener != null && transferListener.isNotModified())
+      {
+        CacheFreshness.setValidated(uriConverter, cacheURI, transferListener.cacheControl, true);
+      }
+
       InputStream result = uriConverter.createInputStream(cacheURI, options);
       if (TRACE)
       {
@@ -1979,30 +2390,44 @@ public class ECFURIHandlerImpl extends URIHandlerImpl implements URIResolver
         }
       }
 
-      try
+      if (CacheFreshness.isNoStore(transferListener.cacheControl))
       {
-        if (TRACE)
-        {
-          System.out.println(tracePrefix + Messages.ECFURIHandlerImpl_WritingCache_message);
-        }
-
-        BaseUtil.writeFile(uriConverter, options, cacheURI, bytes);
+        // The response must not be stored, and an older copy mustn't be used instead of requesting it again.
+        CacheFreshness.remove(uriConverter, cacheURI);
+        transferListener.eTag = null;
       }
-      catch (IORuntimeException ex)
+      else
       {
-        // Ignore attempts to write out to the cache file.
-        // This may collide with another JVM doing exactly the same thing.
-        transferListener.eTag = null;
+        try
+        {
+          if (TRACE)
+          {
+            System.out.println(tracePrefix + Messages.ECFURIHandlerImpl_WritingCache_message);
+          }
 
-        if (TRACE)
+          BaseUtil.writeFile(uriConverter, options, cacheURI, bytes);
+        }
+        catch (IORuntimeException ex)
         {
-          System.out.println(tracePrefix + Messages.ECFURIHandlerImpl_FailedWritingCache_message);
-          ex.printStackTrace(System.out);
+          // Ignore attempts to write out to the cache file.
+          // This may collide with another JVM doing exactly the same thing.
+          transferListener.eTag = null;
+
+          if (TRACE)
+          {
+            System.out.println(tracePrefix + Messages.ECFURIHandlerImpl_FailedWritingCache_message);
+            ex.printStackTrace(System.out);
+          }
+        }
+        finally
+        {
+          setETag(uriConverter, cacheURI, transferListener.eTag);
         }
       }
-      finally
+
+      if (transferListener.eTag != null && getCacheHandling(options) != CacheHandling.CACHE_IGNORE)
       {
-        setETag(uriConverter, cacheURI, transferListener.eTag);
+        CacheFreshness.setValidated(uriConverter, cacheURI, transferListener.cacheControl, false);
       }
 
       setExpectedETag(uri, transferListener.eTag);
@@ -59,6 +59,8 @@ public class Messages extends NLS
 
   public static String ECFURIHandlerImpl_NetworkProblem_exception;
 
+  public static String ECFURIHandlerImpl_NotFound_exception;
+
   public static String ECFURIHandlerImpl_PostingForm_message;
 
   public static String ECFURIHandlerImpl_ProcessingForm_message;
@@ -71,6 +73,8 @@ public class Messages extends NLS
 
   public static String ECFURIHandlerImpl_ReturningSuccessfulResults_message;
 
+  public static String ECFURIHandlerImpl_Revalidation_job;
+
   public static String ECFURIHandlerImpl_UnableToLoadCache_message;
 
   public static String ECFURIHandlerImpl_UnsupportedHreadRequest_message;
@@ -36,6 +36,8 @@ import org.eclipse.osgi.util.NLS;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -52,6 +54,8 @@ public class ResourceMirror extends WorkerPool<ResourceMirror, URI, ResourceMirr
 
   private HashSet<URI> visited = new HashSet<>();
 
+  private final Set<URI> priorityURIs = Collections.synchronizedSet(new HashSet<URI>());
+
   public ResourceMirror()
   {
     this(SetupCoreUtil.createResourceSet());
@@ -136,6 +140,23 @@ public class ResourceMirror extends WorkerPool<ResourceMirror, URI, ResourceMirr
     loadOptions.remove(ECFURIHandlerImpl.OPTION_MONITOR);
   }
 
+  /**
+   * Loads the resources with the given URIs, and the resources they contain, ahead of all other resources
+   * that are scheduled but not yet loading, e.g., the catalogs that are selected in the wizard.
+   */
+  @Override
+  public void prioritize(Collection<? extends URI> uris)
+  {
+    priorityURIs.addAll(uris);
+    super.prioritize(uris);
+  }
+
+  @Override
+  protected boolean isUrgent(URI uri)
+  {
+    return priorityURIs.contains(uri);
+  }
+
   protected void resolveProxies()
   {
     IProgressMonitor monitor = getMonitor();
@@ -235,11 +256,13 @@ public class ResourceMirror extends WorkerPool<ResourceMirror, URI, ResourceMirr
     {
       Resource resource = getWorkPool().createResource(getKey());
 
-      if (!resource.isLoaded())
+      Map<Object, Object> loadOptions = getWorkPool().resourceSet.getLoadOptions();
+      if (!resource.isLoaded() && !ResourceSnapshots.load(resource, loadOptions))
       {
         try
         {
-          resource.load(getWorkPool().resourceSet.getLoadOptions());
+          resource.load(loadOptions);
+          ResourceSnapshots.save(resource, loadOptions);
         }
         catch (Throwable throwable)
         {
@@ -281,6 +304,7 @@ public class ResourceMirror extends WorkerPool<ResourceMirror, URI, ResourceMirr
     private void visit(Resource resource)
     {
       ResourceMirror workPool = getWorkPool();
+      boolean urgent = workPool.isUrgent(getKey());
       for (Iterator<EObject> it = EcoreUtil.getAllContents(resource, false); it.hasNext();)
       {
         delay();
@@ -294,6 +318,11 @@ public class ResourceMirror extends WorkerPool<ResourceMirror, URI, ResourceMirr
         if (eObject.eIsProxy())
         {
           URI proxyURI = ((InternalEObject)eObject).eProxyURI().trimFragment();
+          if (urgent)
+          {
+            workPool.priorityURIs.add(proxyURI);
+          }
+
           workPool.schedule(proxyURI, false);
         }
         else
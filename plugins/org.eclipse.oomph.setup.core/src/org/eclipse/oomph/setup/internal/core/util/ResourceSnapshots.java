@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.setup.internal.core.util;
+
+import org.eclipse.oomph.setup.SetupPackage;
+import org.eclipse.oomph.setup.internal.core.util.ECFURIHandlerImpl.CacheHandling;
+import org.eclipse.oomph.util.IOUtil;
+import org.eclipse.oomph.util.PropertiesUtil;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMLResourceImpl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshots of the remote setup resources, i.e., of the index, the catalogs, the products, and the projects.
+ * <p>
+ * A snapshot is stored next to the cached copy of its resource in the {@link ECFURIHandlerImpl ECF cache}
+ * and is valid as long as the ETag of the cached copy, or of the cached archive that contains the resource, is unchanged.
+ * Loading a valid snapshot avoids parsing the XMI of the resource; its cross references remain proxies that are resolved lazily as usual.
+ * Resources that are loaded with {@link CacheHandling#CACHE_IGNORE} never use snapshots,
+ * and resources that are loaded with {@link CacheHandling#CACHE_WITH_ETAG_CHECKING} use them only if the ETag has been checked in this process.
+ * The snapshots can be disabled with the system property <code>oomph.setup.resource.snapshots.disabled</code>.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+public final class ResourceSnapshots
+{
+  private static final String PROP_DISABLED = "oomph.setup.resource.snapshots.disabled"; //$NON-NLS-1$
+
+  private static final boolean DISABLED = PropertiesUtil.isProperty(PROP_DISABLED);
+
+  private static final int FORMAT_VERSION = 1;
+
+  private ResourceSnapshots()
+  {
+  }
+
+  /**
+   * Loads the given resource from its snapshot if there is a valid one.
+   *
+   * @return whether the resource has been loaded.
+   */
+  public static boolean load(Resource resource, Map<?, ?> options)
+  {
+    String key = getKey(resource, options);
+    if (key == null)
+    {
+      return false;
+    }
+
+    File file = getFile(resource);
+    if (!file.isFile())
+    {
+      return false;
+    }
+
+    DataInputStream in = null;
+
+    try
+    {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF()))
+      {
+        return false;
+      }
+
+      resource.load(in, getBinaryOptions(options));
+      if (resource.getErrors().isEmpty())
+      {
+        return true;
+      }
+    }
+    catch (Exception ex)
+    {
+      //$FALL-THROUGH$
+    }
+    finally
+    {
+      IOUtil.closeSilent(in);
+    }
+
+    // A damaged or incompatible snapshot is replaced when the resource itself is loaded.
+    resource.unload();
+    resource.getErrors().clear();
+    resource.getWarnings().clear();
+    file.delete();
+    return false;
+  }
+
+  /**
+   * Stores a snapshot of the given resource, which must have been loaded from its cached copy, if that's possible without loss.
+   */
+  public static void save(Resource resource, Map<?, ?> options)
+  {
+    if (!resource.isLoaded() || resource.getContents().isEmpty() || !resource.getErrors().isEmpty() || !isLossless(resource))
+    {
+      return;
+    }
+
+    String key = getKey(resource, options);
+    if (key == null)
+    {
+      return;
+    }
+
+    File file = getFile(resource);
+    File tempFile = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+    DataOutputStream out = null;
+
+    try
+    {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(key);
+      resource.save(out, getBinaryOptions(null));
+      out.close();
+      out = null;
+
+      file.delete();
+      if (!tempFile.renameTo(file))
+      {
+        tempFile.delete();
+      }
+    }
+    catch (Exception ex)
+    {
+      // The snapshot only saves time.
+      tempFile.delete();
+    }
+    finally
+    {
+      IOUtil.closeSilent(out);
+    }
+  }
+
+  /**
+   * Returns whether the binary format retains everything that the XMI of the given resource has recorded.
+   */
+  private static boolean isLossless(Resource resource)
+  {
+    if (resource instanceof XMLResourceImpl)
+    {
+      XMLResourceImpl xmlResource = (XMLResourceImpl)resource;
+      return xmlResource.getEObjectToExtensionMap().isEmpty() && xmlResource.getEObjectToIDMap().isEmpty();
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns the key that identifies the content of the cached copy of the given resource,
+   * or <code>null</code> if the resource isn't cached or its cached copy can't be trusted.
+   */
+  private static String getKey(Resource resource, Map<?, ?> options)
+  {
+    if (DISABLED)
+    {
+      return null;
+    }
+
+    ResourceSet resourceSet = resource.getResourceSet();
+    if (resourceSet == null)
+    {
+      return null;
+    }
+
+    CacheHandling cacheHandling = (CacheHandling)options.get(ECFURIHandlerImpl.OPTION_CACHE_HANDLING);
+    if (cacheHandling == CacheHandling.CACHE_IGNORE)
+    {
+      return null;
+    }
+
+    URIConverter uriConverter = resourceSet.getURIConverter();
+    URI uri = uriConverter.normalize(resource.getURI());
+    URI location = uri;
+    if (uri.isArchive())
+    {
+      String authority = uri.authority();
+      location = URI.createURI(authority.substring(0, authority.length() - 1));
+    }
+
+    String scheme = location.scheme();
+    if (!"http".equals(scheme) && !"https".equals(scheme)) //$NON-NLS-1$ //$NON-NLS-2$
+    {
+      return null;
+    }
+
+    // The expected ETag is the one of the content that has been checked, or loaded, in this process.
+    String eTag = ECFURIHandlerImpl.getExpectedETag(location);
+    if (eTag == null && (cacheHandling == CacheHandling.CACHE_ONLY || cacheHandling == CacheHandling.CACHE_WITHOUT_ETAG_CHECKING))
+    {
+      // Without ETag checking, the cached copy is used as it is.
+      eTag = ECFURIHandlerImpl.getETag(uriConverter, ECFURIHandlerImpl.getCacheFile(location));
+    }
+
+    if (eTag == null)
+    {
+      return null;
+    }
+
+    return SetupPackage.eNS_URI + "\n" + uri + "\n" + eTag; //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static File getFile(Resource resource)
+  {
+    URI uri = resource.getResourceSet().getURIConverter().normalize(resource.getURI());
+    return new File(ECFURIHandlerImpl.getCacheFile(uri).appendFileExtension("snapshot").toFileString()); //$NON-NLS-1$
+  }
+
+  private static Map<Object, Object> getBinaryOptions(Map<?, ?> options)
+  {
+    Map<Object, Object> result = options == null ? new HashMap<>() : new HashMap<Object, Object>(options);
+    result.put(XMLResource.OPTION_BINARY, Boolean.TRUE);
+    return result;
+  }
+}
@@ -14,6 +14,7 @@ package org.eclipse.oomph.setup.git.impl;
 
 import org.eclipse.oomph.base.Annotation;
 import org.eclipse.oomph.base.BaseFactory;
+import org.eclipse.oomph.setup.ConcurrentSetupTask;
 import org.eclipse.oomph.setup.SetupTask;
 import org.eclipse.oomph.setup.SetupTaskContext;
 import org.eclipse.oomph.setup.git.ConfigProperty;
@@ -25,10 +26,13 @@ import org.eclipse.oomph.setup.git.GitFactory;
 import org.eclipse.oomph.setup.git.GitPackage;
 import org.eclipse.oomph.setup.impl.SetupTaskImpl;
 import org.eclipse.oomph.setup.util.FileUtil;
+import org.eclipse.oomph.util.DaemonThreadFactory;
 import org.eclipse.oomph.util.MonitorUtil;
 import org.eclipse.oomph.util.OS;
 import org.eclipse.oomph.util.ObjectUtil;
+import org.eclipse.oomph.util.PropertiesUtil;
 import org.eclipse.oomph.util.ReflectUtil;
+import org.eclipse.oomph.util.ReflectUtil.ReflectionException;
 import org.eclipse.oomph.util.StringUtil;
 
 import org.eclipse.emf.common.CommonPlugin;
@@ -49,6 +53,7 @@ import org.eclipse.emf.ecore.util.InternalEList;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.egit.core.EclipseGitProgressTransformer;
 import org.eclipse.egit.core.settings.GitSettings;
 import org.eclipse.jgit.api.CheckoutCommand;
@@ -72,12 +77,14 @@ import org.eclipse.jgit.storage.file.FileBasedConfig;
 import org.eclipse.jgit.submodule.SubmoduleWalk;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.transport.TagOpt;
 import org.eclipse.jgit.transport.URIish;
 import org.eclipse.osgi.util.NLS;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -90,6 +97,14 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -116,8 +131,21 @@ import java.util.stream.Collectors;
  *
  * @generated
  */
-public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
+public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask, ConcurrentSetupTask
 {
+  private static final String PROP_CLONE_DEPTH = "oomph.setup.git.clone.depth"; //$NON-NLS-1$
+
+  private static final String PROP_SUBMODULE_MAX_THREADS = "oomph.setup.git.submodule.max.threads"; //$NON-NLS-1$
+
+  /**
+   * The number of commits to fetch for each branch of a new clone; 0 fetches the full history.
+   */
+  private static final int CLONE_DEPTH = Math.max(0, PropertiesUtil.getProperty(PROP_CLONE_DEPTH, 0));
+
+  private static final int SUBMODULE_MAX_THREADS = PropertiesUtil.getProperty(PROP_SUBMODULE_MAX_THREADS, 4);
+
+  private static final ThreadFactory SUBMODULE_THREAD_FACTORY = new DaemonThreadFactory("Oomph Git Submodule"); //$NON-NLS-1$
+
   /**
    * The default value of the '{@link #getLocation() <em>Location</em>}' attribute.
    * <!-- begin-user-doc -->
@@ -809,6 +837,21 @@ public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
     return 100;
   }
 
+  /**
+   * Clones into different locations are independent of each other.
+   */
+  @Override
+  public ISchedulingRule getConcurrencyRule(SetupTaskContext context)
+  {
+    String location = getLocation();
+    if (StringUtil.isEmpty(location))
+    {
+      return null;
+    }
+
+    return new LocationRule(new File(location));
+  }
+
   @Override
   public boolean isNeeded(final SetupTaskContext context) throws Exception
   {
@@ -897,14 +940,24 @@ public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
   @Override
   public void perform(SetupTaskContext context) throws Exception
   {
-    perform(context, context.getProgressMonitor(true), true, bypassCloning, workDirExisted, isRecursive(), isRestrictToCheckoutBranch(), timeout,
-        new File(getLocation()), getRemoteURI(), getPushURI(), getCheckoutBranch(), getRemoteName(), getConfigSections());
+    SubmoduleExecutor submoduleExecutor = new SubmoduleExecutor();
+
+    try
+    {
+      perform(context, context.getProgressMonitor(true), true, bypassCloning, workDirExisted, isRecursive(), isRestrictToCheckoutBranch(), timeout,
+          new File(getLocation()), getRemoteURI(), getPushURI(), getCheckoutBranch(), getRemoteName(), getConfigSections(), submoduleExecutor);
+    }
+    finally
+    {
+      submoduleExecutor.shutdown();
+    }
+
     refresh();
   }
 
   private static void perform(SetupTaskContext context, IProgressMonitor monitor, boolean root, boolean bypassCloning, boolean workDirExisted,
       boolean isRecursive, boolean isRestrictToCheckoutBranch, int timeout, File workDir, String remoteURI, String pushURI, String checkoutBranch,
-      String remoteName, EList<ConfigSection> configSections) throws Exception
+      String remoteName, EList<ConfigSection> configSections, SubmoduleExecutor submoduleExecutor) throws Exception
   {
     try
     {
@@ -959,8 +1012,7 @@ public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
         {
           git.submoduleInit().call();
 
-          IProgressMonitor subMonitor = MonitorUtil.create(monitor, 20);
-
+          List<Submodule> submodules = new ArrayList<>();
           try (SubmoduleWalk generator = SubmoduleWalk.forIndex(repository))
           {
             while (generator.next())
@@ -979,17 +1031,23 @@ public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
               try (Repository subRepository = generator.getRepository())
               {
                 File directory = generator.getDirectory();
-                perform(context, MonitorUtil.create(subMonitor, 1), false, subRepository != null, directory.isDirectory(), true, isRestrictToCheckoutBranch,
-                    timeout, directory, url, null, checkoutBranch, remoteName, configSections);
+                submodules.add(new Submodule(directory, url, subRepository != null, directory.isDirectory()));
               }
             }
           }
+
+          performSubmodules(context, MonitorUtil.create(monitor, 20), submoduleExecutor, submodules, isRestrictToCheckoutBranch, timeout, checkoutBranch,
+              remoteName, configSections);
         }
 
         // Add the clone to the Git repositories view.
         if (root)
         {
-          GitSettings.addConfiguredRepository(getDotGitPath(workDir));
+          // Concurrently performed clones must not lose each other's updates of the configured repositories.
+          synchronized (GitCloneTaskImpl.class)
+          {
+            GitSettings.addConfiguredRepository(getDotGitPath(workDir));
+          }
         }
       }
       finally
@@ -1034,6 +1092,77 @@ public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
     }
   }
 
+  /**
+   * Performs the submodules of one repository, each in its own directory, with the threads of the clone's {@link SubmoduleExecutor}.
+   * No further submodule is started once the monitor is canceled.
+   * The first failure is rethrown once all started submodules are done.
+   */
+  private static void performSubmodules(final SetupTaskContext context, IProgressMonitor monitor, final SubmoduleExecutor submoduleExecutor,
+      List<Submodule> submodules, final boolean isRestrictToCheckoutBranch, final int timeout, final String checkoutBranch, final String remoteName,
+      final EList<ConfigSection> configSections) throws Exception
+  {
+    if (SUBMODULE_MAX_THREADS <= 1 || submodules.size() <= 1)
+    {
+      for (Submodule submodule : submodules)
+      {
+        if (monitor.isCanceled())
+        {
+          throw new OperationCanceledException();
+        }
+
+        perform(context, MonitorUtil.create(monitor, 1), false, submodule.isCloned(), submodule.isExisting(), true, isRestrictToCheckoutBranch, timeout,
+            submodule.getDirectory(), submodule.getURL(), null, checkoutBranch, remoteName, configSections, submoduleExecutor);
+      }
+
+      return;
+    }
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (final Submodule submodule : submodules)
+    {
+      if (monitor.isCanceled())
+      {
+        break;
+      }
+
+      futures.add(submoduleExecutor.submit(() -> {
+        // Progress monitors aren't thread-safe, so the worker threads only log their progress.
+        perform(context, context.getProgressMonitor(false), false, submodule.isCloned(), submodule.isExisting(), true, isRestrictToCheckoutBranch, timeout,
+            submodule.getDirectory(), submodule.getURL(), null, checkoutBranch, remoteName, configSections, submoduleExecutor);
+        return null;
+      }));
+    }
+
+    Exception failure = null;
+    for (Future<?> future : futures)
+    {
+      try
+      {
+        future.get();
+      }
+      catch (ExecutionException ex)
+      {
+        if (failure == null)
+        {
+          Throwable cause = ex.getCause();
+          failure = cause instanceof Exception ? (Exception)cause : new Exception(cause);
+        }
+      }
+
+      MonitorUtil.create(monitor, 1).done();
+    }
+
+    if (failure != null)
+    {
+      throw failure;
+    }
+
+    if (futures.size() < submodules.size())
+    {
+      throw new OperationCanceledException();
+    }
+  }
+
   private static List<ConfigSection> applyGitTaskConfigurations(SetupTaskContext context, boolean root, Map<String, GitConfigurationTask> configurations,
       String remoteURI, List<? extends ConfigSection> configSections)
   {
@@ -1415,6 +1544,37 @@ public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
   {
     context.log(NLS.bind(Messages.GitCloneTaskImpl_CloningRepo_message, remoteURI, workDir));
 
+    int effectiveTimeout = timeout <= 0 ? 60 : timeout;
+
+    // A shallow clone would fetch more history than requested when the mirror provides it, so it doesn't use the mirror.
+    if (GitMirrorCache.isEnabled() && CLONE_DEPTH == 0)
+    {
+      monitor.beginTask("", 2); //$NON-NLS-1$
+
+      try
+      {
+        File mirrorObjects = GitMirrorCache.update(context, remoteURI, effectiveTimeout, MonitorUtil.create(monitor, 1));
+        if (mirrorObjects != null)
+        {
+          return cloneFromMirror(context, workDir, mirrorObjects, checkoutBranch, restrictToCheckoutBranch, remoteName, remoteURI, effectiveTimeout,
+              MonitorUtil.create(monitor, 1));
+        }
+
+        return basicCloneRepository(context, workDir, checkoutBranch, restrictToCheckoutBranch, remoteName, remoteURI, recursive, effectiveTimeout,
+            MonitorUtil.create(monitor, 1));
+      }
+      finally
+      {
+        monitor.done();
+      }
+    }
+
+    return basicCloneRepository(context, workDir, checkoutBranch, restrictToCheckoutBranch, remoteName, remoteURI, recursive, effectiveTimeout, monitor);
+  }
+
+  private static Git basicCloneRepository(SetupTaskContext context, File workDir, String checkoutBranch, boolean restrictToCheckoutBranch,
+      String remoteName, String remoteURI, boolean recursive, int timeout, IProgressMonitor monitor) throws Exception
+  {
     CloneCommand command = Git.cloneRepository();
     command.setNoCheckout(true);
     command.setURI(remoteURI);
@@ -1423,16 +1583,75 @@ public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
     command.setCloneAllBranches(!restrictToCheckoutBranch);
     command.setCloneSubmodules(recursive);
     command.setDirectory(workDir);
-    command.setTimeout(timeout <= 0 ? 60 : timeout);
+    command.setTimeout(timeout);
     command.setProgressMonitor(new EclipseGitProgressTransformer(monitor));
     if (restrictToCheckoutBranch)
     {
       command.setBranchesToClone(Collections.singleton(Constants.R_HEADS + checkoutBranch));
     }
 
+    if (CLONE_DEPTH > 0)
+    {
+      try
+      {
+        // Shallow clones are supported as of JGit 6.3.
+        Method setDepthMethod = ReflectUtil.getMethod(CloneCommand.class, "setDepth", int.class); //$NON-NLS-1$
+        ReflectUtil.invokeMethod(setDepthMethod, command, CLONE_DEPTH);
+        context.log(NLS.bind(Messages.GitCloneTaskImpl_ShallowClone_message, CLONE_DEPTH));
+      }
+      catch (ReflectionException ex)
+      {
+        context.log(Messages.GitCloneTaskImpl_ShallowCloneUnsupported_message);
+      }
+    }
+
     return command.call();
   }
 
+  /**
+   * Creates a repository that borrows the objects of the given mirror and fetches the remote into it, which only transfers the objects that the mirror lacks.
+   * JGit's clone command can't do that because it fetches before the alternates can be configured.
+   */
+  private static Git cloneFromMirror(SetupTaskContext context, File workDir, File mirrorObjects, String checkoutBranch, boolean restrictToCheckoutBranch,
+      String remoteName, String remoteURI, int timeout, IProgressMonitor monitor) throws Exception
+  {
+    context.log(NLS.bind(Messages.GitCloneTaskImpl_BorrowingObjects_message, mirrorObjects.getParentFile()));
+
+    try (Git git = Git.init().setDirectory(workDir).call())
+    {
+      Repository repository = git.getRepository();
+
+      File alternates = new File(new File(repository.getDirectory(), Constants.OBJECTS), Constants.INFO_ALTERNATES);
+      alternates.getParentFile().mkdirs();
+      Files.write(alternates.toPath(), (mirrorObjects.getAbsolutePath() + "\n").getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+      StoredConfig config = repository.getConfig();
+      RemoteConfig remoteConfig = new RemoteConfig(config, remoteName);
+      remoteConfig.addURI(new URIish(remoteURI));
+
+      String branches = restrictToCheckoutBranch ? checkoutBranch : "*"; //$NON-NLS-1$
+      remoteConfig.addFetchRefSpec(new RefSpec("+" + Constants.R_HEADS + branches + ":" + Constants.R_REMOTES + remoteName + "/" + branches)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      remoteConfig.update(config);
+      config.save();
+    }
+
+    // Reopen the repository so that its object database includes the alternates.
+    Git git = Git.open(workDir);
+
+    try
+    {
+      // Fetch all tags, like a clone does, so that a checkout branch can also name a tag that isn't reachable from the fetched branches.
+      git.fetch().setRemote(remoteName).setTagOpt(TagOpt.FETCH_TAGS).setTimeout(timeout).setProgressMonitor(new EclipseGitProgressTransformer(monitor))
+          .call();
+      return git;
+    }
+    catch (Exception ex)
+    {
+      git.close();
+      throw ex;
+    }
+  }
+
   private static Set<String> getGerritPatterns(SetupTaskContext context)
   {
     Set<String> gerritPatterns = new LinkedHashSet<>();
@@ -1710,4 +1929,103 @@ public class GitCloneTaskImpl extends SetupTaskImpl implements GitCloneTask
     }
   }
 
+  /**
+   * Performs the submodules of one clone, at all nesting levels, with up to <code>oomph.setup.git.submodule.max.threads</code> threads (default 4).
+   * A submodule is only handed to a thread that's idle, otherwise the submitting thread performs it itself,
+   * so a thread that waits for the submodules of its own submodule never waits for a task that can't start.
+   *
+   * @author Eike Stepper
+   */
+  private static final class SubmoduleExecutor
+  {
+    private final Semaphore idleThreads = new Semaphore(SUBMODULE_MAX_THREADS);
+
+    private ExecutorService executor;
+
+    public Future<?> submit(Callable<?> task)
+    {
+      FutureTask<?> future = new FutureTask<>(task);
+      if (idleThreads.tryAcquire())
+      {
+        getExecutor().execute(() -> {
+          try
+          {
+            future.run();
+          }
+          finally
+          {
+            idleThreads.release();
+          }
+        });
+      }
+      else
+      {
+        future.run();
+      }
+
+      return future;
+    }
+
+    public synchronized void shutdown()
+    {
+      if (executor != null)
+      {
+        executor.shutdown();
+        executor = null;
+      }
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+      if (executor == null)
+      {
+        executor = Executors.newFixedThreadPool(SUBMODULE_MAX_THREADS, SUBMODULE_THREAD_FACTORY);
+      }
+
+      return executor;
+    }
+  }
+
+  /**
+   * @author Eike Stepper
+   */
+  private static final class Submodule
+  {
+    private final File directory;
+
+    private final String url;
+
+    private final boolean cloned;
+
+    private final boolean existing;
+
+    public Submodule(File directory, String url, boolean cloned, boolean existing)
+    {
+      this.directory = directory;
+      this.url = url;
+      this.cloned = cloned;
+      this.existing = existing;
+    }
+
+    public File getDirectory()
+    {
+      return directory;
+    }
+
+    public String getURL()
+    {
+      return url;
+    }
+
+    public boolean isCloned()
+    {
+      return cloned;
+    }
+
+    public boolean isExisting()
+    {
+      return existing;
+    }
+  }
+
 } // GitCloneTaskImpl
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.setup.git.impl;
+
+import org.eclipse.oomph.setup.SetupTaskContext;
+import org.eclipse.oomph.setup.util.FileUtil;
+import org.eclipse.oomph.util.HexUtil;
+import org.eclipse.oomph.util.IOUtil;
+import org.eclipse.oomph.util.PropertiesUtil;
+import org.eclipse.oomph.util.StringUtil;
+
+import org.eclipse.emf.common.util.URI;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.egit.core.EclipseGitProgressTransformer;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.osgi.util.NLS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A machine-wide cache of bare mirrors of the remote repositories that {@link GitCloneTaskImpl Git clone tasks} clone.
+ * <p>
+ * If the system property <code>oomph.setup.git.mirrors</code> is <code>true</code>, a new clone first fetches its remote into the mirror
+ * and then borrows the mirror's objects through Git's alternates mechanism,
+ * so that the objects of a remote are downloaded and stored only once, no matter how many workspaces clone it.
+ * The mirrors are stored in the folder that the system property <code>oomph.setup.git.mirror.location</code> specifies,
+ * by default in <code>~/.eclipse/org.eclipse.oomph.setup.git/mirrors</code>.
+ * Like the bundle pool of p2, the mirrors must not be deleted as long as clones borrow objects from them.
+ * For the same reason, a mirror never loses objects:
+ * the refs that are deleted from its remote are kept, and garbage collection and pruning are disabled in its configuration.
+ * Running <code>git gc</code> or <code>git prune</code> in a mirror can corrupt the clones that borrow from it.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+final class GitMirrorCache
+{
+  private static final String PROP_ENABLED = "oomph.setup.git.mirrors"; //$NON-NLS-1$
+
+  private static final String PROP_LOCATION = "oomph.setup.git.mirror.location"; //$NON-NLS-1$
+
+  private static final boolean ENABLED = PropertiesUtil.isProperty(PROP_ENABLED);
+
+  private static final Map<File, Object> LOCKS = new ConcurrentHashMap<>();
+
+  private GitMirrorCache()
+  {
+  }
+
+  public static boolean isEnabled()
+  {
+    return ENABLED;
+  }
+
+  public static File getLocation()
+  {
+    String location = PropertiesUtil.getProperty(PROP_LOCATION);
+    if (StringUtil.isEmpty(location))
+    {
+      return new File(PropertiesUtil.getUserHome(), ".eclipse/org.eclipse.oomph.setup.git/mirrors"); //$NON-NLS-1$
+    }
+
+    return new File(location);
+  }
+
+  /**
+   * Creates or updates the mirror of the given remote.
+   *
+   * @return the object directory of the mirror, or <code>null</code> if the mirror isn't available.
+   */
+  public static File update(SetupTaskContext context, String remoteURI, int timeout, IProgressMonitor monitor)
+  {
+    File mirror = getMirror(remoteURI);
+    File objects = new File(mirror, Constants.OBJECTS);
+
+    // Clones of the same remote in this process, and in other processes, must not update the mirror at the same time.
+    synchronized (LOCKS.computeIfAbsent(mirror, key -> new Object()))
+    {
+      File lockFile = new File(mirror.getPath() + ".lock"); //$NON-NLS-1$
+      lockFile.getParentFile().mkdirs();
+
+      try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE); FileLock lock = channel.lock())
+      {
+        if (objects.isDirectory())
+        {
+          context.log(NLS.bind(Messages.GitMirrorCache_Updating_message, mirror));
+
+          try (Git git = Git.open(mirror))
+          {
+            // Also protect the mirrors that have been created before garbage collection was disabled.
+            configure(git);
+
+            // Removing deleted refs would make their objects unreachable, and clones may still borrow them.
+            git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME).setRemoveDeletedRefs(false).setTagOpt(TagOpt.FETCH_TAGS).setTimeout(timeout)
+                .setProgressMonitor(new EclipseGitProgressTransformer(monitor)).call();
+          }
+          catch (Exception ex)
+          {
+            // The objects that the mirror already has are still useful; the clone fetches the missing ones itself.
+            context.log(NLS.bind(Messages.GitMirrorCache_UpdateFailed_message, mirror, ex.getLocalizedMessage()));
+          }
+
+          return objects;
+        }
+
+        context.log(NLS.bind(Messages.GitMirrorCache_Creating_message, remoteURI, mirror));
+
+        try
+        {
+          deleteMirror(mirror);
+
+          try (Git git = Git.cloneRepository().setBare(true).setCloneAllBranches(true).setURI(remoteURI).setDirectory(mirror).setTimeout(timeout)
+              .setProgressMonitor(new EclipseGitProgressTransformer(monitor)).call())
+          {
+            configure(git);
+            return objects;
+          }
+        }
+        catch (Exception ex)
+        {
+          context.log(NLS.bind(Messages.GitMirrorCache_CreateFailed_message, remoteURI, ex.getLocalizedMessage()));
+          deleteMirror(mirror);
+          return null;
+        }
+      }
+      catch (Exception ex)
+      {
+        context.log(NLS.bind(Messages.GitMirrorCache_CreateFailed_message, remoteURI, ex.getLocalizedMessage()));
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Disables the automatic garbage collection and the pruning of unreachable objects in the given mirror.
+   */
+  private static void configure(Git git) throws IOException
+  {
+    StoredConfig config = git.getRepository().getConfig();
+    if (config.getInt(ConfigConstants.CONFIG_GC_SECTION, ConfigConstants.CONFIG_KEY_AUTO, -1) != 0
+        || !"never".equals(config.getString(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_PRUNEEXPIRE))) //$NON-NLS-1$
+    {
+      config.setInt(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_AUTO, 0);
+      config.setString(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_PRUNEEXPIRE, "never"); //$NON-NLS-1$
+      config.save();
+    }
+  }
+
+  private static File getMirror(String remoteURI)
+  {
+    // The name is readable and unique.
+    String name = URI.createURI(remoteURI.replace('\\', '/')).trimFileExtension().lastSegment();
+    if (StringUtil.isEmpty(name))
+    {
+      name = "repo"; //$NON-NLS-1$
+    }
+
+    String digest;
+
+    try
+    {
+      digest = HexUtil.bytesToHex(IOUtil.getSHA1(remoteURI)).substring(0, 12);
+    }
+    catch (Exception ex)
+    {
+      digest = Integer.toHexString(remoteURI.hashCode());
+    }
+
+    return new File(getLocation(), name.replaceAll("[^\\w.-]", "_") + "-" + digest + Constants.DOT_GIT_EXT); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+  }
+
+  private static void deleteMirror(File mirror)
+  {
+    if (mirror.exists())
+    {
+      try
+      {
+        FileUtil.delete(mirror, new NullProgressMonitor());
+      }
+      catch (Exception ex)
+      {
+        //$FALL-THROUGH$
+      }
+    }
+  }
+}
@@ -21,6 +21,8 @@ public class Messages extends NLS
 
   public static String GitCloneTaskImpl_AddingSubmodules_message;
 
+  public static String GitCloneTaskImpl_BorrowingObjects_message;
+
   public static String GitCloneTaskImpl_CheckingOutLocalBranch_message;
 
   public static String GitCloneTaskImpl_CloneCollision_message;
@@ -47,8 +49,20 @@ public class Messages extends NLS
 
   public static String GitCloneTaskImpl_SetttingConfigProperty_message;
 
+  public static String GitCloneTaskImpl_ShallowClone_message;
+
+  public static String GitCloneTaskImpl_ShallowCloneUnsupported_message;
+
   public static String GitCloneTaskImpl_UnsettingConfigProperty_message;
 
+  public static String GitMirrorCache_CreateFailed_message;
+
+  public static String GitMirrorCache_Creating_message;
+
+  public static String GitMirrorCache_UpdateFailed_message;
+
+  public static String GitMirrorCache_Updating_message;
+
   static
   {
     NLS.initializeMessages(BUNDLE_NAME, Messages.class);
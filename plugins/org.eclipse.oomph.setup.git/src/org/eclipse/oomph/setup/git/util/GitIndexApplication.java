@@ -24,6 +24,7 @@ import org.eclipse.equinox.security.storage.ISecurePreferences;
 import org.eclipse.equinox.security.storage.SecurePreferencesFactory;
 import org.eclipse.equinox.security.storage.StorageException;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -53,6 +54,9 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -2022,7 +2026,13 @@ public class GitIndexApplication implements IApplication
   // generated-repositories
   ));
 
-  private final Map<String, Map<String, Map<String, Map<String, Set<String>>>>> repositoryIndices = new TreeMap<>();
+  private static final String STATE_VERSION = "1 " + PACKAGE_PREFIXES.hashCode();
+
+  /**
+   * The index state file of each repository, grouped by link key and base repository.
+   * The files contain the lines of the repositories' sections of the index, so the index can be written without holding all of it in memory.
+   */
+  private final Map<String, Map<String, Path>> repositoryIndices = new TreeMap<>();
 
   private ContentHandler contentHandler;
 
@@ -2048,12 +2058,43 @@ public class GitIndexApplication implements IApplication
   public void index() throws Exception
   {
     var repositories = getRepositories();
-    var count = 0;
+    var count = new AtomicInteger();
     var size = repositories.size();
+    var threads = Integer.getInteger("org.eclipse.oomph.setup.git.util.GitIndexApplication.threads", 8);
+    var executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, size)));
+    var futures = new ArrayList<Future<?>>();
     for (var repo : repositories)
     {
-      System.out.println("----------------" + ++count + " of " + size + " -------------------------");
-      index(repo);
+      futures.add(executor.submit(() -> {
+        System.out.println("----------------" + count.incrementAndGet() + " of " + size + " -------------------------");
+        index(repo);
+        return null;
+      }));
+    }
+
+    try
+    {
+      for (var future : futures)
+      {
+        try
+        {
+          future.get();
+        }
+        catch (ExecutionException ex)
+        {
+          var cause = ex.getCause();
+          if (cause instanceof Exception)
+          {
+            throw (Exception)cause;
+          }
+
+          throw ex;
+        }
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
     }
 
     saveIndex(target);
@@ -2179,6 +2220,18 @@ public class GitIndexApplication implements IApplication
 
   public void index(String repo) throws Exception
   {
+    var state = getStatePath(repo);
+    if (!"true".equals(System.getProperty("org.eclipse.oomph.setup.git.util.GitIndexApplication.full")))
+    {
+      // Skip the clone if the default branch hasn't changed since the repository was last indexed.
+      var commit = getRemoteCommit(repo);
+      if (commit != null && reuseState(repo, commit, state))
+      {
+        System.out.println("Unchanged: " + repo);
+        return;
+      }
+    }
+
     System.out.println("Cloning: " + repo);
     long start = System.currentTimeMillis();
     var cloneRepository = Git.cloneRepository();
@@ -2248,9 +2301,11 @@ public class GitIndexApplication implements IApplication
 
     var repository = clone.getRepository();
     var branch = repository.getBranch();
+    var commit = repository.resolve(Constants.HEAD).name();
     var baseRepo = new StringBuilder();
-    var repositoryIndex = repositoryIndices.computeIfAbsent(getKey(repo, branch, baseRepo), key -> new TreeMap<>());
+    var key = getKey(repo, branch, baseRepo);
     var base = baseRepo.toString();
+    var sourceFolders = new TreeMap<String, Map<String, Set<String>>>();
     var javaCount = new AtomicInteger();
 
     Files.walkFileTree(cloneFolder, new SimpleFileVisitor<Path>()
@@ -2281,8 +2336,8 @@ public class GitIndexApplication implements IApplication
                     {
                       var relativeBasePath = relativePath.substring(0, relativePath.length() - packagePath.length());
                       javaCount.incrementAndGet();
-                      repositoryIndex.computeIfAbsent(base, key -> new TreeMap<>()).computeIfAbsent(relativeBasePath, key -> new TreeMap<>())
-                          .computeIfAbsent(packageName, key -> new TreeSet<>()).add(className);
+                      sourceFolders.computeIfAbsent(relativeBasePath, key -> new TreeMap<>()).computeIfAbsent(packageName, key -> new TreeSet<>())
+                          .add(className);
                     }
 
                     return FileVisitResult.CONTINUE;
@@ -2321,6 +2376,111 @@ public class GitIndexApplication implements IApplication
     clone.close();
 
     IOUtil.deleteBestEffort(cloneFolder.toFile());
+
+    saveState(state, repo, commit, key, base, sourceFolders);
+    addIndex(key, base, sourceFolders.isEmpty() ? null : state);
+  }
+
+  private Path getStatePath(String repo)
+  {
+    return contentHandler.cache.resolve("index-state").resolve(repo.replaceAll("[^\\w.-]+", "_") + ".txt");
+  }
+
+  private String getRemoteCommit(String repo)
+  {
+    try
+    {
+      var head = Git.lsRemoteRepository().setRemote(repo).setTimeout(60).callAsMap().get(Constants.HEAD);
+      if (head != null && head.getObjectId() != null)
+      {
+        return head.getObjectId().name();
+      }
+    }
+    catch (Exception ex)
+    {
+      System.out.println("Cannot list remote: " + repo + " " + ex.getMessage());
+    }
+
+    return null;
+  }
+
+  /**
+   * The state of a repository consists of a header with the state version, the repository, the indexed commit, the link key, and the base repository,
+   * followed by the lines of the repository's source folders in the index.
+   */
+  private void saveState(Path state, String repo, String commit, String key, String base, Map<String, Map<String, Set<String>>> sourceFolders)
+      throws IOException
+  {
+    Files.createDirectories(state.getParent());
+
+    try (var out = new PrintStream(Files.newOutputStream(state), false, "UTF-8"))
+    {
+      out.println(STATE_VERSION);
+      out.println(repo);
+      out.println(commit);
+      out.println(key);
+      out.println(base);
+
+      for (var sourceFolderEntry : sourceFolders.entrySet())
+      {
+        var sourceFolder = sourceFolderEntry.getKey();
+        out.print("  ");
+        out.println(sourceFolder);
+        var packages = sourceFolderEntry.getValue();
+        for (Entry<String, Set<String>> packageEntry : packages.entrySet())
+        {
+          var packageName = packageEntry.getKey();
+          out.print("   ");
+          out.println(packageName);
+          var classes = packageEntry.getValue();
+          for (var className : classes)
+          {
+            out.print("    ");
+            out.println(className);
+          }
+        }
+      }
+    }
+  }
+
+  private boolean reuseState(String repo, String commit, Path state)
+  {
+    if (!Files.isRegularFile(state))
+    {
+      return false;
+    }
+
+    try (var in = Files.newBufferedReader(state, StandardCharsets.UTF_8))
+    {
+      if (STATE_VERSION.equals(in.readLine()) && repo.equals(in.readLine()) && commit.equals(in.readLine()))
+      {
+        var key = in.readLine();
+        var base = in.readLine();
+        if (key != null && base != null)
+        {
+          addIndex(key, base, in.readLine() == null ? null : state);
+          return true;
+        }
+      }
+    }
+    catch (IOException ex)
+    {
+      //$FALL-THROUGH$
+    }
+
+    return false;
+  }
+
+  private void addIndex(String key, String base, Path state)
+  {
+    synchronized (repositoryIndices)
+    {
+      var repositoryIndex = repositoryIndices.computeIfAbsent(key, k -> new TreeMap<>());
+      if (state != null)
+      {
+        repositoryIndex.put(base, state);
+      }
+    }
   }
 
   public Set<String> getRepositories(String projectID) throws IOException
@@ -2519,23 +2679,16 @@ public class GitIndexApplication implements IApplication
         var repo = repoEntry.getKey();
         out.print(" ");
         out.println(repo);
-        var sourceFolders = repoEntry.getValue();
-        for (var sourceFolderEntry : sourceFolders.entrySet())
+
+        // Stream the source folders from the state file of the repository, skipping its header.
+        try (var in = Files.newBufferedReader(repoEntry.getValue(), StandardCharsets.UTF_8))
         {
-          var sourceFolder = sourceFolderEntry.getKey();
-          out.print("  ");
-          out.println(sourceFolder);
-          var packages = sourceFolderEntry.getValue();
-          for (Entry<String, Set<String>> packageEntry : packages.entrySet())
+          var lineNumber = 0;
+          for (var line = in.readLine(); line != null; line = in.readLine())
           {
-            var packageName = packageEntry.getKey();
-            out.print("   ");
-            out.println(packageName);
-            var classes = packageEntry.getValue();
-            for (var className : classes)
+            if (++lineNumber > 5)
             {
-              out.print("    ");
-              out.println(className);
+              out.println(line);
             }
           }
         }
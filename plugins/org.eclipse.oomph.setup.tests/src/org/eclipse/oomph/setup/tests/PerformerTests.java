@@ -10,10 +10,74 @@
  */
 package org.eclipse.oomph.setup.tests;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.eclipse.oomph.internal.setup.SetupPrompter;
+import org.eclipse.oomph.setup.PreferenceTask;
+import org.eclipse.oomph.setup.SetupFactory;
+import org.eclipse.oomph.setup.SetupTask;
+import org.eclipse.oomph.setup.Stream;
+import org.eclipse.oomph.setup.Trigger;
+import org.eclipse.oomph.setup.impl.PreferenceTaskImpl;
+import org.eclipse.oomph.setup.internal.core.SetupContext;
+import org.eclipse.oomph.setup.internal.core.SetupTaskPerformer;
+import org.eclipse.oomph.tests.AbstractTest;
+
+import org.eclipse.emf.ecore.resource.impl.ExtensibleURIConverterImpl;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.osgi.service.prefs.Preferences;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 /**
  * @author Eike Stepper
  */
-public class PerformerTests
+@FixMethodOrder(MethodSorters.JVM)
+public class PerformerTests extends AbstractTest
 {
+  private static final String NODE = "org.eclipse.oomph.setup.tests.performer";
+
+  @Test
+  public void testPreferenceTasksBatchedOnStartup() throws Exception
+  {
+    IEclipsePreferences node = InstanceScope.INSTANCE.getNode(NODE);
+    node.clear();
+    node.flush();
+
+    SetupTaskPerformer performer = new SetupTaskPerformer(new ExtensibleURIConverterImpl(), new SetupPrompter.Default(true), Trigger.STARTUP,
+        SetupContext.create(), (Stream)null);
+
+    List<SetupTask> neededTasks = new ArrayList<>();
+    for (int i = 1; i <= 3; i++)
+    {
+      PreferenceTask preferenceTask = SetupFactory.eINSTANCE.createPreferenceTask();
+      preferenceTask.setKey("/instance/" + NODE + "/key" + i);
+      preferenceTask.setValue("value" + i);
+      assertThat(preferenceTask.getPriority() >= SetupTask.PRIORITY_CONFIGURATION, is(true));
+      assertThat(preferenceTask.isNeeded(performer), is(true));
+      neededTasks.add(preferenceTask);
+    }
+
+    List<PreferenceTaskImpl> batch = SetupTaskPerformer.getPreferenceTasks(neededTasks, 0);
+    assertThat(batch.size(), is(3));
+
+    Set<Preferences> flushedNodes = PreferenceTaskImpl.perform(performer, batch);
+    assertThat(flushedNodes.size(), is(1));
+    assertThat(flushedNodes.iterator().next().absolutePath(), is(node.absolutePath()));
+
+    for (int i = 1; i <= 3; i++)
+    {
+      assertThat(node.get("key" + i, null), is("value" + i));
+    }
 
+    node.removeNode();
+  }
 }
@@ -24,8 +24,11 @@ import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * TODO Test with Unix file separator.
@@ -259,6 +262,21 @@ public class StringExpanderTests extends AbstractTest
     assertThat(expander.expandString("START${xml.iso-8859-1|base64.utf-8}END"), is(expected));
   }
 
+  @Test
+  public void testFilterNameIgnoresCase() throws Exception
+  {
+    assertThat(expander.expandString("START${user.name|upper}${user.name|UPPER}${text.extended|BASE64.iso-8859-1}END"), is("STARTSTEPPERSTEPPERx8Teyd/F38s=END"));
+  }
+
+  @Test
+  public void testKeys() throws Exception
+  {
+    assertThat(StringExpander.getKeys("START$${escaped}${windows.path/ws|property}$$${user.name}${windows.path}END"),
+        is((Set<String>)new LinkedHashSet<>(Arrays.asList("$", "windows.path", "user.name"))));
+    assertThat(StringExpander.compile("START").isLiteral(), is(true));
+    assertThat(StringExpander.compile("START").getKeys().isEmpty(), is(true));
+  }
+
   /**
    * @author Eike Stepper
    */
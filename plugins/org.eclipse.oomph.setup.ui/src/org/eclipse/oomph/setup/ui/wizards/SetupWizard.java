@@ -1157,6 +1157,10 @@ public abstract class SetupWizard extends Wizard implements IPageChangedListener
 
     private volatile boolean reloaded;
 
+    private ResourceMirror resourceMirror;
+
+    private IProgressMonitor resourceMirrorMonitor;
+
     protected boolean showETagProgress;
 
     final void setWizard(SetupWizard wizard)
@@ -1199,12 +1203,44 @@ public abstract class SetupWizard extends Wizard implements IPageChangedListener
         protected void run(String taskName, IProgressMonitor monitor)
         {
           perform(uris);
-          resolveProxies();
+
+          // A superseded load must not demand-load the rest of its index into the resource set.
+          if (!isCanceled())
+          {
+            resolveProxies();
+          }
         }
       };
 
+      synchronized (this)
+      {
+        // A load that is still in progress is obsolete now, e.g., because another index has been selected.
+        if (this.resourceMirror != null)
+        {
+          this.resourceMirror.cancel();
+          resourceMirrorMonitor.setCanceled(true);
+        }
+
+        this.resourceMirror = resourceMirror;
+        resourceMirrorMonitor = monitor;
+      }
+
+      // Load the catalogs that were selected the last time first because the pages need them first.
+      resourceMirror.prioritize(getPriorityURIs());
       resourceMirror.begin(monitor);
 
+      synchronized (this)
+      {
+        if (this.resourceMirror != resourceMirror)
+        {
+          // This load has been superseded by a newer one, which will report the loaded index.
+          return;
+        }
+
+        this.resourceMirror = null;
+        resourceMirrorMonitor = null;
+      }
+
       if (resourceMirror.isCanceled())
       {
         Display display = wizard.getShell().getDisplay();
@@ -1446,6 +1482,38 @@ public abstract class SetupWizard extends Wizard implements IPageChangedListener
       }
     }
 
+    /**
+     * Loads the resources with the given URIs ahead of the other resources of the index that are still to be loaded, if the index is being loaded.
+     */
+    public void prioritize(Collection<? extends URI> uris)
+    {
+      ResourceMirror resourceMirror;
+      synchronized (this)
+      {
+        resourceMirror = this.resourceMirror;
+      }
+
+      if (resourceMirror != null)
+      {
+        resourceMirror.prioritize(uris);
+      }
+    }
+
+    protected Collection<URI> getPriorityURIs()
+    {
+      List<URI> result = new ArrayList<>();
+      CatalogManager catalogManager = wizard.getCatalogManager();
+      for (boolean product : new boolean[] { true, false })
+      {
+        for (Scope scope : catalogManager.getSelectedCatalogs(product))
+        {
+          result.add(EcoreUtil.getURI(scope).trimFragment());
+        }
+      }
+
+      return result;
+    }
+
     public void reloadIndex(final URI indexLocationURI)
     {
       loadIndex(new IRunnableWithProgress()
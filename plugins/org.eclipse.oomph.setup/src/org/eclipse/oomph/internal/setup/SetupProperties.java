@@ -89,6 +89,12 @@ public class SetupProperties
 
   public static final String PROP_SETUP_ECF_READ_TIMEOUT = "oomph.setup.ecf.read.timeout"; //$NON-NLS-1$
 
+  public static final String PROP_SETUP_ECF_CACHE_MAX_AGE = "oomph.setup.ecf.cache.max.age"; //$NON-NLS-1$
+
+  public static final String PROP_SETUP_ECF_CACHE_STALE_WHILE_REVALIDATE = "oomph.setup.ecf.cache.stale.while.revalidate"; //$NON-NLS-1$
+
+  public static final String PROP_SETUP_ECF_CACHE_MISSING_MAX_AGE = "oomph.setup.ecf.cache.missing.max.age"; //$NON-NLS-1$
+
   public static final String PROP_INSTALLER_UPDATE_URL = "oomph.installer.update.url"; //$NON-NLS-1$
 
   public static final String PROP_INSTALLER_SWITCH_USER_HOME = "oomph.installer.switch.user.home"; //$NON-NLS-1$
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.setup;
+
+import org.eclipse.oomph.util.OS;
+
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
+
+import java.io.File;
+
+/**
+ * A setup task that can be performed concurrently with other concurrent setup tasks of the same priority.
+ * <p>
+ * The performer checks whether such tasks are {@link SetupTask#isNeeded(SetupTaskContext) needed} and performs them in a pool of worker threads,
+ * as long as they don't depend on each other and their {@link #getConcurrencyRule(SetupTaskContext) rules} don't conflict.
+ * A worker thread's {@link SetupTaskContext#getProgressMonitor(boolean) progress monitor} only logs the progress of its task.
+ * The context that such a task gets on a worker thread serializes all calls with the other worker threads,
+ * so only the task's own work, e.g., its file I/O, is done in parallel.
+ * </p>
+ *
+ * @author Eike Stepper
+ */
+public interface ConcurrentSetupTask
+{
+  /**
+   * Returns the rule that must not conflict with the rules of the tasks that are performed at the same time,
+   * or <code>null</code> if this task must be performed on its own.
+   */
+  public ISchedulingRule getConcurrencyRule(SetupTaskContext context);
+
+  /**
+   * A rule for a file system location that conflicts with the rules of the same location, its ancestors, and its descendants.
+   *
+   * @author Eike Stepper
+   */
+  public static final class LocationRule implements ISchedulingRule
+  {
+    private final String path;
+
+    public LocationRule(File location)
+    {
+      String path = location.getAbsoluteFile().toPath().normalize().toString();
+      if (!path.endsWith(File.separator))
+      {
+        path += File.separator;
+      }
+
+      // Be conservative on file systems that are usually case-insensitive.
+      if (OS.INSTANCE.isWin() || OS.INSTANCE.isMac())
+      {
+        path = path.toLowerCase();
+      }
+
+      this.path = path;
+    }
+
+    @Override
+    public boolean contains(ISchedulingRule rule)
+    {
+      if (rule instanceof MultiRule)
+      {
+        for (ISchedulingRule child : ((MultiRule)rule).getChildren())
+        {
+          if (!contains(child))
+          {
+            return false;
+          }
+        }
+
+        return true;
+      }
+
+      return rule == this || rule instanceof LocationRule && ((LocationRule)rule).path.startsWith(path);
+    }
+
+    @Override
+    public boolean isConflicting(ISchedulingRule rule)
+    {
+      if (rule instanceof LocationRule)
+      {
+        String otherPath = ((LocationRule)rule).path;
+        return otherPath.startsWith(path) || path.startsWith(otherPath);
+      }
+
+      if (rule instanceof MultiRule)
+      {
+        return rule.isConflicting(this);
+      }
+
+      return rule == this;
+    }
+
+    @Override
+    public String toString()
+    {
+      return path;
+    }
+  }
+}
@@ -377,7 +377,67 @@ public class PreferenceTaskImpl extends SetupTaskImpl implements PreferenceTask
   @Override
   public void perform(SetupTaskContext context) throws Exception
   {
-    final String key = getKey();
+    perform(context, Collections.singletonList(this));
+  }
+
+  /**
+   * Performs the given needed preference tasks in a single batch in the UI thread and flushes each modified preference node only once at the end.
+   * The nodes that have been modified before a failure are flushed as well.
+   *
+   * @return the preference nodes that have been flushed.
+   */
+  public static Set<Preferences> perform(SetupTaskContext context, List<? extends PreferenceTaskImpl> preferenceTasks) throws Exception
+  {
+    final List<PreferenceTaskImpl> applicableTasks = new ArrayList<>();
+    for (PreferenceTaskImpl preferenceTask : preferenceTasks)
+    {
+      if (preferenceTask.isApplicable(context))
+      {
+        applicableTasks.add(preferenceTask);
+      }
+    }
+
+    if (applicableTasks.isEmpty())
+    {
+      return Collections.emptySet();
+    }
+
+    final Set<Preferences> nodes = new LinkedHashSet<>();
+
+    try
+    {
+      applicableTasks.get(0).performUI(context, new RunnableWithContext()
+      {
+        @Override
+        public void run(SetupTaskContext context) throws Exception
+        {
+          for (PreferenceTaskImpl preferenceTask : applicableTasks)
+          {
+            PreferenceHandler preferenceHandler = preferenceTask.preferenceHandler;
+            PreferenceProperty preferenceProperty = preferenceTask.preferenceProperty;
+
+            String mergedValue = preferenceHandler.merge();
+            preferenceProperty.set(mergedValue);
+            nodes.add(preferenceProperty.getNode());
+            preferenceHandler.apply(context);
+          }
+        }
+      });
+    }
+    finally
+    {
+      for (Preferences node : nodes)
+      {
+        node.flush();
+      }
+    }
+
+    return nodes;
+  }
+
+  private boolean isApplicable(SetupTaskContext context)
+  {
+    String key = getKey();
 
     // Ignore project-specific preferences for projects that don't exist in the workspace.
     URI uri = PreferencesFactory.eINSTANCE.createURI(key);
@@ -386,29 +446,17 @@ public class PreferenceTaskImpl extends SetupTaskImpl implements PreferenceTask
       if (!ResourcesPlugin.getWorkspace().getRoot().getProject(URI.decode(uri.segment(0))).isAccessible())
       {
         context.log(NLS.bind(Messages.PreferenceTaskImpl_IgnoringPreference_message, key, value));
-        return;
+        return false;
       }
     }
 
-    final String value = getValue();
+    String value = getValue();
     if (value != null && value.indexOf('\n') != -1)
     {
       context.log(value);
     }
 
-    performUI(context, new RunnableWithContext()
-    {
-      @Override
-      public void run(SetupTaskContext context) throws Exception
-      {
-        String mergedValue = preferenceHandler.merge();
-        preferenceProperty.set(mergedValue);
-        preferenceHandler.apply(context);
-      }
-    });
-
-    Preferences node = preferenceProperty.getNode();
-    node.flush();
+    return true;
   }
 
   public boolean execute(final UserCallback callback) throws Exception
@@ -10,6 +10,7 @@
  */
 package org.eclipse.oomph.setup.impl;
 
+import org.eclipse.oomph.setup.ConcurrentSetupTask;
 import org.eclipse.oomph.setup.ResourceCopyTask;
 import org.eclipse.oomph.setup.SetupPackage;
 import org.eclipse.oomph.setup.SetupTaskContext;
@@ -22,6 +23,8 @@ import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.impl.ENotificationImpl;
 import org.eclipse.emf.ecore.resource.URIConverter;
 
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
 import org.eclipse.osgi.util.NLS;
 
 import java.io.File;
@@ -46,7 +49,7 @@ import java.util.Objects;
  *
  * @generated
  */
-public class ResourceCopyTaskImpl extends SetupTaskImpl implements ResourceCopyTask
+public class ResourceCopyTaskImpl extends SetupTaskImpl implements ResourceCopyTask, ConcurrentSetupTask
 {
   public static final String OPTION_ZIP_CACHE = "OPTION_ZIP_CACHE"; //$NON-NLS-1$
 
@@ -395,6 +398,51 @@ public class ResourceCopyTaskImpl extends SetupTaskImpl implements ResourceCopyT
     return isForce() || !uriConverter.exists(targetURI, null);
   }
 
+  /**
+   * Copies between different file system locations are independent of each other.
+   * The rule covers the source too, so that a copy out of a location that another task creates, e.g., a clone, waits for that task.
+   * Copies into other targets, e.g., into workspace resources, or from sources that might be such targets are performed on their own.
+   */
+  @Override
+  public ISchedulingRule getConcurrencyRule(SetupTaskContext context)
+  {
+    URI sourceURI = createResolvedURI(getSourceURL());
+    URI targetURI = createResolvedURI(getTargetURL());
+    if (sourceURI == null || targetURI == null)
+    {
+      return null;
+    }
+
+    URIConverter uriConverter = context.getURIConverter();
+    URI normalizedTargetURI = uriConverter.normalize(targetURI);
+    if (!normalizedTargetURI.isFile())
+    {
+      return null;
+    }
+
+    ISchedulingRule targetRule = new LocationRule(new File(normalizedTargetURI.toFileString()));
+
+    URI normalizedSourceURI = uriConverter.normalize(sourceURI);
+    URI archiveURI = getArchiveURI(normalizedSourceURI);
+    if (archiveURI != null)
+    {
+      normalizedSourceURI = archiveURI;
+    }
+
+    if (normalizedSourceURI.isFile())
+    {
+      return MultiRule.combine(new LocationRule(new File(normalizedSourceURI.toFileString())), targetRule);
+    }
+
+    String scheme = normalizedSourceURI.scheme();
+    if ("http".equals(scheme) || "https".equals(scheme)) //$NON-NLS-1$ //$NON-NLS-2$
+    {
+      return targetRule;
+    }
+
+    return null;
+  }
+
   protected void copy(URIConverter uriConverter, URI sourceURI, URI targetURI) throws IOException
   {
     InputStream input = null;
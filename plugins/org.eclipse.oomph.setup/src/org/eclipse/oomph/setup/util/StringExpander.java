@@ -11,7 +11,12 @@
 package org.eclipse.oomph.setup.util;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -61,6 +66,19 @@ public abstract class StringExpander
 
   protected static final Map<String, String> CONTROL_CHARACTER_VALUES = new HashMap<>();
 
+  private static final int TEMPLATE_CACHE_SIZE = 10000;
+
+  private static final Map<String, Template> TEMPLATES = new LinkedHashMap<String, Template>(16, 0.75f, true)
+  {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Template> eldest)
+    {
+      return size() > TEMPLATE_CACHE_SIZE;
+    }
+  };
+
   static
   {
     for (int i = 0, length = CONTROL_CHARACTER_REPLACEMENTS.length; i < length; ++i)
@@ -70,6 +88,38 @@ public abstract class StringExpander
     }
   }
 
+  /**
+   * Returns the compiled form of the given string, which is parsed only once and then cached.
+   */
+  public static Template compile(String string)
+  {
+    synchronized (TEMPLATES)
+    {
+      Template template = TEMPLATES.get(string);
+      if (template == null)
+      {
+        template = new Template(string);
+        TEMPLATES.put(string, template);
+      }
+
+      return template;
+    }
+  }
+
+  /**
+   * Returns the keys of the variables that are referenced in the given string, in their order of appearance,
+   * including <code>$</code> for each escaped dollar sign.
+   */
+  public static Set<String> getKeys(String string)
+  {
+    if (string == null)
+    {
+      return null;
+    }
+
+    return compile(string).getKeys();
+  }
+
   protected static String resolve(StringExpander stringExpander, String key)
   {
     return stringExpander.resolve(key);
@@ -108,94 +158,87 @@ public abstract class StringExpander
       return null;
     }
 
+    Template template = compile(string);
+    if (template.isLiteral())
+    {
+      return string;
+    }
+
     StringBuilder result = new StringBuilder();
-    int previous = 0;
     boolean unresolved = false;
-    for (Matcher matcher = StringExpander.STRING_EXPANSION_PATTERN.matcher(string); matcher.find();)
+    for (Segment segment : template.segments)
     {
-      result.append(string.substring(previous, matcher.start()));
-      String key = matcher.group(1);
-      if ("$".equals(key)) //$NON-NLS-1$
+      if (segment.key == null)
       {
-        result.append('$');
+        result.append(segment.text);
+        continue;
       }
-      else
-      {
-        key = matcher.group(2);
-        boolean isUnexpanded = isUnexpanded(key);
 
-        String value = isUnexpanded ? null : resolve(key);
-        if (value == null)
+      String key = segment.key;
+      boolean isUnexpanded = isUnexpanded(key);
+
+      String value = isUnexpanded ? null : resolve(key);
+      if (value == null)
+      {
+        if (keys != null)
         {
-          if (keys != null)
-          {
-            unresolved = true;
+          unresolved = true;
 
-            if (!isUnexpanded)
-            {
-              keys.add(key);
-            }
-          }
-          else if (!unresolved)
+          if (!isUnexpanded)
           {
-            result.append(matcher.group());
+            keys.add(key);
           }
         }
-        else
+        else if (!unresolved)
         {
-          String extensions = matcher.group(3);
-          if (extensions != null)
+          result.append(segment.text);
+        }
+      }
+      else
+      {
+        for (Extension extension : segment.extensions)
+        {
+          if (extension.filter)
           {
-            ExtensionParser parser = new ExtensionParser(extensions);
-            Extension extension;
-
-            while ((extension = parser.parseNext()) != null)
+            if (extension.name.length() != 0)
             {
-              if (extension.filter)
+              value = filter(value, extension.name);
+              if (value == null)
               {
-                if (extension.name.length() != 0)
+                if (keys != null)
                 {
-                  value = filter(value, extension.name);
-                  if (value == null)
+                  unresolved = true;
+
+                  if (!isUnexpanded)
                   {
-                    if (keys != null)
-                    {
-                      unresolved = true;
-
-                      if (!isUnexpanded)
-                      {
-                        keys.add(key);
-                      }
-                    }
-                    else if (!unresolved)
-                    {
-                      result.append(matcher.group());
-                    }
-
-                    continue;
+                    keys.add(key);
                   }
                 }
-              }
-              else
-              {
-                if (!value.endsWith("/") && !value.endsWith("\\")) //$NON-NLS-1$ //$NON-NLS-2$
+                else if (!unresolved)
                 {
-                  value += getFileSeparator();
+                  result.append(segment.text);
                 }
 
-                value += extension.name;
+                continue;
               }
             }
           }
-
-          if (!unresolved)
+          else
           {
-            result.append(value);
+            if (!value.endsWith("/") && !value.endsWith("\\")) //$NON-NLS-1$ //$NON-NLS-2$
+            {
+              value += getFileSeparator();
+            }
+
+            value += extension.name;
           }
         }
-      }
 
-      previous = matcher.end();
+        if (!unresolved)
+        {
+          result.append(value);
+        }
+      }
     }
 
     if (unresolved)
@@ -203,10 +246,123 @@ public abstract class StringExpander
       return null;
     }
 
-    result.append(string.substring(previous));
     return result.toString();
   }
 
+  /**
+   * The compiled form of a string with variable references.
+   * The string is split into literal text, escaped dollar signs, and variable references with their parsed filter and path extensions,
+   * so that an {@link StringExpander#expandString(String, Set) expansion} doesn't need to match or parse anything.
+   *
+   * @author Eike Stepper
+   */
+  public static final class Template
+  {
+    private static final Segment[] NO_SEGMENTS = {};
+
+    private final Segment[] segments;
+
+    private final Set<String> keys;
+
+    private Template(String string)
+    {
+      List<Segment> segments = new ArrayList<>();
+      Set<String> keys = new LinkedHashSet<>();
+      int previous = 0;
+
+      for (Matcher matcher = STRING_EXPANSION_PATTERN.matcher(string); matcher.find();)
+      {
+        if (matcher.start() > previous)
+        {
+          segments.add(new Segment(string.substring(previous, matcher.start())));
+        }
+
+        String key = matcher.group(1);
+        if ("$".equals(key)) //$NON-NLS-1$
+        {
+          segments.add(new Segment("$")); //$NON-NLS-1$
+        }
+        else
+        {
+          key = matcher.group(2);
+
+          List<Extension> extensions = new ArrayList<>();
+          String extensionsString = matcher.group(3);
+          if (extensionsString != null)
+          {
+            ExtensionParser parser = new ExtensionParser(extensionsString);
+            for (Extension extension; (extension = parser.parseNext()) != null;)
+            {
+              extensions.add(extension);
+            }
+          }
+
+          segments.add(new Segment(matcher.group(), key, extensions.toArray(new Extension[extensions.size()])));
+        }
+
+        keys.add(key);
+        previous = matcher.end();
+      }
+
+      if (segments.isEmpty())
+      {
+        this.segments = NO_SEGMENTS;
+      }
+      else
+      {
+        if (previous < string.length())
+        {
+          segments.add(new Segment(string.substring(previous)));
+        }
+
+        this.segments = segments.toArray(new Segment[segments.size()]);
+      }
+
+      this.keys = Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Returns whether the string doesn't contain any variable references or escaped dollar signs.
+     */
+    public boolean isLiteral()
+    {
+      return segments.length == 0;
+    }
+
+    public Set<String> getKeys()
+    {
+      return keys;
+    }
+  }
+
+  /**
+   * Either literal text, or a variable reference with its original text.
+   *
+   * @author Eike Stepper
+   */
+  private static final class Segment
+  {
+    private static final Extension[] NO_EXTENSIONS = {};
+
+    public final String text;
+
+    public final String key;
+
+    public final Extension[] extensions;
+
+    public Segment(String text)
+    {
+      this(text, null, NO_EXTENSIONS);
+    }
+
+    public Segment(String text, String key, Extension[] extensions)
+    {
+      this.text = text;
+      this.key = key;
+      this.extensions = extensions;
+    }
+  }
+
   /**
    * @author Eike Stepper
    */
@@ -23,6 +23,7 @@ import org.eclipse.oomph.p2.core.ProfileTransaction.CommitContext;
 import org.eclipse.oomph.p2.internal.core.CacheUsageConfirmer;
 import org.eclipse.oomph.p2.internal.core.CachingRepositoryManager;
 import org.eclipse.oomph.p2.internal.core.ProfileTransactionImpl;
+import org.eclipse.oomph.p2.internal.core.ResolutionCache;
 import org.eclipse.oomph.resources.SourceLocator;
 import org.eclipse.oomph.targlets.DropinLocation;
 import org.eclipse.oomph.targlets.FeatureGenerator;
@@ -83,6 +84,7 @@ import org.eclipse.equinox.internal.p2.engine.phases.Uninstall;
 import org.eclipse.equinox.internal.p2.metadata.IRequiredCapability;
 import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
 import org.eclipse.equinox.internal.p2.metadata.ResolvedInstallableUnit;
+import org.eclipse.equinox.internal.p2.metadata.repository.CompositeMetadataRepository;
 import org.eclipse.equinox.internal.p2.touchpoint.natives.NativeTouchpoint;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.eclipse.equinox.p2.engine.IPhaseSet;
@@ -108,10 +110,12 @@ import org.eclipse.equinox.p2.query.CollectionResult;
 import org.eclipse.equinox.p2.query.IQueryResult;
 import org.eclipse.equinox.p2.query.IQueryable;
 import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.IRepositoryManager;
 import org.eclipse.equinox.p2.repository.artifact.IArtifactRepositoryManager;
 import org.eclipse.equinox.p2.repository.artifact.IArtifactRequest;
 import org.eclipse.equinox.p2.repository.artifact.IFileArtifactRepository;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
 import org.eclipse.equinox.spi.p2.publisher.PublisherHelper;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.pde.core.target.ITargetDefinition;
@@ -140,6 +144,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Method;
+import java.net.URI;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -153,6 +158,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.jar.JarFile;
 import java.util.regex.Pattern;
 
@@ -945,6 +951,8 @@ public class TargletContainer extends AbstractBundleContainer implements ITargle
 
     boolean originalBetterMirrorSelection = CachingRepositoryManager.enableBetterMirrorSelection();
 
+    ResolutionCache resolutionCache = null;
+    List<URI> digestedRepositoryURIs = new ArrayList<>();
     MultiStatus composedTargetContentStatus = null;
     try
     {
@@ -976,12 +984,36 @@ public class TargletContainer extends AbstractBundleContainer implements ITargle
         return null;
       }
 
+      String resolutionDigest = null;
+      if (FORCE_UPDATE.get() != Boolean.TRUE && ResolutionCache.isEnabled() && composedTargetContentStatus.isOK())
+      {
+        resolutionCache = new ResolutionCache(profile.getAgent().getLocation());
+        resolutionDigest = getResolutionDigest(digest, workspaceIUAnalyzer, composedTargetContent.getAdditionalIUs(), repositories,
+            profile.getAgent().getMetadataRepositoryManager(), digestedRepositoryURIs, progress.newChild());
+
+        // If the working profile is the result of an identical resolution, it's still valid and the planner can be skipped.
+        Collection<WorkspaceIUInfo> workingProjects = descriptor.getWorkingProjects();
+        if (resolutionDigest != null && workingProjects != null && profile.getProfileId().equals(descriptor.getWorkingProfileID())
+            && resolutionCache.isNoop(profile.getProfileId(), resolutionDigest + "@" + profile.getTimestamp())) //$NON-NLS-1$
+        {
+          descriptor.commitUpdateTransaction(digest, workingProjects, progress.newChild());
+          monitor.subTask(Messages.TargletContainer_UpdateComplete_task);
+          progress.done();
+          return profile;
+        }
+      }
+
       TargletCommitContext commitContext = new TargletCommitContext(profile, workspaceIUAnalyzer, isIncludeAllPlatforms(), isIncludeAllRequirements(),
           isIncludeBinaryEquivalents(), composedTargetContent.getAdditionalIUs());
       transaction.commit(commitContext, progress.newChild());
 
       TargletsCorePlugin.INSTANCE.coreException(composedTargetContentStatus);
 
+      if (resolutionCache != null)
+      {
+        resolutionCache.setNoop(profile.getProfileId(), resolutionDigest == null ? null : resolutionDigest + "@" + profile.getTimestamp(), true); //$NON-NLS-1$
+      }
+
       Map<IInstallableUnit, WorkspaceIUInfo> requiredProjects = getRequiredProjects(profile, workspaceIUAnalyzer.getWorkspaceIUInfos(), progress.newChild());
       descriptor.commitUpdateTransaction(digest, requiredProjects.values(), progress.newChild());
 
@@ -993,6 +1025,11 @@ public class TargletContainer extends AbstractBundleContainer implements ITargle
     }
     catch (Throwable t)
     {
+      if (resolutionCache != null)
+      {
+        resolutionCache.setNoop(profile.getProfileId(), null, false);
+      }
+
       if (composedTargetContentStatus != null && !composedTargetContentStatus.isOK() && t instanceof CoreException
           && ((CoreException)t).getStatus() != composedTargetContentStatus)
       {
@@ -1013,6 +1050,13 @@ public class TargletContainer extends AbstractBundleContainer implements ITargle
     }
     finally
     {
+      // The repositories that were loaded for the digest have served the resolution too, and aren't needed anymore.
+      IMetadataRepositoryManager repositoryManager = profile.getAgent().getMetadataRepositoryManager();
+      for (URI uri : digestedRepositoryURIs)
+      {
+        repositoryManager.removeRepository(uri);
+      }
+
       CachingRepositoryManager.setBetterMirrorSelection(originalBetterMirrorSelection);
 
       if (oldGCEnabled == null)
@@ -1121,6 +1165,132 @@ public class TargletContainer extends AbstractBundleContainer implements ITargle
     return workspaceIUAnalyzer;
   }
 
+  /**
+   * Returns the digest of everything that the resolution of this container depends on beyond its own {@link #createDigest(String, String, String, EList, EList) digest},
+   * or <code>null</code> if the resolution can't be cached.
+   * The qualifiers of the workspace IUs are ignored because each analysis generates new ones for the projects that have changed.
+   * Only the container's repositories are loaded; the {@link ResolutionCache.Key key} digests the children that a composite has loaded itself,
+   * and doesn't follow references, just like the provisioning context of the {@link TargletCommitContext commit context}.
+   * The repositories, including the children of composites, that weren't known to the manager before are added to the given list;
+   * the caller removes them once the resolution, which needs them as well, is done.
+   */
+  private static String getResolutionDigest(String digest, WorkspaceIUAnalyzer workspaceIUAnalyzer, Set<IInstallableUnit> additionalIUs,
+      EList<Repository> repositories, IMetadataRepositoryManager manager, List<URI> loadedURIs, IProgressMonitor monitor)
+  {
+    ResolutionCache.Key key = new ResolutionCache.Key();
+    key.append(digest);
+
+    String qualifierReplacement = workspaceIUAnalyzer.getQualifierReplacement();
+    List<String> workspaceIUs = new ArrayList<>();
+    for (IInstallableUnit iu : workspaceIUAnalyzer.getWorkspaceIUInfos().keySet())
+    {
+      String fingerprint = getFingerprint(iu);
+      if (qualifierReplacement != null)
+      {
+        fingerprint = fingerprint.replace(qualifierReplacement, "qualifier"); //$NON-NLS-1$
+      }
+
+      workspaceIUs.add(fingerprint);
+    }
+
+    Collections.sort(workspaceIUs);
+    key.append(workspaceIUs);
+
+    List<String> composedIUs = new ArrayList<>();
+    for (IInstallableUnit iu : additionalIUs)
+    {
+      composedIUs.add(iu.getId() + " " + iu.getVersion()); //$NON-NLS-1$
+    }
+
+    Collections.sort(composedIUs);
+    key.append(composedIUs);
+
+    Set<String> knownRepositories = P2Util.getKnownRepositories(manager);
+    Set<URI> allKnownRepositories = new HashSet<>(Arrays.asList(manager.getKnownRepositories(IRepositoryManager.REPOSITORIES_ALL)));
+
+    try
+    {
+      List<IMetadataRepository> metadataRepositories = new ArrayList<>();
+      for (Repository repository : repositories)
+      {
+        String url = repository.getURL();
+        URI uri = new URI(url);
+        if (!knownRepositories.contains(url))
+        {
+          loadedURIs.add(uri);
+        }
+
+        IMetadataRepository metadataRepository = manager.loadRepository(uri, monitor);
+        addLoadedChildren(metadataRepository, allKnownRepositories, loadedURIs);
+        metadataRepositories.add(metadataRepository);
+      }
+
+      // The provisioning context of the targlet commit context doesn't follow repository references.
+      key.append(manager, metadataRepositories, false);
+      return key.getDigest();
+    }
+    catch (Exception ex)
+    {
+      // The profile transaction reports the repositories that can't be loaded.
+      return null;
+    }
+  }
+
+  /**
+   * Adds the locations of the children that the given composite has added to the manager while it was loaded.
+   */
+  private static void addLoadedChildren(IMetadataRepository repository, Set<URI> knownRepositories, List<URI> loadedURIs)
+  {
+    if (repository instanceof CompositeMetadataRepository)
+    {
+      for (URI child : ((CompositeMetadataRepository)repository).getChildren())
+      {
+        if (knownRepositories.add(child))
+        {
+          loadedURIs.add(child);
+        }
+      }
+
+      List<IMetadataRepository> loadedChildren = ResolutionCache.getLoadedChildren((CompositeMetadataRepository)repository);
+      if (loadedChildren != null)
+      {
+        for (IMetadataRepository child : loadedChildren)
+        {
+          addLoadedChildren(child, knownRepositories, loadedURIs);
+        }
+      }
+    }
+  }
+
+  private static String getFingerprint(IInstallableUnit iu)
+  {
+    StringBuilder builder = new StringBuilder();
+    builder.append(iu.getId()).append(' ').append(iu.getVersion()).append(' ').append(iu.isSingleton()).append(' ').append(iu.getFilter());
+    builder.append(' ').append(new TreeMap<>(iu.getProperties()));
+
+    for (IProvidedCapability capability : iu.getProvidedCapabilities())
+    {
+      builder.append("\n+").append(capability); //$NON-NLS-1$
+    }
+
+    for (IRequirement requirement : iu.getRequirements())
+    {
+      builder.append("\n-"); //$NON-NLS-1$
+      if (requirement instanceof IRequiredCapability && !requirement.getClass().getName().startsWith("org.eclipse.equinox.")) //$NON-NLS-1$
+      {
+        // The version ranges that features compute lazily from the versions of the workspace IUs must not be computed yet.
+        IRequiredCapability requiredCapability = (IRequiredCapability)requirement;
+        builder.append(requiredCapability.getNamespace()).append(':').append(requiredCapability.getName());
+      }
+      else
+      {
+        builder.append(requirement).append(' ').append(requirement.getMin()).append(' ').append(requirement.getMax()).append(' ').append(requirement.getFilter());
+      }
+    }
+
+    return builder.toString();
+  }
+
   private static EList<IUGenerator> effectiveIUGenerators(Targlet targlet)
   {
     EList<IUGenerator> effectiveInstallableUnitGenerators = targlet.getInstallableUnitGenerators();
@@ -13,6 +13,7 @@ package org.eclipse.oomph.targlets.internal.core;
 import org.eclipse.oomph.p2.P2Factory;
 import org.eclipse.oomph.p2.Requirement;
 import org.eclipse.oomph.p2.VersionSegment;
+import org.eclipse.oomph.p2.internal.core.ResolutionCache;
 import org.eclipse.oomph.resources.EclipseProjectFactory;
 import org.eclipse.oomph.resources.ProjectHandler;
 import org.eclipse.oomph.resources.SourceLocator;
@@ -21,6 +22,8 @@ import org.eclipse.oomph.resources.impl.SourceLocatorImpl;
 import org.eclipse.oomph.targlets.IUGenerator;
 import org.eclipse.oomph.targlets.core.WorkspaceIUInfo;
 import org.eclipse.oomph.targlets.util.VersionGenerator;
+import org.eclipse.oomph.util.DaemonThreadFactory;
+import org.eclipse.oomph.util.PropertiesUtil;
 
 import org.eclipse.emf.common.util.BasicEList;
 import org.eclipse.emf.common.util.ECollections;
@@ -30,18 +33,42 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.ILicense;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.metadata.ITouchpointData;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
 import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
 import org.eclipse.equinox.p2.metadata.Version;
 import org.eclipse.equinox.p2.metadata.VersionRange;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Generates the IUs of the projects that the source locators of targlets find.
+ * <p>
+ * The {@link IUGenerator generators} are run for at most <code>oomph.targlets.workspace.iu.max.threads</code> projects concurrently (default 4).
+ * The IUs of a local project are cached for the lifetime of the process, keyed by a digest of the generators and of the names, sizes, and time stamps
+ * of the files in the project folder and in its <code>META-INF</code> folder, so that the next analysis reuses them if the project is unchanged.
+ * The cache can be disabled with the system property <code>oomph.targlets.workspace.iu.cache.disabled</code>.
+ * </p>
+ *
  * @author Eike Stepper
  */
 public class WorkspaceIUAnalyzer
@@ -50,6 +77,22 @@ public class WorkspaceIUAnalyzer
 
   public static final String IU_PROPERTY_WORKSPACE_MAIN = "org.eclipse.oomph.targlet.workspace.main"; //$NON-NLS-1$
 
+  private static final String PROP_MAX_THREADS = "oomph.targlets.workspace.iu.max.threads"; //$NON-NLS-1$
+
+  private static final String PROP_CACHE_DISABLED = "oomph.targlets.workspace.iu.cache.disabled"; //$NON-NLS-1$
+
+  private static final int MAX_THREADS = PropertiesUtil.getProperty(PROP_MAX_THREADS, 4);
+
+  private static final boolean CACHE_DISABLED = PropertiesUtil.isProperty(PROP_CACHE_DISABLED);
+
+  private static final String GENERATOR_PACKAGE_PREFIX = "org.eclipse.oomph.targlets.impl."; //$NON-NLS-1$
+
+  private static final String P2_PACKAGE_PREFIX = "org.eclipse.equinox."; //$NON-NLS-1$
+
+  private static final Map<String, CacheEntry> CACHE = new ConcurrentHashMap<>();
+
+  private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("Oomph Workspace IU Analyzer"); //$NON-NLS-1$
+
   private final MultiStatus status = new MultiStatus(TargletsCorePlugin.INSTANCE.getSymbolicName(), 0, Messages.WorkspaceIUAnalyzer_Analysis_message, null);
 
   private final Map<IInstallableUnit, WorkspaceIUInfo> workspaceIUInfos = Collections.synchronizedMap(new HashMap<IInstallableUnit, WorkspaceIUInfo>());
@@ -90,57 +133,183 @@ public class WorkspaceIUAnalyzer
 
   public EList<IInstallableUnit> analyze(SourceLocator sourceLocator, final EList<IUGenerator> generators, IProgressMonitor monitor)
   {
-    final EList<IInstallableUnit> allIUs = ECollections.asEList(Collections.synchronizedList(new ArrayList<IInstallableUnit>()));
+    final List<Project> projects = Collections.synchronizedList(new ArrayList<Project>());
 
     sourceLocator.handleProjects(EclipseProjectFactory.LIST, new ProjectHandler()
     {
       @Override
       public void handleProject(IProject project, BackendContainer backendContainer)
       {
-        try
-        {
-          EList<IInstallableUnit> ius = new BasicEList<>();
+        projects.add(new Project(project, backendContainer));
+      }
+    }, status, monitor);
 
-          for (IUGenerator generator : generators)
+    generateIUs(projects, generators, monitor);
+
+    EList<IInstallableUnit> allIUs = new BasicEList<>();
+    for (Project project : projects)
+    {
+      EList<IInstallableUnit> ius = project.getIUs();
+      if (ius == null)
+      {
+        continue;
+      }
+
+      try
+      {
+        WorkspaceIUInfo info = new WorkspaceIUInfo(project.getBackendContainer(), project.getProject().getName());
+        boolean isMain = true;
+        for (IInstallableUnit iu : ius)
+        {
+          if (iu instanceof InstallableUnit)
           {
-            try
-            {
-              generator.generateIUs(project, qualifierReplacement, iuVersions, ius);
-            }
-            catch (Exception ex)
+            InstallableUnit installableUnit = (InstallableUnit)iu;
+            installableUnit.setProperty(IU_PROPERTY_WORKSPACE, Boolean.TRUE.toString());
+            if (isMain)
             {
-              log(project, ex);
+              isMain = false;
+              installableUnit.setProperty(IU_PROPERTY_WORKSPACE_MAIN, Boolean.TRUE.toString());
             }
           }
 
-          WorkspaceIUInfo info = new WorkspaceIUInfo(backendContainer, project.getName());
-          boolean isMain = true;
-          for (IInstallableUnit iu : ius)
+          workspaceIUInfos.put(iu, info);
+        }
+
+        allIUs.addAll(ius);
+      }
+      catch (Exception ex)
+      {
+        log(project.getProject(), ex);
+      }
+    }
+
+    return ECollections.asEList(Collections.synchronizedList(allIUs));
+  }
+
+  private void generateIUs(List<Project> projects, final EList<IUGenerator> generators, final IProgressMonitor monitor)
+  {
+    final String generatorsDigest = getGeneratorsDigest(generators);
+
+    int threads = Math.min(MAX_THREADS, projects.size());
+    if (threads <= 1)
+    {
+      for (Project project : projects)
+      {
+        if (monitor.isCanceled())
+        {
+          throw new OperationCanceledException();
+        }
+
+        generateIUs(project, generators, generatorsDigest);
+      }
+
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, THREAD_FACTORY);
+
+    try
+    {
+      for (final Project project : projects)
+      {
+        executor.execute(new Runnable()
+        {
+          @Override
+          public void run()
           {
-            if (iu instanceof InstallableUnit)
+            if (!monitor.isCanceled())
             {
-              InstallableUnit installableUnit = (InstallableUnit)iu;
-              installableUnit.setProperty(IU_PROPERTY_WORKSPACE, Boolean.TRUE.toString());
-              if (isMain)
-              {
-                isMain = false;
-                installableUnit.setProperty(IU_PROPERTY_WORKSPACE_MAIN, Boolean.TRUE.toString());
-              }
+              generateIUs(project, generators, generatorsDigest);
             }
+          }
+        });
+      }
+
+      executor.shutdown();
 
-            workspaceIUInfos.put(iu, info);
+      try
+      {
+        while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS))
+        {
+          if (monitor.isCanceled())
+          {
+            break;
           }
+        }
+      }
+      catch (InterruptedException ex)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    if (monitor.isCanceled())
+    {
+      throw new OperationCanceledException();
+    }
+  }
 
-          allIUs.addAll(ius);
+  private void generateIUs(Project project, EList<IUGenerator> generators, String generatorsDigest)
+  {
+    IProject iProject = project.getProject();
+
+    try
+    {
+      String cacheKey = null;
+      String digest = null;
+
+      File folder = generatorsDigest == null ? null : project.getFolder();
+      if (folder != null)
+      {
+        cacheKey = folder.getPath() + "|" + iProject.getName(); //$NON-NLS-1$
+        digest = getDigest(folder, generatorsDigest);
+
+        CacheEntry entry = CACHE.get(cacheKey);
+        if (entry != null && entry.getDigest().equals(digest))
+        {
+          // The IUs of an unchanged project are reused, including their qualifiers.
+          project.setIUs(entry.copyIUs());
+          return;
+        }
+      }
+
+      EList<IInstallableUnit> ius = new BasicEList<>();
+
+      for (IUGenerator generator : generators)
+      {
+        try
+        {
+          generator.generateIUs(iProject, qualifierReplacement, iuVersions, ius);
         }
         catch (Exception ex)
         {
-          log(project, ex);
+          log(iProject, ex);
+          digest = null;
+        }
+      }
+
+      if (cacheKey != null)
+      {
+        if (digest != null && isCacheable(ius))
+        {
+          CACHE.put(cacheKey, new CacheEntry(digest, ius));
+        }
+        else
+        {
+          CACHE.remove(cacheKey);
         }
       }
-    }, status, monitor);
 
-    return allIUs;
+      project.setIUs(ius);
+    }
+    catch (Exception ex)
+    {
+      log(iProject, ex);
+    }
   }
 
   public void adjustOmniRootRequirements(EList<Requirement> rootRequirements)
@@ -179,6 +348,234 @@ public class WorkspaceIUAnalyzer
 
   protected void log(IProject project, Exception ex)
   {
-    SourceLocatorImpl.addStatus(status, TargletsCorePlugin.INSTANCE, "project " + project.getName(), ex); //$NON-NLS-1$
+    synchronized (status)
+    {
+      SourceLocatorImpl.addStatus(status, TargletsCorePlugin.INSTANCE, "project " + project.getName(), ex); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Returns the digest of the given generators, or <code>null</code> if they may read files that the {@link #getDigest(File, String) project digest} doesn't cover.
+   */
+  private static String getGeneratorsDigest(EList<IUGenerator> generators)
+  {
+    if (CACHE_DISABLED)
+    {
+      return null;
+    }
+
+    ResolutionCache.Key key = new ResolutionCache.Key();
+    for (IUGenerator generator : generators)
+    {
+      if (!generator.getClass().getName().startsWith(GENERATOR_PACKAGE_PREFIX))
+      {
+        return null;
+      }
+
+      key.append(generator);
+    }
+
+    return key.getDigest();
+  }
+
+  /**
+   * Returns a digest of the names, sizes, and time stamps of the files in the given project folder and in its <code>META-INF</code> folder,
+   * i.e., of all the files that the generators of Oomph read.
+   */
+  private static String getDigest(File folder, String generatorsDigest)
+  {
+    ResolutionCache.Key key = new ResolutionCache.Key();
+    key.append(generatorsDigest);
+    appendFiles(key, folder);
+    appendFiles(key, new File(folder, "META-INF")); //$NON-NLS-1$
+    return key.getDigest();
+  }
+
+  private static void appendFiles(ResolutionCache.Key key, File folder)
+  {
+    File[] files = folder.listFiles();
+    if (files != null)
+    {
+      Arrays.sort(files);
+      for (File file : files)
+      {
+        if (file.isFile())
+        {
+          key.append(file.getName() + ":" + file.length() + ":" + file.lastModified()); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns whether the given IUs can be copied without loss.
+   * IUs with requirements that aren't plain p2 requirements, e.g., the ones of features whose version ranges are computed lazily
+   * from the {@link #getIUVersions() IU versions} of the analysis, must be generated by each analysis.
+   */
+  private static boolean isCacheable(List<IInstallableUnit> ius)
+  {
+    for (IInstallableUnit iu : ius)
+    {
+      if (iu.getClass() != InstallableUnit.class || !isPlain(iu.getRequirements()) || !isPlain(iu.getMetaRequirements()))
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean isPlain(Collection<IRequirement> requirements)
+  {
+    for (IRequirement requirement : requirements)
+    {
+      if (!requirement.getClass().getName().startsWith(P2_PACKAGE_PREFIX))
+      {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns a copy of the given IU so that the modifications of the {@link TargletContainer} don't affect the cached IU.
+   */
+  private static IInstallableUnit copyIU(IInstallableUnit iu)
+  {
+    InstallableUnitDescription description = new InstallableUnitDescription();
+    description.setId(iu.getId());
+    description.setVersion(iu.getVersion());
+
+    Collection<IArtifactKey> artifacts = iu.getArtifacts();
+    description.setArtifacts(artifacts.toArray(new IArtifactKey[artifacts.size()]));
+
+    Collection<IProvidedCapability> providedCapabilities = iu.getProvidedCapabilities();
+    description.setCapabilities(providedCapabilities.toArray(new IProvidedCapability[providedCapabilities.size()]));
+
+    description.setCopyright(iu.getCopyright());
+    description.setFilter(iu.getFilter());
+
+    Collection<ILicense> licenses = iu.getLicenses();
+    description.setLicenses(licenses.toArray(new ILicense[licenses.size()]));
+
+    Collection<IRequirement> metaRequirements = iu.getMetaRequirements();
+    description.setMetaRequirements(metaRequirements.toArray(new IRequirement[metaRequirements.size()]));
+
+    Collection<IRequirement> requirements = iu.getRequirements();
+    description.setRequirements(requirements.toArray(new IRequirement[requirements.size()]));
+
+    description.setSingleton(iu.isSingleton());
+    description.setTouchpointType(iu.getTouchpointType());
+    description.setUpdateDescriptor(iu.getUpdateDescriptor());
+
+    for (Map.Entry<String, String> entry : iu.getProperties().entrySet())
+    {
+      description.setProperty(entry.getKey(), entry.getValue());
+    }
+
+    for (ITouchpointData touchpointData : iu.getTouchpointData())
+    {
+      description.addTouchpointData(touchpointData);
+    }
+
+    return MetadataFactory.createInstallableUnit(description);
+  }
+
+  /**
+   * @author Eike Stepper
+   */
+  private static final class Project
+  {
+    private final IProject project;
+
+    private final BackendContainer backendContainer;
+
+    private EList<IInstallableUnit> ius;
+
+    public Project(IProject project, BackendContainer backendContainer)
+    {
+      this.project = project;
+      this.backendContainer = backendContainer;
+    }
+
+    public IProject getProject()
+    {
+      return project;
+    }
+
+    public BackendContainer getBackendContainer()
+    {
+      return backendContainer;
+    }
+
+    /**
+     * Returns the local folder of this project, or <code>null</code> if the project isn't local.
+     */
+    public File getFolder()
+    {
+      try
+      {
+        if (backendContainer.isLocal())
+        {
+          File folder = backendContainer.getLocation().toFile();
+          if (folder.isDirectory())
+          {
+            return folder;
+          }
+        }
+      }
+      catch (Exception ex)
+      {
+        //$FALL-THROUGH$
+      }
+
+      return null;
+    }
+
+    public EList<IInstallableUnit> getIUs()
+    {
+      return ius;
+    }
+
+    public void setIUs(EList<IInstallableUnit> ius)
+    {
+      this.ius = ius;
+    }
+  }
+
+  /**
+   * @author Eike Stepper
+   */
+  private static final class CacheEntry
+  {
+    private final String digest;
+
+    private final List<IInstallableUnit> ius = new ArrayList<>();
+
+    public CacheEntry(String digest, List<IInstallableUnit> ius)
+    {
+      this.digest = digest;
+      for (IInstallableUnit iu : ius)
+      {
+        this.ius.add(copyIU(iu));
+      }
+    }
+
+    public String getDigest()
+    {
+      return digest;
+    }
+
+    public EList<IInstallableUnit> copyIUs()
+    {
+      EList<IInstallableUnit> result = new BasicEList<>();
+      for (IInstallableUnit iu : ius)
+      {
+        result.add(copyIU(iu));
+      }
+
+      return result;
+    }
   }
 }
@@ -47,6 +47,8 @@ public class Messages extends NLS
 
   public static String TargletContainerUI_status_simple;
 
+  public static String TargletContainerUI_status_similarNames;
+
   static
   {
     NLS.initializeMessages(BUNDLE_NAME, Messages.class);
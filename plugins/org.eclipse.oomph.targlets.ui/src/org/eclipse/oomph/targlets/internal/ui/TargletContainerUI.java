@@ -71,6 +71,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * @author Eike Stepper
@@ -79,6 +80,8 @@ public class TargletContainerUI implements ITargetLocationHandler, IAdapterFacto
 {
   private static final Object[] NO_CHILDREN = new Object[0];
 
+  private static final int MAX_SIMILAR_NAMES = 20;
+
   static final Class<?>[] ADAPTERS = { ITreeContentProvider.class, ILabelProvider.class, ITargetLocationHandler.class };
 
   private final ComposedAdapterFactory adapterFactory;
@@ -423,6 +426,11 @@ public class TargletContainerUI implements ITargetLocationHandler, IAdapterFacto
                         + (repository.isComposed() ? Messages.TargletContainerUI_status_composed : Messages.TargletContainerUI_status_simple) + ": " //$NON-NLS-1$
                         + repository.getCapabilityCount() + ")")); //$NON-NLS-1$
                   }
+
+                  if (repositories.isEmpty())
+                  {
+                    addSimilarNames(missingIUInfo, missingIU.getNamespace(), missingIU.getName());
+                  }
                 }
 
                 children.add(missingIUInfo);
@@ -453,6 +461,35 @@ public class TargletContainerUI implements ITargetLocationHandler, IAdapterFacto
       return null;
     }
 
+    /**
+     * Adds the indexed capabilities whose names start like the given name, e.g., because the name is misspelled or the capability has been renamed.
+     */
+    private void addSimilarNames(StatusWrapper missingIUInfo, String namespace, String name)
+    {
+      int lastDot = name.lastIndexOf('.');
+      String prefix = lastDot == -1 ? name : name.substring(0, lastDot + 1);
+
+      Set<String> names = new TreeSet<>(P2Index.INSTANCE.findCapabilityNames(namespace, prefix));
+      names.remove(name);
+      if (!names.isEmpty())
+      {
+        StatusWrapper similarNames = new StatusWrapper(NLS.bind(Messages.TargletContainerUI_status_similarNames, namespace));
+        int count = 0;
+        for (String similarName : names)
+        {
+          if (++count > MAX_SIMILAR_NAMES)
+          {
+            similarNames.addChild(new StatusWrapper("...")); //$NON-NLS-1$
+            break;
+          }
+
+          similarNames.addChild(new StatusWrapper(similarName));
+        }
+
+        missingIUInfo.addChild(similarNames);
+      }
+    }
+
     private void collectRepositories(Map<P2Index.Repository, Set<Version>> result, VersionRange range, Set<P2Index.Repository> repositories)
     {
       for (Map.Entry<P2Index.Repository, Set<Version>> entry : result.entrySet())
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2026 Eike Stepper (Loehne, Germany) and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *    Eike Stepper - initial API and implementation
+ */
+package org.eclipse.oomph.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A factory for the daemon threads of a thread pool, which are named after the pool and numbered consecutively,
+ * e.g., <code>Oomph Repository Loader 3</code>.
+ * Daemon threads don't prevent the JVM from exiting while a pool is idle.
+ *
+ * @author Eike Stepper
+ */
+public final class DaemonThreadFactory implements ThreadFactory
+{
+  private final String name;
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  public DaemonThreadFactory(String name)
+  {
+    this.name = name;
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable)
+  {
+    return initialize(new Thread(runnable));
+  }
+
+  /**
+   * Names the given thread and makes it a daemon thread, e.g., a thread that a {@link java.util.concurrent.ForkJoinPool fork/join pool} has created.
+   */
+  public <T extends Thread> T initialize(T thread)
+  {
+    thread.setName(name + " " + counter.incrementAndGet()); //$NON-NLS-1$
+    thread.setDaemon(true);
+    return thread;
+  }
+}
@@ -38,7 +38,8 @@ public abstract class WorkerPool<P extends WorkerPool<P, K, W>, K, W extends Wor
 {
   /**
    * A comparator for ordering the workers in the pool.
-   * Workers are ordered such that {@link Worker#secondary secondary} priority workers will be processed later.
+   * Workers are ordered such that {@link Worker#urgent urgent} workers will be processed first
+   * and {@link Worker#secondary secondary} priority workers will be processed later.
    * Otherwise workers are processed in the {@link Worker#id identifier order},
    * i.e., first come first serve.
    */
@@ -47,7 +48,12 @@ public abstract class WorkerPool<P extends WorkerPool<P, K, W>, K, W extends Wor
     @Override
     public int compare(Worker<?, ?> o1, Worker<?, ?> o2)
     {
-      int result = (o2.secondary ? 0 : 1) - (o1.secondary ? 0 : 1);
+      int result = (o2.urgent ? 1 : 0) - (o1.urgent ? 1 : 0);
+      if (result == 0)
+      {
+        result = (o2.secondary ? 0 : 1) - (o1.secondary ? 0 : 1);
+      }
+
       if (result == 0)
       {
         result = o2.id - o1.id;
@@ -164,6 +170,12 @@ public abstract class WorkerPool<P extends WorkerPool<P, K, W>, K, W extends Wor
 
     workers.clear();
     pendingWorkers.clear();
+
+    // Canceled workers that haven't started yet will never deschedule themselves.
+    if (latch != null)
+    {
+      latch.countDown();
+    }
   }
 
   /**
@@ -294,15 +306,36 @@ public abstract class WorkerPool<P extends WorkerPool<P, K, W>, K, W extends Wor
     W worker = workers.get(key);
     if (worker != null)
     {
-      if (!secondary && worker.secondary && pendingWorkers.contains(worker))
+      if (pendingWorkers.contains(worker))
       {
-        worker.secondary = false;
-        Collections.sort(pendingWorkers, COMPARATOR);
+        boolean changed = false;
+        if (!worker.urgent && isUrgent(key))
+        {
+          worker.urgent = true;
+          worker.secondary = false;
+          changed = true;
+        }
+        else if (!secondary && worker.secondary)
+        {
+          worker.secondary = false;
+          changed = true;
+        }
+
+        if (changed)
+        {
+          Collections.sort(pendingWorkers, COMPARATOR);
+        }
       }
     }
     else
     {
       worker = createWorker(key, ++nextWorkerID, secondary);
+      if (isUrgent(key))
+      {
+        worker.urgent = true;
+        worker.secondary = false;
+      }
+
       workers.put(key, worker);
 
       if (isWorkPossible())
@@ -319,6 +352,31 @@ public abstract class WorkerPool<P extends WorkerPool<P, K, W>, K, W extends Wor
     return true;
   }
 
+  /**
+   * Moves the pending work for the given keys ahead of all other pending work.
+   * It does not schedule work for keys that aren't scheduled yet;
+   * {@link #isUrgent(Object) urgent} work is moved ahead when it's scheduled.
+   */
+  protected synchronized void prioritize(Collection<? extends K> keys)
+  {
+    boolean changed = false;
+    for (K key : keys)
+    {
+      W worker = workers.get(key);
+      if (worker != null && !worker.urgent && pendingWorkers.contains(worker))
+      {
+        worker.urgent = true;
+        worker.secondary = false;
+        changed = true;
+      }
+    }
+
+    if (changed)
+    {
+      Collections.sort(pendingWorkers, COMPARATOR);
+    }
+  }
+
   /**
    * Deschedules the work for the given key when that work has been completed.
    * If there are {@link #pendingWorkers pending workings},
@@ -362,6 +420,15 @@ public abstract class WorkerPool<P extends WorkerPool<P, K, W>, K, W extends Wor
     return false;
   }
 
+  /**
+   * Returns whether the work for the given key should be performed ahead of all other work when it's scheduled.
+   * It returns <code>false</code> by default.
+   */
+  protected boolean isUrgent(K key)
+  {
+    return false;
+  }
+
   /**
    * An abstract worker, which is a specialized type of {@link Job Job}.
    * @param <K> the type of key identifying the work that needs to be performed.
@@ -390,6 +457,11 @@ public abstract class WorkerPool<P extends WorkerPool<P, K, W>, K, W extends Wor
      */
     boolean secondary;
 
+    /**
+     * Whether the work of this worker has been {@link WorkerPool#prioritize(Collection) prioritized}.
+     */
+    boolean urgent;
+
     /**
      * Creates an instance with the given Job name,
      * managed by the given work pool,
@@ -445,7 +517,7 @@ public abstract class WorkerPool<P extends WorkerPool<P, K, W>, K, W extends Wor
     @Override
     public String toString()
     {
-      return "key=" + key + ", secondary=" + secondary + ", id=" + id; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      return "key=" + key + ", secondary=" + secondary + ", urgent=" + urgent + ", id=" + id; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
     }
   }
 }